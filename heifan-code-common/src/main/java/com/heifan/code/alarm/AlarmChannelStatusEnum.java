@@ -0,0 +1,34 @@
+package com.heifan.code.alarm;
+
+/**
+ * @description 单个平台的发送结果
+ * @author HiF
+ * @date 2026/10/18 18:10
+ */
+public enum AlarmChannelStatusEnum {
+
+    /**
+     * 发送成功
+     */
+    SUCCESS,
+    /**
+     * 平台返回错误码，重发也不会成功
+     */
+    REJECTED,
+    /**
+     * 平台限流
+     */
+    RATE_LIMITED,
+    /**
+     * 请求异常
+     */
+    ERROR,
+    /**
+     * 超过平台发送超时，结果未知
+     */
+    TIMEOUT,
+    /**
+     * 平台令牌都已熔断或限流额度已用完，未发送
+     */
+    EXHAUSTED;
+}
@@ -1,19 +1,45 @@
 package com.heifan.code.alarm;
 
+import com.heifan.code.alarm.channel.AlarmChannel;
+import com.heifan.code.alarm.channel.AlarmChannelFanout;
+import com.heifan.code.alarm.channel.AlarmSendRetrier;
+import com.heifan.code.alarm.channel.DingTalkAlarmChannel;
+import com.heifan.code.alarm.channel.FeiShuAlarmChannel;
+import com.heifan.code.alarm.channel.WorkWxAlarmChannel;
+import com.heifan.code.alarm.client.AlarmHttpTransport;
+import com.heifan.code.alarm.client.PooledAlarmHttpTransport;
+import com.heifan.code.alarm.client.SimpleHttpClient;
+import com.heifan.code.alarm.manager.AlarmClusterDeduplicator;
+import com.heifan.code.alarm.manager.AlarmClusterRateLimiter;
+import com.heifan.code.alarm.manager.AlarmNoticeBatcher;
+import com.heifan.code.alarm.manager.AlarmNoticeDeduplicator;
+import com.heifan.code.alarm.manager.AlarmNoticeDispatcher;
 import com.heifan.code.alarm.manager.AlarmNoticeManage;
+import com.heifan.code.alarm.manager.AlarmNoticeSampler;
+import com.heifan.code.alarm.manager.AlarmRoutingRefreshListener;
+import com.heifan.code.alarm.manager.AlarmShutdownLifecycle;
 import com.heifan.code.alarm.manager.AlarmWebHookTokenManager;
 import com.heifan.code.alarm.message.AlarmNoticeSendI;
+import com.heifan.code.alarm.metrics.AlarmHeavyHitters;
+import com.heifan.code.alarm.metrics.AlarmHeavyHittersEndpoint;
+import com.heifan.code.alarm.metrics.AlarmMetrics;
+import com.heifan.code.alarm.metrics.AlarmMetricsEndpoint;
 import com.heifan.code.alarm.message.impl.AlarmNoticeSendImpl;
 import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import com.heifan.code.alarm.spool.AlarmSpool;
+import com.heifan.code.alarm.spool.AlarmSpoolReplayer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 
-import java.util.List;
 
 /**
  * @author z201.coding@gmail.com
@@ -24,10 +50,6 @@ public class AlarmNoticeConfiguration {
 
     private static final Logger log = LoggerFactory.getLogger(AlarmNoticeConfiguration.class);
 
-    private static final String DEV = "dev";
-    private static final String TEST = "test";
-    private static final String PROD = "prod";
-
     @Autowired
     AlarmNoticeProperty alarmNoticeProperty;
 
@@ -42,23 +64,7 @@ public class AlarmNoticeConfiguration {
     public AlarmNoticeManage alarmNoticeManage() throws IllegalAccessException {
         if (null != active) {
             log.info("active {}", active);
-            List<String> dingTalkWebHook = null;
-            if (active.contains(TEST) || active.contains(DEV)) {
-                if (null == alarmNoticeProperty.getWebHookDevToken() ||
-                        alarmNoticeProperty.getWebHookDevToken().isEmpty()) {
-                    throw new IllegalAccessException("预警模块配置文件初始化异常,项目未指定 webHookDevToken , 预警无法初始化回调信息");
-                }
-                dingTalkWebHook = alarmNoticeProperty.getWebHookDevToken();
-            } else if (active.contains(PROD)) {
-                if (null == alarmNoticeProperty.getWebHookProToken() ||
-                        alarmNoticeProperty.getWebHookProToken().isEmpty()) {
-                    throw new IllegalAccessException("预警模块配置文件初始化异常,项目未指定 webHookProToken , 预警无法初始化回调信息");
-                }
-                dingTalkWebHook = alarmNoticeProperty.getWebHookProToken();
-            } else {
-                throw new IllegalAccessException("预警模块配置文件初始化异常,项目未指定合法的 spring.profiles.active , 钉钉预警无法初始化回调信息");
-            }
-            alarmNoticeProperty.setWebHook(dingTalkWebHook);
+            alarmNoticeProperty.resolveWebHook(active);
         } else {
             throw new IllegalAccessException("预警模块配置文件初始化异常,项目未指定 spring.profiles.active , 钉钉预警无法初始化回调信息");
         }
@@ -66,16 +72,164 @@ public class AlarmNoticeConfiguration {
         return new AlarmNoticeManage(alarmNoticeProperty);
     }
 
-
     @Bean
     @ConditionalOnMissingBean({AlarmWebHookTokenManager.class})
     public AlarmWebHookTokenManager alarmWebHookTokenManager() {
         return new AlarmWebHookTokenManager();
     }
 
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({AlarmNoticeDispatcher.class})
+    public AlarmNoticeDispatcher alarmNoticeDispatcher() {
+        return new AlarmNoticeDispatcher(alarmNoticeProperty.getDispatch());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({AlarmShutdownLifecycle.class})
+    @ConditionalOnProperty(prefix = "alarm.shutdown", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public AlarmShutdownLifecycle alarmShutdownLifecycle() {
+        return new AlarmShutdownLifecycle(alarmNoticeProperty.getShutdown());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({AlarmNoticeDeduplicator.class})
+    @ConditionalOnProperty(prefix = "alarm.dedup", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public AlarmNoticeDeduplicator alarmNoticeDeduplicator() {
+        return new AlarmNoticeDeduplicator(alarmNoticeProperty.getDedup());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({AlarmClusterDeduplicator.class})
+    @ConditionalOnClass(name = "org.springframework.data.redis.core.StringRedisTemplate")
+    @ConditionalOnProperty(prefix = "alarm.cluster", name = "enabled", havingValue = "true")
+    public AlarmClusterDeduplicator alarmClusterDeduplicator() {
+        return new AlarmClusterDeduplicator(alarmNoticeProperty.getCluster());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({AlarmClusterRateLimiter.class})
+    @ConditionalOnClass(name = "org.springframework.data.redis.core.StringRedisTemplate")
+    @ConditionalOnProperty(prefix = "alarm.rate-limit", name = "enabled", havingValue = "true")
+    public AlarmClusterRateLimiter alarmClusterRateLimiter() {
+        return new AlarmClusterRateLimiter(alarmNoticeProperty.getRateLimit(), alarmNoticeProperty.getTokenLimitPerMinute());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({AlarmNoticeSampler.class})
+    @ConditionalOnProperty(prefix = "alarm.sample", name = "enabled", havingValue = "true")
+    public AlarmNoticeSampler alarmNoticeSampler() {
+        return new AlarmNoticeSampler(alarmNoticeProperty.getSample());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({AlarmNoticeBatcher.class})
+    @ConditionalOnProperty(prefix = "alarm.batch", name = "enabled", havingValue = "true")
+    public AlarmNoticeBatcher alarmNoticeBatcher() {
+        return new AlarmNoticeBatcher(alarmNoticeProperty.getBatch());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({AlarmHttpTransport.class})
+    public AlarmHttpTransport alarmHttpTransport() {
+        return new PooledAlarmHttpTransport(alarmNoticeProperty.getHttp());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({DingTalkAlarmChannel.class})
+    public AlarmChannel dingTalkAlarmChannel() {
+        return new DingTalkAlarmChannel(alarmNoticeProperty.channelUrl(AlarmNoticeEnum.DD));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({WorkWxAlarmChannel.class})
+    public AlarmChannel workWxAlarmChannel() {
+        return new WorkWxAlarmChannel(alarmNoticeProperty.channelUrl(AlarmNoticeEnum.WX));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({FeiShuAlarmChannel.class})
+    public AlarmChannel feiShuAlarmChannel() {
+        return new FeiShuAlarmChannel(alarmNoticeProperty.channelUrl(AlarmNoticeEnum.FS));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({AlarmChannelFanout.class})
+    public AlarmChannelFanout alarmChannelFanout() {
+        return new AlarmChannelFanout(alarmNoticeProperty);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({AlarmSendRetrier.class})
+    @ConditionalOnProperty(prefix = "alarm.retry", name = "enabled", havingValue = "true")
+    public AlarmSendRetrier alarmSendRetrier() {
+        return new AlarmSendRetrier(alarmNoticeProperty.getRetry());
+    }
+
     @Bean
     @ConditionalOnMissingBean({AlarmNoticeSendImpl.class})
-    public AlarmNoticeSendI alarmNoticeSend() {
+    public AlarmNoticeSendI alarmNoticeSend(AlarmHttpTransport alarmHttpTransport) {
+        SimpleHttpClient.setTransport(alarmHttpTransport);
         return new AlarmNoticeSendImpl();
     }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({AlarmSpool.class})
+    @ConditionalOnProperty(prefix = "alarm.spool", name = "enabled", havingValue = "true")
+    public AlarmSpool alarmSpool() {
+        return new AlarmSpool(alarmNoticeProperty.getSpool());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({AlarmSpoolReplayer.class})
+    @ConditionalOnProperty(prefix = "alarm.spool", name = "enabled", havingValue = "true")
+    public AlarmSpoolReplayer alarmSpoolReplayer() {
+        return new AlarmSpoolReplayer(alarmNoticeProperty.getSpool());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({AlarmMetrics.class})
+    @ConditionalOnProperty(prefix = "alarm.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public AlarmMetrics alarmMetrics() {
+        return new AlarmMetrics();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({AlarmMetricsEndpoint.class})
+    @ConditionalOnBean({AlarmMetrics.class})
+    @ConditionalOnProperty(prefix = "alarm.metrics", name = "endpoint-enabled", havingValue = "true")
+    public AlarmMetricsEndpoint alarmMetricsEndpoint() {
+        return new AlarmMetricsEndpoint();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({AlarmHeavyHitters.class})
+    @ConditionalOnProperty(prefix = "alarm.heavy-hitter", name = "enabled", havingValue = "true")
+    public AlarmHeavyHitters alarmHeavyHitters() {
+        return new AlarmHeavyHitters(alarmNoticeProperty.getHeavyHitter());
+    }
+
+    /**
+     * 只在 AlarmHeavyHitters 存在时注册，仅开启 endpoint-enabled 时不影响启动
+     */
+    @Bean
+    @ConditionalOnMissingBean({AlarmHeavyHittersEndpoint.class})
+    @ConditionalOnBean({AlarmHeavyHitters.class})
+    @ConditionalOnProperty(prefix = "alarm.heavy-hitter", name = "endpoint-enabled", havingValue = "true")
+    public AlarmHeavyHittersEndpoint alarmHeavyHittersEndpoint() {
+        return new AlarmHeavyHittersEndpoint();
+    }
+
+    /**
+     * 引入 spring-cloud-context 时监听配置刷新
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.cloud.context.environment.EnvironmentChangeEvent")
+    static class AlarmRoutingRefreshConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean({AlarmRoutingRefreshListener.class})
+        public AlarmRoutingRefreshListener alarmRoutingRefreshListener() {
+            return new AlarmRoutingRefreshListener();
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package com.heifan.code.alarm;
+
+/**
+ * @description 预警队列溢出策略
+ * @author HiF
+ * @date 2026/10/18 9:12
+ */
+public enum AlarmOverflowPolicyEnum {
+
+    /**
+     * 丢弃队列中最旧的预警，保留新预警
+     */
+    DROP_OLDEST,
+    /**
+     * 丢弃新提交的预警
+     */
+    DROP_NEWEST,
+    /**
+     * 由提交预警的线程直接发送
+     */
+    CALLER_RUNS;
+}
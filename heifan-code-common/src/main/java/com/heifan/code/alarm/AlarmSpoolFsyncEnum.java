@@ -0,0 +1,22 @@
+package com.heifan.code.alarm;
+
+/**
+ * @description 预警 spool 刷盘策略
+ * @author HiF
+ * @date 2026/10/18 16:10
+ */
+public enum AlarmSpoolFsyncEnum {
+
+    /**
+     * 每条记录写入后立即刷盘，最安全，吞吐最低
+     */
+    ALWAYS,
+    /**
+     * 按固定间隔刷盘，宕机最多丢失一个间隔内的记录
+     */
+    INTERVAL,
+    /**
+     * 不主动刷盘，交给操作系统
+     */
+    NEVER;
+}
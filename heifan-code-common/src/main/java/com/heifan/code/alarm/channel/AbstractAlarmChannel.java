@@ -0,0 +1,45 @@
+package com.heifan.code.alarm.channel;
+
+import com.heifan.code.alarm.dto.AlarmDigest;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.dto.ExceptionNotice;
+
+/**
+ * @description 按任务类型选择平台的渲染方式，服务通知与文本通知各平台一致
+ * @author HiF
+ * @date 2026/10/18 18:22
+ */
+public abstract class AbstractAlarmChannel implements AlarmChannel {
+
+    private final String url;
+
+    protected AbstractAlarmChannel(String url) {
+        this.url = url;
+    }
+
+    @Override
+    public String url(String token) {
+        return String.format(url, token);
+    }
+
+    @Override
+    public Object createBody(AlarmNoticeTask task) {
+        String text;
+        if (null != task.getExceptionNotice()) {
+            text = render(task.getExceptionNotice());
+        } else if (null != task.getServiceNotice()) {
+            text = task.getServiceNotice().createText();
+        } else if (null != task.getDigest()) {
+            text = render(task.getDigest());
+        } else {
+            text = task.getContent();
+        }
+        return wrap(text, task.getBlamedFor());
+    }
+
+    protected abstract String render(ExceptionNotice exceptionNotice);
+
+    protected abstract String render(AlarmDigest digest);
+
+    protected abstract Object wrap(String text, String[] blamedFor);
+}
@@ -0,0 +1,33 @@
+package com.heifan.code.alarm.channel;
+
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+
+/**
+ * @description 预警平台，每个 {@link AlarmNoticeEnum} 对应一个实现，负责拼装 webHook 地址与消息体
+ * @author HiF
+ * @date 2026/10/18 18:20
+ */
+public interface AlarmChannel {
+
+    /**
+     * 平台类型
+     */
+    AlarmNoticeEnum type();
+
+    /**
+     * webHook 地址
+     *
+     * @param token 令牌
+     * @return 请求URL
+     */
+    String url(String token);
+
+    /**
+     * 按平台格式生成消息体
+     *
+     * @param task 预警任务
+     * @return 消息体
+     */
+    Object createBody(AlarmNoticeTask task);
+}
@@ -0,0 +1,105 @@
+package com.heifan.code.alarm.channel;
+
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.dto.AlarmSendResult;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * @description 多平台并行发送，每个平台在发送线程中执行、独立超时、互不影响，结果按平台汇总。
+ * 发送线程池满时不占用调用线程，该平台记为失败并写入 spool 等待补发
+ * @author HiF
+ * @date 2026/10/18 18:30
+ */
+@Slf4j
+public class AlarmChannelFanout {
+
+    private final AlarmNoticeProperty alarmNoticeProperty;
+
+    private final ThreadPoolExecutor executor;
+
+    public AlarmChannelFanout(AlarmNoticeProperty alarmNoticeProperty) {
+        this.alarmNoticeProperty = alarmNoticeProperty;
+        int threads = Math.max(2, AlarmNoticeEnum.values().length * Math.max(1, alarmNoticeProperty.getDispatch().getThreads()));
+        AtomicInteger index = new AtomicInteger(0);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(256), r -> {
+            Thread thread = new Thread(r, "alarm-channel-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 向各平台发送
+     *
+     * @param channels 平台
+     * @param sender   单个平台的发送逻辑
+     * @return 各平台结果
+     */
+    public AlarmSendResult send(List<AlarmNoticeEnum> channels,
+                                Function<AlarmNoticeEnum, AlarmSendResult.ChannelResult> sender) {
+        AlarmSendResult result = new AlarmSendResult();
+        long start = System.nanoTime();
+        Map<AlarmNoticeEnum, Future<AlarmSendResult.ChannelResult>> futures = new EnumMap<>(AlarmNoticeEnum.class);
+        for (AlarmNoticeEnum channel : channels) {
+            try {
+                futures.put(channel, executor.submit(() -> sendQuietly(channel, sender, start)));
+            } catch (RejectedExecutionException e) {
+                log.warn("预警平台 {} 发送线程池已满", channel);
+                result.put(channel, AlarmSendResult.ChannelResult.error("发送线程池已满", 0));
+            }
+        }
+        for (Map.Entry<AlarmNoticeEnum, Future<AlarmSendResult.ChannelResult>> entry : futures.entrySet()) {
+            AlarmNoticeEnum channel = entry.getKey();
+            long remaining = start + TimeUnit.MILLISECONDS.toNanos(alarmNoticeProperty.channelTimeoutMillis(channel))
+                    - System.nanoTime();
+            try {
+                result.put(channel, entry.getValue().get(Math.max(0, remaining), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                // 请求本身由 HTTP 整体超时兜底，这里只是不再等待
+                log.warn("预警平台 {} 发送超时", channel);
+                result.put(channel, AlarmSendResult.ChannelResult.timeout(elapsedMillis(start)));
+            } catch (ExecutionException e) {
+                result.put(channel, AlarmSendResult.ChannelResult.failure(e.getCause(), elapsedMillis(start)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.put(channel, AlarmSendResult.ChannelResult.timeout(elapsedMillis(start)));
+            }
+        }
+        return result;
+    }
+
+    private static AlarmSendResult.ChannelResult sendQuietly(AlarmNoticeEnum channel,
+                                                              Function<AlarmNoticeEnum, AlarmSendResult.ChannelResult> sender,
+                                                              long start) {
+        try {
+            return sender.apply(channel);
+        } catch (Exception e) {
+            log.info("预警平台 {} 发送失败 {}", channel, e.toString());
+            return AlarmSendResult.ChannelResult.failure(e, elapsedMillis(start));
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,290 @@
+package com.heifan.code.alarm.channel;
+
+import com.heifan.code.alarm.client.AlarmHttpConnectException;
+import com.heifan.code.alarm.dto.AlarmResult;
+import com.heifan.code.alarm.dto.AlarmSendResult;
+import com.heifan.code.alarm.manager.AlarmTokenExhaustedException;
+import com.heifan.code.alarm.metrics.AlarmMetrics;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @description 单个平台发送的重试与对冲。
+ * 只在请求发出前失败(排队超时、建连或握手失败)或平台返回可重试的错误码时重试，
+ * 读超时等请求已发出的失败 webHook 可能已经收到，不重试；退避时间按指数增长并加随机抖动，每次重试换一个令牌；
+ * 开启对冲时，首个请求超过延迟阈值仍未返回则用另一个令牌再发一次，先成功的为准，另一个请求随即取消。
+ * 所有尝试受总截止时间约束，在派发线程或平台发送线程中执行，不占用业务线程。
+ * webHook 推送不是幂等的，取消只能中断尚未发出的请求，已发出的请求仍会送达，
+ * 对冲可能导致同一条预警在群里出现两次
+ * @author HiF
+ * @date 2026/10/18 22:20
+ */
+@Slf4j
+public class AlarmSendRetrier {
+
+    private final AlarmNoticeProperty.Retry retry;
+
+    /**
+     * 对冲请求的线程，无队列，线程用尽时不再对冲
+     */
+    private final ThreadPoolExecutor hedgeExecutor;
+
+    @Autowired(required = false)
+    AlarmMetrics alarmMetrics;
+
+    public AlarmSendRetrier(AlarmNoticeProperty.Retry retry) {
+        this.retry = retry;
+        AtomicInteger index = new AtomicInteger(0);
+        this.hedgeExecutor = new ThreadPoolExecutor(0, Math.max(2, retry.getMaxHedgeThreads()), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "alarm-hedge-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public void shutdown() {
+        hedgeExecutor.shutdownNow();
+    }
+
+    /**
+     * 发送并按策略重试
+     *
+     * @param tokens         取令牌，参数为需要避开的令牌
+     * @param poster         用指定令牌发送一次
+     * @param hedgeDelayNanos 对冲延迟，小于等于 0 表示不对冲
+     * @return 最后一次尝试的结果
+     */
+    public AlarmSendResult.ChannelResult send(TokenSource tokens, Poster poster, long hedgeDelayNanos) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(retry.getDeadlineMillis());
+        int maxAttempts = Math.max(1, retry.getMaxAttempts());
+        String lastToken = null;
+        AlarmSendResult.ChannelResult last = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            String token;
+            try {
+                token = tokens.acquire(lastToken);
+            } catch (AlarmTokenExhaustedException e) {
+                return null == last ? AlarmSendResult.ChannelResult.exhausted(e.getWaitNanos()) : last;
+            }
+            Outcome outcome = hedgeDelayNanos > 0
+                    ? hedged(tokens, poster, token, hedgeDelayNanos, deadline)
+                    : once(poster, token);
+            last = outcome.toChannelResult(elapsedMillis(start));
+            if (!outcome.isRetryable() || attempt == maxAttempts) {
+                return last;
+            }
+            long backoff = backoffNanos(attempt);
+            if (System.nanoTime() + backoff - deadline >= 0) {
+                return last;
+            }
+            log.info("预警发送失败 {} 毫秒后第 {} 次重试 {}", TimeUnit.NANOSECONDS.toMillis(backoff), attempt, last);
+            if (null != alarmMetrics) {
+                alarmMetrics.onRetry();
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return last;
+            }
+            lastToken = outcome.token;
+        }
+        return last;
+    }
+
+    /**
+     * 指数退避加抖动：在 [0, min(最大退避, 初始退避 * 2^(n-1))] 内随机
+     */
+    private long backoffNanos(int attempt) {
+        long base = TimeUnit.MILLISECONDS.toNanos(Math.max(1, retry.getInitialBackoffMillis()));
+        long cap = TimeUnit.MILLISECONDS.toNanos(Math.max(1, retry.getMaxBackoffMillis()));
+        long exp = attempt >= 31 ? cap : Math.min(cap, base << (attempt - 1));
+        return ThreadLocalRandom.current().nextLong(exp + 1);
+    }
+
+    private static Outcome once(Poster poster, String token) {
+        try {
+            return new Outcome(token, poster.post(token), null);
+        } catch (Exception e) {
+            return new Outcome(token, null, e);
+        }
+    }
+
+    /**
+     * 首个请求超过对冲延迟未返回时用另一个令牌再发一次。
+     * 返回前取消所有未完成的请求(成功后的另一个请求、截止时间后仍未返回的请求)，
+     * 但已经发出的请求无法撤回，两次发送都可能送达，预警会重复出现
+     */
+    private Outcome hedged(TokenSource tokens, Poster poster, String token, long hedgeDelayNanos, long deadline) {
+        CompletionService<Outcome> completion = new ExecutorCompletionService<>(hedgeExecutor);
+        List<Future<Outcome>> futures = new ArrayList<>(2);
+        try {
+            futures.add(completion.submit(() -> once(poster, token)));
+        } catch (RuntimeException e) {
+            // 对冲线程用尽，直接在当前线程发送
+            return once(poster, token);
+        }
+        int pending = 1;
+        Outcome first = null;
+        try {
+            Future<Outcome> done = completion.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            if (null != done) {
+                return done.get();
+            }
+            if (submitHedge(completion, futures, tokens, poster, token)) {
+                pending++;
+                log.info("预警发送超过 {} 毫秒未返回 对冲发送", TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos));
+            }
+            while (pending > 0) {
+                long remaining = deadline - System.nanoTime();
+                done = completion.poll(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                if (null == done) {
+                    break;
+                }
+                pending--;
+                Outcome outcome = done.get();
+                if (null == first || outcome.isSuccess()) {
+                    first = outcome;
+                }
+                if (outcome.isSuccess()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            return new Outcome(token, null, e);
+        } finally {
+            for (Future<Outcome> future : futures) {
+                future.cancel(true);
+            }
+        }
+        if (null == first) {
+            return new Outcome(token, null, new TimeoutException("预警发送超过截止时间"));
+        }
+        return first;
+    }
+
+    /**
+     * 有其他可用令牌时提交对冲请求，取到的令牌未能使用时归还额度
+     *
+     * @return 是否提交了对冲请求
+     */
+    private boolean submitHedge(CompletionService<Outcome> completion, List<Future<Outcome>> futures,
+                                TokenSource tokens, Poster poster, String token) {
+        if (!tokens.hasAlternative(token)) {
+            // 只有一个令牌时不取令牌，避免占用额度
+            return false;
+        }
+        String hedgeToken;
+        try {
+            hedgeToken = tokens.acquire(token);
+        } catch (AlarmTokenExhaustedException e) {
+            return false;
+        }
+        if (hedgeToken.equals(token)) {
+            tokens.release(hedgeToken);
+            return false;
+        }
+        try {
+            futures.add(completion.submit(() -> once(poster, hedgeToken)));
+        } catch (RejectedExecutionException e) {
+            tokens.release(hedgeToken);
+            return false;
+        }
+        if (null != alarmMetrics) {
+            alarmMetrics.onHedge();
+        }
+        return true;
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * 取令牌
+     */
+    @FunctionalInterface
+    public interface TokenSource {
+
+        /**
+         * @param exclude 尽量避开的令牌，可为 null
+         * @throws AlarmTokenExhaustedException 没有可用令牌
+         */
+        String acquire(String exclude);
+
+        /**
+         * 除 exclude 外是否还有可用令牌，不占用额度
+         */
+        default boolean hasAlternative(String exclude) {
+            return true;
+        }
+
+        /**
+         * 归还 acquire 取到但未使用的令牌
+         */
+        default void release(String token) {
+        }
+    }
+
+    /**
+     * 用指定令牌发送一次
+     */
+    @FunctionalInterface
+    public interface Poster {
+
+        AlarmResult post(String token) throws Exception;
+    }
+
+    private static class Outcome {
+
+        private final String token;
+
+        private final AlarmResult result;
+
+        private final Exception error;
+
+        Outcome(String token, AlarmResult result, Exception error) {
+            this.token = token;
+            this.result = result;
+            this.error = error;
+        }
+
+        boolean isSuccess() {
+            return null != result && result.isSuccess();
+        }
+
+        /**
+         * 异常只有请求发出前失败才重试，避免重复推送
+         */
+        boolean isRetryable() {
+            if (null != error) {
+                return AlarmHttpConnectException.isConnectFailure(error);
+            }
+            return null != result && result.isRetryable();
+        }
+
+        AlarmSendResult.ChannelResult toChannelResult(long latencyMillis) {
+            return null != error ? AlarmSendResult.ChannelResult.failure(error, latencyMillis)
+                    : AlarmSendResult.ChannelResult.of(result, latencyMillis);
+        }
+    }
+}
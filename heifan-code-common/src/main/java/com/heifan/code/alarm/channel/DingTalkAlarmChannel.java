@@ -0,0 +1,47 @@
+package com.heifan.code.alarm.channel;
+
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.dto.AlarmDigest;
+import com.heifan.code.alarm.dto.ExceptionNotice;
+import com.heifan.code.alarm.dto.NoticeText;
+
+/**
+ * @description 钉钉
+ * @author HiF
+ * @date 2026/10/18 18:24
+ */
+public class DingTalkAlarmChannel extends AbstractAlarmChannel {
+
+    private static final String DD_ULR = "https://oapi.dingtalk.com/robot/send?access_token=%s";
+
+    public DingTalkAlarmChannel() {
+        this(null);
+    }
+
+    /**
+     * @param url webHook 地址模板，%s 为令牌，为空时使用官方地址
+     */
+    public DingTalkAlarmChannel(String url) {
+        super(null == url || url.isEmpty() ? DD_ULR : url);
+    }
+
+    @Override
+    public AlarmNoticeEnum type() {
+        return AlarmNoticeEnum.DD;
+    }
+
+    @Override
+    protected String render(ExceptionNotice exceptionNotice) {
+        return exceptionNotice.createDingDingText();
+    }
+
+    @Override
+    protected String render(AlarmDigest digest) {
+        return digest.createDingDingText();
+    }
+
+    @Override
+    protected Object wrap(String text, String[] blamedFor) {
+        return new NoticeText.DingTalkText(text, blamedFor);
+    }
+}
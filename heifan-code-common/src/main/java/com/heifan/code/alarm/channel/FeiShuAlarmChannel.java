@@ -0,0 +1,47 @@
+package com.heifan.code.alarm.channel;
+
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.dto.AlarmDigest;
+import com.heifan.code.alarm.dto.ExceptionNotice;
+import com.heifan.code.alarm.dto.NoticeText;
+
+/**
+ * @description 飞书
+ * @author HiF
+ * @date 2026/10/18 18:26
+ */
+public class FeiShuAlarmChannel extends AbstractAlarmChannel {
+
+    private static final String FS_URL = "https://open.feishu.cn/open-apis/bot/v2/hook/%s";
+
+    public FeiShuAlarmChannel() {
+        this(null);
+    }
+
+    /**
+     * @param url webHook 地址模板，%s 为令牌，为空时使用官方地址
+     */
+    public FeiShuAlarmChannel(String url) {
+        super(null == url || url.isEmpty() ? FS_URL : url);
+    }
+
+    @Override
+    public AlarmNoticeEnum type() {
+        return AlarmNoticeEnum.FS;
+    }
+
+    @Override
+    protected String render(ExceptionNotice exceptionNotice) {
+        return exceptionNotice.createFeiShuText();
+    }
+
+    @Override
+    protected String render(AlarmDigest digest) {
+        return digest.createFeiShuText();
+    }
+
+    @Override
+    protected Object wrap(String text, String[] blamedFor) {
+        return new NoticeText.FeiShuText(text, blamedFor);
+    }
+}
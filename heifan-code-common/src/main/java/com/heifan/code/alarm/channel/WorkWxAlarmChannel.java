@@ -0,0 +1,47 @@
+package com.heifan.code.alarm.channel;
+
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.dto.AlarmDigest;
+import com.heifan.code.alarm.dto.ExceptionNotice;
+import com.heifan.code.alarm.dto.NoticeText;
+
+/**
+ * @description 企业微信
+ * @author HiF
+ * @date 2026/10/18 18:25
+ */
+public class WorkWxAlarmChannel extends AbstractAlarmChannel {
+
+    private static final String WX_URL = "https://qyapi.weixin.qq.com/cgi-bin/webhook/send?key=%s";
+
+    public WorkWxAlarmChannel() {
+        this(null);
+    }
+
+    /**
+     * @param url webHook 地址模板，%s 为令牌，为空时使用官方地址
+     */
+    public WorkWxAlarmChannel(String url) {
+        super(null == url || url.isEmpty() ? WX_URL : url);
+    }
+
+    @Override
+    public AlarmNoticeEnum type() {
+        return AlarmNoticeEnum.WX;
+    }
+
+    @Override
+    protected String render(ExceptionNotice exceptionNotice) {
+        return exceptionNotice.createWorkWxText();
+    }
+
+    @Override
+    protected String render(AlarmDigest digest) {
+        return digest.createWorkWxText();
+    }
+
+    @Override
+    protected Object wrap(String text, String[] blamedFor) {
+        return new NoticeText.WeChatText(text, blamedFor);
+    }
+}
@@ -0,0 +1,32 @@
+package com.heifan.code.alarm.client;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * @description 请求发出前失败：排队超时、建立连接或 TLS 握手失败。
+ * 这类失败 webHook 一定没有收到消息，可以安全地重试或补发；请求发出后的读超时等异常不属于此类
+ * @author HiF
+ * @date 2026/10/19 2:30
+ */
+public class AlarmHttpConnectException extends UncheckedIOException {
+
+    public AlarmHttpConnectException(String message, IOException cause) {
+        super(message, cause);
+    }
+
+    /**
+     * 异常链中是否有请求发出前的失败
+     */
+    public static boolean isConnectFailure(Throwable throwable) {
+        for (Throwable current = throwable; null != current; current = current.getCause()) {
+            if (current instanceof AlarmHttpConnectException) {
+                return true;
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return false;
+    }
+}
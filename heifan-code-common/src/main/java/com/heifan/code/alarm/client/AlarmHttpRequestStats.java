@@ -0,0 +1,36 @@
+package com.heifan.code.alarm.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @description 预警请求并发状态，按请求计数，不是连接数；JDK 连接缓存中的空闲连接数无法获取
+ * @author HiF
+ * @date 2026/10/18 14:32
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AlarmHttpRequestStats {
+
+    /**
+     * 正在进行的请求数
+     */
+    private int leased;
+
+    /**
+     * 剩余可用的并发请求数
+     */
+    private int available;
+
+    /**
+     * 排队等待的请求数
+     */
+    private int pending;
+
+    /**
+     * 最大并发请求数
+     */
+    private int max;
+}
@@ -0,0 +1,49 @@
+package com.heifan.code.alarm.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * @description 预警 HTTP 传输层，可替换实现
+ * @author HiF
+ * @date 2026/10/18 14:30
+ */
+public interface AlarmHttpTransport {
+
+    /**
+     * 发送 POST 请求
+     *
+     * @param url     请求URL
+     * @param body    请求体
+     * @param headers 请求头
+     * @return 响应体
+     */
+    String post(String url, String body, Map<String, String> headers);
+
+    /**
+     * 发送 POST 请求，请求体为已编码的 UTF-8 字节
+     *
+     * @param url     请求URL
+     * @param body    请求体缓冲
+     * @param length  请求体长度
+     * @param headers 请求头
+     * @return 响应体
+     */
+    default String post(String url, byte[] body, int length, Map<String, String> headers) {
+        return post(url, new String(body, 0, length, StandardCharsets.UTF_8), headers);
+    }
+
+    /**
+     * 发送 GET 请求
+     *
+     * @param url     请求URL
+     * @param headers 请求头
+     * @return 响应体
+     */
+    String get(String url, Map<String, String> headers);
+
+    /**
+     * 请求并发状态
+     */
+    AlarmHttpRequestStats requestStats();
+}
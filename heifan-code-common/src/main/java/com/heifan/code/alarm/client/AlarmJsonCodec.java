@@ -0,0 +1,401 @@
+package com.heifan.code.alarm.client;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.heifan.code.alarm.dto.AlarmResult;
+import com.heifan.code.alarm.dto.NoticeText;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @description 预警消息的 JSON 编解码，线程安全。
+ * NoticeText 三种消息体与 AlarmResult 使用手写的 TypeAdapter，不走反射；
+ * 编码结果写入线程内复用的字节缓冲，直接交给传输层发送
+ * @author HiF
+ * @date 2026/10/18 17:10
+ */
+public final class AlarmJsonCodec {
+
+    private static final int MAX_RETAINED_BYTES = 64 * 1024;
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(NoticeText.FeiShuText.class, new FeiShuTextAdapter())
+            .registerTypeAdapter(NoticeText.WeChatText.class, new WeChatTextAdapter())
+            .registerTypeAdapter(NoticeText.DingTalkText.class, new DingTalkTextAdapter())
+            .registerTypeAdapter(AlarmResult.class, new AlarmResultAdapter())
+            .disableHtmlEscaping()
+            .create();
+
+    private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+    private AlarmJsonCodec() {
+    }
+
+    public static Gson gson() {
+        return GSON;
+    }
+
+    /**
+     * 编码到当前线程的复用缓冲，返回的缓冲在同一线程下一次编码前有效
+     *
+     * @param value 消息体
+     * @return UTF-8 编码的 JSON
+     */
+    public static Buffer encode(Object value) {
+        Buffer buffer = BUFFER.get();
+        buffer.reset();
+        try {
+            GSON.toJson(value, value.getClass(), GSON.newJsonWriter(buffer.writer));
+            buffer.writer.flush();
+        } catch (IOException e) {
+            // 编码器里可能残留半条消息，丢弃整个缓冲
+            BUFFER.remove();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            BUFFER.remove();
+            throw e;
+        }
+        if (buffer.capacity() > MAX_RETAINED_BYTES) {
+            // 偶发的大消息不长期占用线程内存
+            BUFFER.remove();
+        }
+        return buffer;
+    }
+
+    public static String toJson(Object value) {
+        return GSON.toJson(value);
+    }
+
+    public static <T> T fromJson(String json, Class<T> clazz) {
+        return GSON.fromJson(json, clazz);
+    }
+
+    /**
+     * 延迟编码，只在日志真正输出时调用 toString
+     *
+     * @param value 消息体
+     * @return 日志参数
+     */
+    public static Object lazy(Object value) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return toJson(value);
+            }
+        };
+    }
+
+    /**
+     * 可直接读取内部数组的字节缓冲，UTF-8 编码器随缓冲复用
+     */
+    public static final class Buffer extends ByteArrayOutputStream {
+
+        private final OutputStreamWriter writer = new OutputStreamWriter(this, StandardCharsets.UTF_8);
+
+        Buffer() {
+            super(1024);
+        }
+
+        public byte[] array() {
+            return buf;
+        }
+
+        public int length() {
+            return count;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        public String asString() {
+            return new String(buf, 0, count, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void writeStrings(JsonWriter out, String name, String[] values) throws IOException {
+        if (null == values) {
+            return;
+        }
+        out.name(name).beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    private static String[] readStrings(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String[] values = new String[4];
+        int size = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = in.peek() == JsonToken.NULL ? nextNull(in) : in.nextString();
+        }
+        in.endArray();
+        return Arrays.copyOf(values, size);
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        return in.peek() == JsonToken.NULL ? nextNull(in) : in.nextString();
+    }
+
+    private static String nextNull(JsonReader in) throws IOException {
+        in.nextNull();
+        return null;
+    }
+
+    private static class FeiShuTextAdapter extends TypeAdapter<NoticeText.FeiShuText> {
+
+        @Override
+        public void write(JsonWriter out, NoticeText.FeiShuText value) throws IOException {
+            if (null == value) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("msg_type").value(value.getMsg_type());
+            if (null != value.getContent()) {
+                out.name("content").beginObject().name("text").value(value.getContent().getText()).endObject();
+            }
+            writeStrings(out, "atMobiles", value.getAtMobiles());
+            out.endObject();
+        }
+
+        @Override
+        public NoticeText.FeiShuText read(JsonReader in) throws IOException {
+            String msgType = null;
+            String text = null;
+            String[] atMobiles = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "msg_type":
+                        msgType = nextString(in);
+                        break;
+                    case "content":
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            if ("text".equals(in.nextName())) {
+                                text = nextString(in);
+                            } else {
+                                in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        break;
+                    case "atMobiles":
+                        atMobiles = readStrings(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            NoticeText.FeiShuText feiShuText = new NoticeText.FeiShuText(text, atMobiles);
+            if (null != msgType) {
+                feiShuText.setMsg_type(msgType);
+            }
+            return feiShuText;
+        }
+    }
+
+    private static class WeChatTextAdapter extends TypeAdapter<NoticeText.WeChatText> {
+
+        @Override
+        public void write(JsonWriter out, NoticeText.WeChatText value) throws IOException {
+            if (null == value) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("msgtype").value(value.getMsgtype());
+            if (null != value.getMarkdown()) {
+                out.name("markdown").beginObject().name("content").value(value.getMarkdown().getContent()).endObject();
+            }
+            writeStrings(out, "mentioned_mobile_list", value.getMentioned_mobile_list());
+            out.endObject();
+        }
+
+        @Override
+        public NoticeText.WeChatText read(JsonReader in) throws IOException {
+            String msgType = null;
+            String content = null;
+            String[] mobiles = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "msgtype":
+                        msgType = nextString(in);
+                        break;
+                    case "markdown":
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            if ("content".equals(in.nextName())) {
+                                content = nextString(in);
+                            } else {
+                                in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        break;
+                    case "mentioned_mobile_list":
+                        mobiles = readStrings(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            NoticeText.WeChatText weChatText = new NoticeText.WeChatText(content, mobiles);
+            if (null != msgType) {
+                weChatText.setMsgtype(msgType);
+            }
+            return weChatText;
+        }
+    }
+
+    private static class DingTalkTextAdapter extends TypeAdapter<NoticeText.DingTalkText> {
+
+        @Override
+        public void write(JsonWriter out, NoticeText.DingTalkText value) throws IOException {
+            if (null == value) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("msgtype").value(value.getMsgtype());
+            NoticeText.DingTalkText.DingTalkMarkDownText markdown = value.getMarkdown();
+            if (null != markdown) {
+                out.name("markdown").beginObject();
+                if (null != markdown.getTitle()) {
+                    out.name("title").value(markdown.getTitle());
+                }
+                if (null != markdown.getText()) {
+                    out.name("text").value(markdown.getText());
+                }
+                out.endObject();
+            }
+            writeStrings(out, "atMobiles", value.getAtMobiles());
+            out.endObject();
+        }
+
+        @Override
+        public NoticeText.DingTalkText read(JsonReader in) throws IOException {
+            String msgType = null;
+            String title = null;
+            String text = null;
+            String[] atMobiles = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "msgtype":
+                        msgType = nextString(in);
+                        break;
+                    case "markdown":
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            String name = in.nextName();
+                            if ("title".equals(name)) {
+                                title = nextString(in);
+                            } else if ("text".equals(name)) {
+                                text = nextString(in);
+                            } else {
+                                in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        break;
+                    case "atMobiles":
+                        atMobiles = readStrings(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            NoticeText.DingTalkText dingTalkText = new NoticeText.DingTalkText(text, atMobiles);
+            if (null != msgType) {
+                dingTalkText.setMsgtype(msgType);
+            }
+            if (null != title) {
+                dingTalkText.getMarkdown().setTitle(title);
+            }
+            return dingTalkText;
+        }
+    }
+
+    private static class AlarmResultAdapter extends TypeAdapter<AlarmResult> {
+
+        @Override
+        public void write(JsonWriter out, AlarmResult value) throws IOException {
+            if (null == value) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("errcode").value(value.getErrcode());
+            if (null != value.getErrmsg()) {
+                out.name("errmsg").value(value.getErrmsg());
+            }
+            out.name("code").value(value.getCode());
+            if (null != value.getMsg()) {
+                out.name("msg").value(value.getMsg());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public AlarmResult read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            AlarmResult result = new AlarmResult();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "errcode":
+                        result.setErrcode(nextInt(in));
+                        break;
+                    case "errmsg":
+                        result.setErrmsg(nextString(in));
+                        break;
+                    case "code":
+                        result.setCode(nextInt(in));
+                        break;
+                    case "msg":
+                        result.setMsg(nextString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return result;
+        }
+
+        private static int nextInt(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return 0;
+            }
+            return in.nextInt();
+        }
+    }
+}
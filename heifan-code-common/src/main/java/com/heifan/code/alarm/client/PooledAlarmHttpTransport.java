@@ -0,0 +1,197 @@
+package com.heifan.code.alarm.client;
+
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @description 复用长连接的预警 HTTP 传输，基于 JDK HttpURLConnection 的 keep-alive 连接缓存，
+ * 响应体读完后连接归还缓存，每个 host 缓存的连接数沿用 JVM 的 http.maxConnections；
+ * 所有请求共用一个私有 SSLContext 以复用 TLS 会话，不修改 JVM 默认的 SSLContext。
+ * 并发请求数受 maxTotal 限制，连接、读取、整体超时分别可配，整体超时到达时断开连接
+ * @author HiF
+ * @date 2026/10/18 14:40
+ */
+@Slf4j
+public class PooledAlarmHttpTransport implements AlarmHttpTransport, Closeable {
+
+    private final SSLSocketFactory sslSocketFactory;
+
+    private final int connectTimeoutMillis;
+
+    private final int readTimeoutMillis;
+
+    private final long totalTimeoutMillis;
+
+    private final int maxTotal;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger leased = new AtomicInteger(0);
+
+    private final AtomicInteger pending = new AtomicInteger(0);
+
+    private final ScheduledExecutorService abortTimer;
+
+    public PooledAlarmHttpTransport(AlarmNoticeProperty.Http http) {
+        SSLContext sslContext;
+        try {
+            sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            throw new IllegalStateException("预警 TLS 初始化失败", e);
+        }
+        // 同一个 SSLContext 内按 host:port 缓存 TLS 会话，新建连接时走会话复用的简化握手
+        sslContext.getClientSessionContext().setSessionTimeout((int) http.getTlsSessionTimeoutSeconds());
+        this.sslSocketFactory = sslContext.getSocketFactory();
+        this.connectTimeoutMillis = (int) http.getConnectTimeoutMillis();
+        this.readTimeoutMillis = (int) http.getReadTimeoutMillis();
+        this.totalTimeoutMillis = http.getTotalTimeoutMillis();
+        this.maxTotal = Math.max(1, http.getMaxTotal());
+        this.permits = new Semaphore(maxTotal);
+        this.abortTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alarm-http-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String post(String url, String body, Map<String, String> headers) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return execute("POST", url, bytes, bytes.length, headers);
+    }
+
+    @Override
+    public String post(String url, byte[] body, int length, Map<String, String> headers) {
+        return execute("POST", url, body, length, headers);
+    }
+
+    @Override
+    public String get(String url, Map<String, String> headers) {
+        return execute("GET", url, null, 0, headers);
+    }
+
+    @Override
+    public AlarmHttpRequestStats requestStats() {
+        int inUse = leased.get();
+        return new AlarmHttpRequestStats(inUse, Math.max(0, maxTotal - inUse), pending.get(), maxTotal);
+    }
+
+    @Override
+    public void close() {
+        abortTimer.shutdownNow();
+    }
+
+    private String execute(String method, String url, byte[] body, int length, Map<String, String> headers) {
+        acquire();
+        HttpURLConnection connection = null;
+        ScheduledFuture<?> abort = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            if (connection instanceof HttpsURLConnection) {
+                ((HttpsURLConnection) connection).setSSLSocketFactory(sslSocketFactory);
+            }
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            connection.setUseCaches(false);
+            if (null != headers) {
+                headers.forEach(connection::setRequestProperty);
+            }
+            if (totalTimeoutMillis > 0) {
+                HttpURLConnection target = connection;
+                abort = abortTimer.schedule(target::disconnect, totalTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            if (null != body) {
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(length);
+            }
+            try {
+                connection.connect();
+            } catch (IOException e) {
+                throw new AlarmHttpConnectException("预警请求连接失败 " + connection.getURL().getHost(), e);
+            }
+            if (null != body) {
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body, 0, length);
+                }
+            }
+            int status = connection.getResponseCode();
+            InputStream in = status >= HttpURLConnection.HTTP_BAD_REQUEST
+                    ? connection.getErrorStream() : connection.getInputStream();
+            // 读完并关闭响应体连接才会归还缓存复用，不能调用 disconnect
+            return null == in ? "" : readFully(in);
+        } catch (IOException e) {
+            String host = null == connection ? url : connection.getURL().getHost();
+            if (null != abort && abort.isDone() && !abort.isCancelled()) {
+                // 整体超时断开连接导致的异常按超时处理
+                SocketTimeoutException timeout = new SocketTimeoutException("超过整体超时 " + totalTimeoutMillis + " ms");
+                timeout.initCause(e);
+                throw new UncheckedIOException("预警请求超时 " + host, timeout);
+            }
+            throw new UncheckedIOException("预警请求失败 " + host, e);
+        } finally {
+            if (null != abort) {
+                abort.cancel(false);
+            }
+            release();
+        }
+    }
+
+    private void acquire() {
+        pending.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(connectTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new AlarmHttpConnectException("预警请求排队超时",
+                        new IOException("并发已达 " + maxTotal));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AlarmHttpConnectException("预警请求排队被中断", new InterruptedIOException());
+        } finally {
+            pending.decrementAndGet();
+        }
+        leased.incrementAndGet();
+    }
+
+    private void release() {
+        leased.decrementAndGet();
+        permits.release();
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,11 +1,10 @@
 package com.heifan.code.alarm.client;
 
 import cn.hutool.http.Header;
-import cn.hutool.http.HttpResponse;
-import cn.hutool.http.HttpUtil;
-import com.google.gson.Gson;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,14 +13,35 @@ public class SimpleHttpClient {
 
     private static final String DEFAULT_CONTENT_TYPE = "application/json; charset=utf-8";
 
+    private static volatile AlarmHttpTransport transport;
+
+    /**
+     * 替换底层传输，预警模块启动时按配置注入连接池
+     *
+     * @param httpTransport 传输实现
+     */
+    public static void setTransport(AlarmHttpTransport httpTransport) {
+        transport = httpTransport;
+    }
+
+    public static AlarmHttpTransport getTransport() {
+        AlarmHttpTransport current = transport;
+        if (null == current) {
+            synchronized (SimpleHttpClient.class) {
+                current = transport;
+                if (null == current) {
+                    current = new PooledAlarmHttpTransport(new AlarmNoticeProperty.Http());
+                    transport = current;
+                }
+            }
+        }
+        return current;
+    }
+
     public static <K> String doPost(String url, K jsonParam, Map<String, String> headers) {
         if (jsonParam != null) {
-            Gson gson = new Gson();
-            String jsonStr = gson.toJson(jsonParam);
-            HttpResponse response = HttpUtil.createPost(url)
-                    .header(Header.CONTENT_TYPE, headers.get(Header.CONTENT_TYPE.getValue()))
-                    .body(jsonStr).timeout(20000).executeAsync();
-            return response.body();
+            AlarmJsonCodec.Buffer body = AlarmJsonCodec.encode(jsonParam);
+            return getTransport().post(url, body.array(), body.length(), headers);
         }
         return "";
 
@@ -34,8 +54,7 @@ public class SimpleHttpClient {
      * @return 请求结果
      */
     public static String getHttp(String url) {
-        Gson gson = new Gson();
-        return HttpUtil.get(url);
+        return getTransport().get(url, Collections.emptyMap());
     }
 
     /**
@@ -45,11 +64,7 @@ public class SimpleHttpClient {
      * @return 请求结果
      */
     public static String getHttp(String url, String authorization) {
-        HttpUtil.get(url);
-        HttpResponse response = HttpUtil.createGet(url)
-                .header(Header.AUTHORIZATION, authorization)
-                .executeAsync();
-        return response.body();
+        return getTransport().get(url, Collections.singletonMap(Header.AUTHORIZATION.getValue(), authorization));
     }
 
     public static <T, K> T post(String url, K jsonParam, Class<T> clazz) {
@@ -63,8 +78,7 @@ public class SimpleHttpClient {
             header.put(Header.CONTENT_TYPE.toString(), DEFAULT_CONTENT_TYPE);
         }
         json = doPost(url, jsonParam, header);
-        Gson gson = new Gson();
-        T res = json == null ? null : gson.fromJson(json, clazz);
+        T res = json == null ? null : AlarmJsonCodec.fromJson(json, clazz);
         return res;
     }
 
@@ -0,0 +1,153 @@
+package com.heifan.code.alarm.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @description 预警汇总，一个刷新周期内的异常按 工程名 + 类路径 + 方法名 合并计数
+ * @author HiF
+ * @date 2026/10/18 15:20
+ */
+@Data
+public class AlarmDigest {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /**
+     * 异常信息最多展示的长度
+     */
+    private static final int MESSAGE_LIMIT = 200;
+
+    /**
+     * 汇总开始时间
+     */
+    private long startTime;
+
+    /**
+     * 汇总结束时间
+     */
+    private long endTime;
+
+    /**
+     * 汇总项
+     */
+    private List<Item> items = new ArrayList<>();
+
+    public long total() {
+        long total = 0;
+        for (Item item : items) {
+            total += item.getCount();
+        }
+        return total;
+    }
+
+    public String createDingDingText() {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("## 告警汇总").append("\n");
+        stringBuilder.append("### 时间：").append("\n")
+                .append("> ").append(timeRange()).append(" 共 ").append(total()).append(" 次").append("\n");
+        stringBuilder.append(" --- ").append("\n");
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            stringBuilder.append(i + 1).append(". **").append(item.getProject()).append(" ")
+                    .append(item.getClassPath()).append("#").append(item.getMethodName())
+                    .append("** x").append(item.getCount()).append("\n")
+                    .append("> ").append(item.getExceptionMessage()).append("\n\n");
+        }
+        return stringBuilder.toString();
+    }
+
+    public String createWorkWxText() {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("### 告警汇总\n");
+        stringBuilder.append(">时间：").append(timeRange()).append(" 共 ").append(total()).append(" 次\n");
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            stringBuilder.append(i + 1).append(". ").append(item.getProject()).append(" ")
+                    .append(item.getClassPath()).append("#").append(item.getMethodName())
+                    .append(" <font color=\"warning\">x").append(item.getCount()).append("</font>\n")
+                    .append(">").append(item.getExceptionMessage()).append("\n");
+        }
+        return stringBuilder.toString();
+    }
+
+    public String createFeiShuText() {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("告警汇总\n");
+        stringBuilder.append("时间：").append(timeRange()).append(" 共 ").append(total()).append(" 次\n");
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            stringBuilder.append(i + 1).append(". ").append(item.getProject()).append(" ")
+                    .append(item.getClassPath()).append("#").append(item.getMethodName())
+                    .append(" x").append(item.getCount()).append("\n")
+                    .append("    ").append(item.getExceptionMessage()).append("\n");
+        }
+        return stringBuilder.toString();
+    }
+
+    private String timeRange() {
+        return format(startTime) + " ~ " + format(endTime);
+    }
+
+    private static String format(long time) {
+        return TIME_FORMATTER.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()));
+    }
+
+    /**
+     * 汇总项
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Item {
+
+        private String project;
+
+        private String classPath;
+
+        private String methodName;
+
+        /**
+         * 异常信息首行
+         */
+        private String exceptionMessage;
+
+        private long count;
+
+        public Item(ExceptionNotice notice, long count) {
+            this.project = notice.getProject();
+            this.classPath = notice.getClassPath();
+            this.methodName = notice.getMethodName();
+            this.exceptionMessage = firstLine(notice.getExceptionMessage());
+            this.count = count;
+        }
+
+        /**
+         * 渲染后的大致长度，用于控制单条消息大小
+         */
+        public int estimateLength() {
+            return 32 + length(project) + length(classPath) + length(methodName) + length(exceptionMessage);
+        }
+
+        private static int length(String value) {
+            return null == value ? 4 : value.length();
+        }
+
+        private static String firstLine(String message) {
+            if (null == message) {
+                return "";
+            }
+            int cr = message.indexOf('\r');
+            int lf = message.indexOf('\n');
+            int end = cr < 0 ? lf : (lf < 0 ? cr : Math.min(cr, lf));
+            String line = end < 0 ? message : message.substring(0, end);
+            return line.length() > MESSAGE_LIMIT ? line.substring(0, MESSAGE_LIMIT) + "..." : line;
+        }
+    }
+}
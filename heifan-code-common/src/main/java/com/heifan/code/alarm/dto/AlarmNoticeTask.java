@@ -0,0 +1,113 @@
+package com.heifan.code.alarm.dto;
+
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description 待派发的预警任务，记录入队时间
+ * @author HiF
+ * @date 2026/10/18 9:15
+ */
+@Getter
+@ToString
+public class AlarmNoticeTask {
+
+    /**
+     * 异常通知
+     */
+    private final ExceptionNotice exceptionNotice;
+
+    /**
+     * 服务通知
+     */
+    private final ServiceNotice serviceNotice;
+
+    /**
+     * 汇总通知
+     */
+    private final AlarmDigest digest;
+
+    /**
+     * 文本通知
+     */
+    private final String content;
+
+    /**
+     * 通知人
+     */
+    private final String[] blamedFor;
+
+    /**
+     * 发送的平台，null 表示所有配置的平台
+     */
+    private final List<AlarmNoticeEnum> channels;
+
+    /**
+     * 入队时间(毫秒)
+     */
+    private final long enqueueTime;
+
+    /**
+     * 入队时间(纳秒)，用于计算排队耗时
+     */
+    private final long enqueueNanos;
+
+    private AlarmNoticeTask(ExceptionNotice exceptionNotice, ServiceNotice serviceNotice, AlarmDigest digest,
+                            String content, String[] blamedFor, List<AlarmNoticeEnum> channels) {
+        this.exceptionNotice = exceptionNotice;
+        this.serviceNotice = serviceNotice;
+        this.digest = digest;
+        this.content = content;
+        this.blamedFor = blamedFor;
+        this.channels = channels;
+        this.enqueueTime = System.currentTimeMillis();
+        this.enqueueNanos = System.nanoTime();
+    }
+
+    public static AlarmNoticeTask of(ExceptionNotice exceptionNotice, String... blamedFor) {
+        return new AlarmNoticeTask(exceptionNotice, null, null, null, blamedFor, null);
+    }
+
+    public static AlarmNoticeTask of(ServiceNotice serviceNotice, String... blamedFor) {
+        return new AlarmNoticeTask(null, serviceNotice, null, null, blamedFor, null);
+    }
+
+    public static AlarmNoticeTask of(AlarmDigest digest, String... blamedFor) {
+        return new AlarmNoticeTask(null, null, digest, null, blamedFor, null);
+    }
+
+    public static AlarmNoticeTask ofText(String content, String... blamedFor) {
+        return new AlarmNoticeTask(null, null, null, content, blamedFor, null);
+    }
+
+    /**
+     * 同样的内容只发送到指定平台，用于部分平台失败后的重发
+     *
+     * @param targets 平台
+     * @return 新任务
+     */
+    public AlarmNoticeTask withChannels(List<AlarmNoticeEnum> targets) {
+        return new AlarmNoticeTask(exceptionNotice, serviceNotice, digest, content, blamedFor, targets);
+    }
+
+    /**
+     * 替换异常通知，用于带上集群累计次数
+     *
+     * @param notice 异常通知
+     * @return 新任务
+     */
+    public AlarmNoticeTask withExceptionNotice(ExceptionNotice notice) {
+        return new AlarmNoticeTask(notice, serviceNotice, digest, content, blamedFor, channels);
+    }
+
+    /**
+     * 排队耗时(毫秒)
+     */
+    public long waitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueueNanos);
+    }
+}
@@ -4,12 +4,55 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class AlarmResult {
 
+	/**
+	 * 平台限流错误码：钉钉 130101，企业微信 45009，飞书 9499 / 11232
+	 */
+	private static final Set<Integer> RATE_LIMIT_CODES = new HashSet<>(Arrays.asList(130101, 45009, 9499, 11232));
+
+	/**
+	 * 平台繁忙的错误码：钉钉、企业微信 -1 系统繁忙
+	 */
+	private static final Set<Integer> BUSY_CODES = new HashSet<>(Arrays.asList(-1));
+
+	/**
+	 * 钉钉、企业微信返回码
+	 */
 	private int errcode;
 	private String errmsg;
 
+	/**
+	 * 飞书返回码
+	 */
+	private int code;
+	private String msg;
+
+	public AlarmResult(int errcode, String errmsg) {
+		this.errcode = errcode;
+		this.errmsg = errmsg;
+	}
+
+	public boolean isSuccess() {
+		return errcode == 0 && code == 0;
+	}
+
+	public boolean isRateLimited() {
+		return RATE_LIMIT_CODES.contains(errcode) || RATE_LIMIT_CODES.contains(code);
+	}
+
+	/**
+	 * 限流与平台繁忙可以换令牌重试，参数错误、令牌无效等重试也不会成功
+	 */
+	public boolean isRetryable() {
+		return isRateLimited() || BUSY_CODES.contains(errcode) || BUSY_CODES.contains(code);
+	}
+
 }
@@ -0,0 +1,140 @@
+package com.heifan.code.alarm.dto;
+
+import com.heifan.code.alarm.AlarmChannelStatusEnum;
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.client.AlarmHttpConnectException;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @description 一次预警在各平台的发送结果
+ * @author HiF
+ * @date 2026/10/18 18:12
+ */
+@ToString
+public class AlarmSendResult {
+
+    private final Map<AlarmNoticeEnum, ChannelResult> channels = new EnumMap<>(AlarmNoticeEnum.class);
+
+    public void put(AlarmNoticeEnum channel, ChannelResult result) {
+        channels.put(channel, result);
+    }
+
+    public Map<AlarmNoticeEnum, ChannelResult> getChannels() {
+        return Collections.unmodifiableMap(channels);
+    }
+
+    public boolean isSuccess() {
+        for (ChannelResult result : channels.values()) {
+            if (result.getStatus() != AlarmChannelStatusEnum.SUCCESS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 指定结果的平台
+     */
+    public List<AlarmNoticeEnum> channelsOf(AlarmChannelStatusEnum... statuses) {
+        List<AlarmNoticeEnum> matched = new ArrayList<>();
+        for (Map.Entry<AlarmNoticeEnum, ChannelResult> entry : channels.entrySet()) {
+            for (AlarmChannelStatusEnum status : statuses) {
+                if (entry.getValue().getStatus() == status) {
+                    matched.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 单个平台的发送结果
+     */
+    @Getter
+    @ToString
+    public static class ChannelResult {
+
+        private final AlarmChannelStatusEnum status;
+
+        /**
+         * 平台返回，请求异常或未发送时为 null
+         */
+        private final AlarmResult result;
+
+        private final long latencyMillis;
+
+        /**
+         * EXHAUSTED 时距离令牌可用的时间(纳秒)
+         */
+        private final long waitNanos;
+
+        private final String error;
+
+        private ChannelResult(AlarmChannelStatusEnum status, AlarmResult result, long latencyMillis, long waitNanos,
+                              String error) {
+            this.status = status;
+            this.result = result;
+            this.latencyMillis = latencyMillis;
+            this.waitNanos = waitNanos;
+            this.error = error;
+        }
+
+        public static ChannelResult of(AlarmResult result, long latencyMillis) {
+            AlarmChannelStatusEnum status;
+            if (null == result) {
+                status = AlarmChannelStatusEnum.ERROR;
+            } else if (result.isSuccess()) {
+                status = AlarmChannelStatusEnum.SUCCESS;
+            } else if (result.isRateLimited()) {
+                status = AlarmChannelStatusEnum.RATE_LIMITED;
+            } else {
+                status = AlarmChannelStatusEnum.REJECTED;
+            }
+            return new ChannelResult(status, result, latencyMillis, 0, null);
+        }
+
+        public static ChannelResult error(String error, long latencyMillis) {
+            return new ChannelResult(AlarmChannelStatusEnum.ERROR, null, latencyMillis, 0, error);
+        }
+
+        /**
+         * 请求异常：请求已发出后超时的记为 TIMEOUT，webHook 可能已经收到，不重试也不补发；其余记为 ERROR
+         */
+        public static ChannelResult failure(Throwable throwable, long latencyMillis) {
+            if (!AlarmHttpConnectException.isConnectFailure(throwable) && isTimeout(throwable)) {
+                return timeout(latencyMillis);
+            }
+            return error(throwable.toString(), latencyMillis);
+        }
+
+        private static boolean isTimeout(Throwable throwable) {
+            for (Throwable current = throwable; null != current; current = current.getCause()) {
+                if (current instanceof SocketTimeoutException || current instanceof TimeoutException) {
+                    return true;
+                }
+                if (current.getCause() == current) {
+                    break;
+                }
+            }
+            return false;
+        }
+
+        public static ChannelResult timeout(long latencyMillis) {
+            return new ChannelResult(AlarmChannelStatusEnum.TIMEOUT, null, latencyMillis, 0, null);
+        }
+
+        public static ChannelResult exhausted(long waitNanos) {
+            return new ChannelResult(AlarmChannelStatusEnum.EXHAUSTED, null, 0, waitNanos, null);
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package com.heifan.code.alarm.dto;
 
+import lombok.AccessLevel;
 import lombok.Data;
-import org.springframework.util.DigestUtils;
-
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -10,8 +19,11 @@ import java.util.List;
 import static java.util.stream.Collectors.toList;
 
 @Data
+@NoArgsConstructor
 public class ExceptionNotice {
 
+    private static final DateTimeFormatter REPEAT_TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
     /**
      * 工程名
      */
@@ -50,56 +62,88 @@ public class ExceptionNotice {
     /**
      * 异常追踪信息
      */
-    private List<String> traceInfo = new ArrayList<>();
+    private List<String> traceInfo;
+
+    /**
+     * 异常指纹与延迟渲染
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient ExceptionTrace trace;
+
+    /**
+     * 窗口内被合并的重复次数，0 表示首次通知
+     */
+    private long repeatCount;
+
+    /**
+     * 被合并的首次出现时间
+     */
+    private long repeatSince;
 
     public ExceptionNotice(Throwable ex, Object[] args) {
-        this.exceptionMessage = gainExceptionMessage(ex);
-        this.parames = args == null ? null : Arrays.stream(args).collect(toList());
-        if (null != ex) {
-            List<StackTraceElement> list = Arrays.stream(ex.getStackTrace())
-                    .filter(x -> x.getFileName() != null)
-                    .filter(x -> !x.getFileName().equals("<generated>")).limit(10).collect(toList());
-            if (list.size() > 0) {
-                this.traceInfo = list.stream().map(x -> x.toString()).collect(toList());
-                this.methodName = list.get(0).getMethodName();
-                this.classPath = list.get(0).getClassName();
-            }
-        }
-        this.uid = calUid();
+        this(ex, null, args);
     }
 
     public ExceptionNotice(Throwable ex, String appTraceId, Object[] args) {
-        this.exceptionMessage = gainExceptionMessage(ex);
         this.parames = args == null ? null : Arrays.stream(args).collect(toList());
+        this.appTraceId = appTraceId;
         if (null != ex) {
-            List<StackTraceElement> list = Arrays.stream(ex.getStackTrace())
-                    .filter(x -> x.getFileName() != null)
-                    .filter(x -> !x.getFileName().equals("<generated>")).limit(10).collect(toList());
-            if (list.size() > 0) {
-                this.traceInfo = list.stream().map(x -> x.toString()).collect(toList());
-                this.methodName = list.get(0).getMethodName();
-                this.classPath = list.get(0).getClassName();
-            }
+            // 只计算指纹，异常信息与追踪文本在发送时才生成
+            this.trace = new ExceptionTrace(ex);
+            this.methodName = trace.methodName();
+            this.classPath = trace.className();
+            this.uid = trace.uid();
+        } else {
+            this.exceptionMessage = "exception 为 null 无法展示堆栈信息";
+            this.traceInfo = new ArrayList<>();
+            this.uid = ExceptionTrace.uidOf(exceptionMessage);
         }
-        this.appTraceId = appTraceId;
-        this.uid = calUid();
     }
 
-    private String gainExceptionMessage(Throwable exception) {
-        if (null != exception) {
-            String em = exception.toString();
-            if (exception.getCause() != null) {
-                em = String.format("%s\r\n\tcaused by : %s", em, gainExceptionMessage(exception.getCause()));
-            }
-            return em;
+    public String getExceptionMessage() {
+        if (null == exceptionMessage && null != trace) {
+            exceptionMessage = trace.message();
         }
-        return "exception 为 null 无法展示堆栈信息";
+        return exceptionMessage;
     }
 
-    private String calUid() {
-        String md5 = DigestUtils.md5DigestAsHex(
-                String.format("%s-%s", exceptionMessage, traceInfo.size() > 0 ? traceInfo.get(0) : "").getBytes());
-        return md5;
+    public List<String> getTraceInfo() {
+        if (null == traceInfo) {
+            traceInfo = null == trace ? new ArrayList<>() : trace.traceInfo();
+        }
+        return traceInfo;
+    }
+
+    /**
+     * 生成合并通知，内容与首次通知一致并附带重复次数
+     *
+     * @param repeatCount 重复次数
+     * @param repeatSince 首次重复时间
+     * @return 合并通知
+     */
+    public ExceptionNotice toRepeatNotice(long repeatCount, long repeatSince) {
+        ExceptionNotice notice = new ExceptionNotice();
+        notice.project = project;
+        notice.uid = uid;
+        notice.methodName = methodName;
+        notice.parames = parames;
+        notice.appTraceId = appTraceId;
+        notice.classPath = classPath;
+        notice.exceptionMessage = exceptionMessage;
+        notice.traceInfo = traceInfo;
+        notice.trace = trace;
+        notice.repeatCount = repeatCount;
+        notice.repeatSince = repeatSince;
+        return notice;
+    }
+
+    private String repeatText() {
+        String since = REPEAT_TIME_FORMATTER.format(
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(repeatSince), ZoneId.systemDefault()));
+        return "x" + repeatCount + " 次 (自 " + since + " 起)";
     }
 
     public String createDingDingText() {
@@ -115,18 +159,22 @@ public class ExceptionNotice {
                 .append("> ").append(appTraceId).append("\n");
         stringBuilder.append("### 异常标志：").append("\n")
                 .append("> ").append(uid).append("\n");
+        if (repeatCount > 0) {
+            stringBuilder.append("### 重复次数：").append("\n")
+                    .append("> ").append(repeatText()).append("\n");
+        }
         if (parames != null && parames.size() > 0) {
             stringBuilder.append("### 异常扩展信息：").append("\n")
                     .append("> ")
                     .append(String.join(",", parames.stream().limit(3).map(x -> x.toString()).collect(toList()))).append("\r\n");
         }
         stringBuilder.append("### 异常信息：").append("\n")
-                .append("> ").append(exceptionMessage).append("\n");
+                .append("> ").append(getExceptionMessage()).append("\n");
         stringBuilder.append("### 异常追踪：").append("\n")
                 .append(" --- ")
                 .append("\n")
                 .append(" ```java ")
-                .append(String.join("\n", traceInfo)).append("\n")
+                .append(String.join("\n", getTraceInfo())).append("\n")
                 .append(" ``` ");
         return stringBuilder.toString();
     }
@@ -139,13 +187,16 @@ public class ExceptionNotice {
         stringBuilder.append(">方法名：").append(methodName).append("\n");
         stringBuilder.append(">链路标志：").append(appTraceId).append("\n");
         stringBuilder.append(">异常标志：").append(uid).append("\n");
+        if (repeatCount > 0) {
+            stringBuilder.append(">重复次数：").append(repeatText()).append("\n");
+        }
         stringBuilder.append(">异常扩展信息：");
         if (parames != null && parames.size() > 0) {
             stringBuilder.append(String.join(",", parames.stream().limit(3).map(x -> x.toString()).collect(toList()))).append("\r\n");
         }
-        stringBuilder.append("异常信息：").append(exceptionMessage).append("\n");
+        stringBuilder.append("异常信息：").append(getExceptionMessage()).append("\n");
         StringBuilder parameBuilder = new StringBuilder();
-        parameBuilder.append(String.join(",", traceInfo.stream().limit(3).map(x -> x.toString()).collect(toList()))).append("\r\n");
+        parameBuilder.append(String.join(",", getTraceInfo().stream().limit(3).map(x -> x.toString()).collect(toList()))).append("\r\n");
         if (parameBuilder.toString().length() > 2500) {
             String str = parameBuilder.toString().substring(0, 2500);
             stringBuilder.append("异常追踪：").append("\n`").append(str).append("`\n");
@@ -163,13 +214,16 @@ public class ExceptionNotice {
         stringBuilder.append(">方法名：").append(methodName).append("\n");
         stringBuilder.append(">链路标志：").append(appTraceId).append("\n");
         stringBuilder.append(">异常标志：").append(uid).append("\n");
+        if (repeatCount > 0) {
+            stringBuilder.append(">重复次数：").append(repeatText()).append("\n");
+        }
         stringBuilder.append(">异常扩展信息：");
         if (parames != null && parames.size() > 0) {
             stringBuilder.append(String.join(",", parames.stream().limit(3).map(x -> x.toString()).collect(toList()))).append("\r\n");
         }
-        stringBuilder.append("异常信息：").append(exceptionMessage).append("\n");
+        stringBuilder.append("异常信息：").append(getExceptionMessage()).append("\n");
         StringBuilder parameBuilder = new StringBuilder();
-        parameBuilder.append(String.join(",", traceInfo.stream().limit(3).collect(toList()))).append("\r\n");
+        parameBuilder.append(String.join(",", getTraceInfo().stream().limit(3).collect(toList()))).append("\r\n");
         if (parameBuilder.toString().length() > 2500) {
             String str = parameBuilder.substring(0, 2500);
             stringBuilder.append(">>异常追踪：").append("\n`").append(str).append("`\n");
@@ -0,0 +1,206 @@
+package com.heifan.code.alarm.dto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @description 异常的指纹与延迟渲染。
+ * 创建时只取抛出位置与异常类型计算指纹，不拼接字符串；异常信息与追踪文本在真正发送时才生成，
+ * 同一调用栈的追踪文本会被缓存，重复异常几乎没有渲染开销。
+ * 不持有异常对象，只保留栈帧与异常链各层的类型和 message 引用，在 {@link #message()} 中才拼接，
+ * 预警在去重窗口、汇总与队列中等待时不会拖住整个异常对象图
+ * @author HiF
+ * @date 2026/10/18 17:40
+ */
+public final class ExceptionTrace {
+
+    /**
+     * 展示的最大栈帧数
+     */
+    private static final int MAX_FRAMES = 10;
+
+    /**
+     * 异常链最大展开深度
+     */
+    private static final int MAX_CAUSE_DEPTH = 16;
+
+    private static final int MAX_CACHED_TRACES = 1024;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * 调用栈指纹 -> 追踪文本，按访问顺序淘汰
+     */
+    private static final Map<Long, List<String>> TRACE_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<Long, List<String>>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, List<String>> eldest) {
+                    return size() > MAX_CACHED_TRACES;
+                }
+            });
+
+    /**
+     * 异常链各层的类型
+     */
+    private final Class<?>[] causeTypes;
+
+    /**
+     * 异常链各层的 getLocalizedMessage，与 causeTypes 一一对应
+     */
+    private final String[] causeMessages;
+
+    private final StackTraceElement[] frames;
+
+    private final int frameCount;
+
+    private final long traceKey;
+
+    private final long fingerprint;
+
+    private volatile String message;
+
+    private volatile List<String> traceInfo;
+
+    ExceptionTrace(Throwable throwable) {
+        int depth = 0;
+        Class<?>[] types = new Class<?>[MAX_CAUSE_DEPTH];
+        String[] messages = new String[MAX_CAUSE_DEPTH];
+        Throwable current = throwable;
+        while (null != current && depth < MAX_CAUSE_DEPTH) {
+            types[depth] = current.getClass();
+            messages[depth++] = current.getLocalizedMessage();
+            Throwable cause = current.getCause();
+            current = cause == current ? null : cause;
+        }
+        this.causeTypes = Arrays.copyOf(types, depth);
+        this.causeMessages = Arrays.copyOf(messages, depth);
+        StackTraceElement[] stack = throwable.getStackTrace();
+        this.frames = new StackTraceElement[Math.min(MAX_FRAMES, stack.length)];
+        int count = 0;
+        long key = FNV_OFFSET;
+        for (StackTraceElement element : stack) {
+            if (count == frames.length) {
+                break;
+            }
+            String fileName = element.getFileName();
+            if (null == fileName || "<generated>".equals(fileName)) {
+                continue;
+            }
+            frames[count++] = element;
+            key = mix(key, frameHash(element));
+        }
+        this.frameCount = count;
+        this.traceKey = key;
+        this.fingerprint = fingerprint(throwable.getClass(), count > 0 ? frames[0] : null);
+    }
+
+    /**
+     * 抛出位置：第一个有源文件的栈帧，没有时返回 null
+     */
+    public static StackTraceElement topFrame(Throwable throwable) {
+        for (StackTraceElement element : throwable.getStackTrace()) {
+            String fileName = element.getFileName();
+            if (null != fileName && !"<generated>".equals(fileName)) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 只按异常类型与抛出位置计算指纹，与 {@link ExceptionNotice#getUid()} 相同，不创建通知、不渲染文本
+     *
+     * @param throwable 异常
+     * @param topFrame  {@link #topFrame(Throwable)} 的结果，可为 null
+     */
+    public static String uid(Throwable throwable, StackTraceElement topFrame) {
+        return Long.toHexString(fingerprint(throwable.getClass(), topFrame));
+    }
+
+    private static long fingerprint(Class<?> type, StackTraceElement topFrame) {
+        long site = mix(FNV_OFFSET, type.getName().hashCode());
+        return null != topFrame ? mix(site, frameHash(topFrame)) : site;
+    }
+
+    /**
+     * 抛出位置 + 异常类型的指纹
+     */
+    String uid() {
+        return Long.toHexString(fingerprint);
+    }
+
+    static String uidOf(String text) {
+        return Long.toHexString(mix(FNV_OFFSET, null == text ? 0 : text.hashCode()));
+    }
+
+    String className() {
+        return frameCount > 0 ? frames[0].getClassName() : null;
+    }
+
+    String methodName() {
+        return frameCount > 0 ? frames[0].getMethodName() : null;
+    }
+
+    /**
+     * 异常信息，包含 caused by 链
+     */
+    String message() {
+        String rendered = message;
+        if (null == rendered) {
+            StringBuilder builder = new StringBuilder(128);
+            for (int depth = 0; depth < causeTypes.length; depth++) {
+                if (depth > 0) {
+                    builder.append("\r\n\tcaused by : ");
+                }
+                // 与 Throwable.toString 相同的格式
+                builder.append(causeTypes[depth].getName());
+                if (null != causeMessages[depth]) {
+                    builder.append(": ").append(causeMessages[depth]);
+                }
+            }
+            rendered = builder.toString();
+            message = rendered;
+        }
+        return rendered;
+    }
+
+    /**
+     * 追踪文本，按调用栈缓存
+     */
+    List<String> traceInfo() {
+        List<String> rendered = traceInfo;
+        if (null == rendered) {
+            rendered = TRACE_CACHE.get(traceKey);
+            if (null == rendered) {
+                List<String> lines = new ArrayList<>(frameCount);
+                for (int i = 0; i < frameCount; i++) {
+                    lines.add(frames[i].toString());
+                }
+                rendered = Collections.unmodifiableList(lines);
+                TRACE_CACHE.put(traceKey, rendered);
+            }
+            traceInfo = rendered;
+        }
+        return rendered;
+    }
+
+    private static int frameHash(StackTraceElement element) {
+        int hash = element.getClassName().hashCode();
+        hash = 31 * hash + element.getMethodName().hashCode();
+        return 31 * hash + element.getLineNumber();
+    }
+
+    private static long mix(long hash, int value) {
+        for (int i = 0; i < 4; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
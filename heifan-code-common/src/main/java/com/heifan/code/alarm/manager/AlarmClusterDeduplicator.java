@@ -0,0 +1,141 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.dto.ExceptionNotice;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description 多实例间的异常去重，按 工程名 + 异常标识码 在 Redis 中抢占窗口。
+ * 每个窗口只有抢到的实例发送，其他实例只累加共享计数，计数随下一个窗口的通知一起发出。
+ * 需要访问 Redis，只在派发线程(未启用派发器时为发送线程)调用，不占用业务线程。
+ * Redis 不可用时退回到本实例去重，并在一段时间内不再访问 Redis
+ * @author HiF
+ * @date 2026/10/18 21:40
+ */
+@Slf4j
+public class AlarmClusterDeduplicator {
+
+    /**
+     * KEYS[1] 窗口占用标记，KEYS[2] 共享计数
+     * ARGV[1] 实例标识，ARGV[2] 窗口(毫秒)，ARGV[3] 当前时间(毫秒)，ARGV[4] 计数过期时间(毫秒)，ARGV[5] 本次次数
+     * 抢到窗口返回 {1, 之前累计的次数, 首次累计时间}，否则返回 {0, 0, 0}
+     */
+    private static final RedisScript<List<Object>> OFFER_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then\n"
+                    + "  local count = tonumber(redis.call('HGET', KEYS[2], 'count') or '0')\n"
+                    + "  local since = tonumber(redis.call('HGET', KEYS[2], 'since') or '0')\n"
+                    + "  redis.call('DEL', KEYS[2])\n"
+                    + "  return {1, count, since}\n"
+                    + "end\n"
+                    + "redis.call('HINCRBY', KEYS[2], 'count', ARGV[5])\n"
+                    + "redis.call('HSETNX', KEYS[2], 'since', ARGV[3])\n"
+                    + "redis.call('PEXPIRE', KEYS[2], ARGV[4])\n"
+                    + "return {0, 0, 0}", listType());
+
+    private final AlarmNoticeProperty.Cluster cluster;
+
+    private final String instanceId;
+
+    /**
+     * Redis 恢复访问的时间(纳秒)，之前一直使用本实例去重
+     */
+    private volatile long fallbackUntil;
+
+    @Autowired(required = false)
+    StringRedisTemplate stringRedisTemplate;
+
+    public AlarmClusterDeduplicator(AlarmNoticeProperty.Cluster cluster) {
+        this.cluster = cluster;
+        this.instanceId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.fallbackUntil = System.nanoTime();
+    }
+
+    /**
+     * 登记预警任务，只处理异常通知，其他通知原样返回
+     *
+     * @param task 预警任务
+     * @return 需要发送的任务，null 表示由其他实例发送
+     */
+    public AlarmNoticeTask offer(AlarmNoticeTask task) {
+        ExceptionNotice notice = task.getExceptionNotice();
+        if (null == notice) {
+            return task;
+        }
+        // 本实例合并过的通知代表多次
+        ExceptionNotice sending = offer(notice, Math.max(1, notice.getRepeatCount()));
+        if (null == sending) {
+            return null;
+        }
+        return sending == notice ? task : task.withExceptionNotice(sending);
+    }
+
+    /**
+     * 登记一次异常
+     *
+     * @param notice  异常通知
+     * @param count   本次代表的次数，本实例合并过的通知大于 1
+     * @return 需要发送的通知(带上其他实例累计的次数)，null 表示由其他实例发送
+     */
+    public ExceptionNotice offer(ExceptionNotice notice, long count) {
+        if (null == notice.getUid() || !available()) {
+            return notice;
+        }
+        long now = System.currentTimeMillis();
+        long windowMillis = TimeUnit.SECONDS.toMillis(cluster.getWindowSeconds());
+        String key = cluster.getKeyPrefix() + "{" + notice.getProject() + ":" + notice.getUid() + "}";
+        List<Object> result;
+        try {
+            result = stringRedisTemplate.execute(OFFER_SCRIPT, Arrays.asList(key + ":owner", key + ":count"),
+                    instanceId, String.valueOf(windowMillis), String.valueOf(now),
+                    String.valueOf(TimeUnit.SECONDS.toMillis(cluster.getCounterTtlSeconds())), String.valueOf(Math.max(1, count)));
+        } catch (Exception e) {
+            fallbackUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(cluster.getFallbackSeconds());
+            log.warn("预警集群去重不可用 {} 秒内使用本实例去重 {}", cluster.getFallbackSeconds(), e.toString());
+            return notice;
+        }
+        if (null == result || result.size() < 3 || toLong(result.get(0)) != 1) {
+            return null;
+        }
+        long shared = toLong(result.get(1));
+        if (shared <= 0) {
+            return notice;
+        }
+        // 其他实例累计的次数加上本次代表的次数
+        long local = notice.getRepeatCount() > 0 ? notice.getRepeatCount() : 0;
+        long since = toLong(result.get(2));
+        if (notice.getRepeatSince() > 0) {
+            since = since > 0 ? Math.min(since, notice.getRepeatSince()) : notice.getRepeatSince();
+        }
+        return notice.toRepeatNotice(shared + local, since > 0 ? since : now);
+    }
+
+    private boolean available() {
+        if (null == stringRedisTemplate) {
+            return false;
+        }
+        return System.nanoTime() - fallbackUntil >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<List<Object>> listType() {
+        return (Class<List<Object>>) (Class<?>) List.class;
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return null == value ? 0 : Long.parseLong(value.toString());
+    }
+}
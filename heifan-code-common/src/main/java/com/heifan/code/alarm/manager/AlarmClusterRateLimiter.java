@@ -0,0 +1,327 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.DigestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @description 多实例共享的 webHook 限流，Redis 有序集合实现滑动窗口。
+ * 机器人的额度按机器人计算而不是按实例计算，多个实例共用同一批令牌时由 Redis 统一计数。
+ * 每次向 Redis 预取一小批额度放在本地，用完再取，不是每条预警都访问 Redis；
+ * 预取的额度在租期内未用完即用 ZREM 归还，不占用其他实例的额度。Redis 不可用时只按本实例限流
+ * @author HiF
+ * @date 2026/10/18 22:00
+ */
+@Slf4j
+public class AlarmClusterRateLimiter {
+
+    /**
+     * KEYS[1] 令牌的窗口
+     * ARGV[1] 当前时间(毫秒)，ARGV[2] 窗口(毫秒)，ARGV[3] 窗口内额度，ARGV[4] 申请数，ARGV[5] 申请标识
+     * 返回 {取到的额度, 无额度时需要等待的毫秒数}
+     */
+    private static final RedisScript<List<Object>> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1])\n"
+                    + "local window = tonumber(ARGV[2])\n"
+                    + "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)\n"
+                    + "local grant = math.min(tonumber(ARGV[4]), tonumber(ARGV[3]) - redis.call('ZCARD', KEYS[1]))\n"
+                    + "if grant > 0 then\n"
+                    + "  for i = 1, grant do\n"
+                    + "    redis.call('ZADD', KEYS[1], now, ARGV[5] .. ':' .. i)\n"
+                    + "  end\n"
+                    + "  redis.call('PEXPIRE', KEYS[1], window)\n"
+                    + "  return {grant, 0}\n"
+                    + "end\n"
+                    + "local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')\n"
+                    + "if oldest[2] then\n"
+                    + "  return {0, tonumber(oldest[2]) + window - now}\n"
+                    + "end\n"
+                    + "return {0, window}", listType());
+
+    private final AlarmNoticeProperty.RateLimit rateLimit;
+
+    private final int limit;
+
+    private final String instanceId;
+
+    private final AtomicLong sequence = new AtomicLong(0);
+
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService leaseSweeper;
+
+    /**
+     * Redis 恢复访问的时间(纳秒)，之前只按本实例限流
+     */
+    private volatile long fallbackUntil;
+
+    @Autowired(required = false)
+    StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * @param rateLimit           配置
+     * @param tokenLimitPerMinute 未单独配置窗口额度时，沿用每分钟限流数
+     */
+    public AlarmClusterRateLimiter(AlarmNoticeProperty.RateLimit rateLimit, Integer tokenLimitPerMinute) {
+        this.rateLimit = rateLimit;
+        if (null != rateLimit.getLimitPerWindow()) {
+            this.limit = rateLimit.getLimitPerWindow();
+        } else {
+            this.limit = null == tokenLimitPerMinute ? 0
+                    : (int) (tokenLimitPerMinute * rateLimit.getWindowSeconds() / 60);
+        }
+        this.instanceId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.fallbackUntil = System.nanoTime();
+        log.info("init alarmClusterRateLimiter limit {} per {} s lease {}", limit, rateLimit.getWindowSeconds(),
+                rateLimit.getLeaseSize());
+    }
+
+    public synchronized void start() {
+        if (null != leaseSweeper || limit <= 0) {
+            return;
+        }
+        long interval = Math.max(100, rateLimit.getLeaseMillis());
+        leaseSweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alarm-rate-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        leaseSweeper.scheduleWithFixedDelay(this::returnExpired, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止时归还所有未用完的额度
+     */
+    public synchronized void shutdown() {
+        if (null != leaseSweeper) {
+            leaseSweeper.shutdownNow();
+            leaseSweeper = null;
+        }
+        for (Lease lease : leases.values()) {
+            synchronized (lease) {
+                returnUnused(lease);
+            }
+        }
+    }
+
+    /**
+     * 取一次发送额度，本地租约有余量时不访问 Redis
+     *
+     * @param token webHook 令牌
+     * @return 是否取到
+     */
+    public boolean tryAcquire(String token) {
+        if (limit <= 0 || !available()) {
+            return true;
+        }
+        Lease lease = leases.computeIfAbsent(token, Lease::new);
+        if (lease.take()) {
+            return true;
+        }
+        synchronized (lease) {
+            if (lease.take()) {
+                return true;
+            }
+            long now = System.nanoTime();
+            if (now - lease.retryAt < 0) {
+                return false;
+            }
+            // Redis 不可用时 refill 转为只按本实例限流
+            return refill(lease, now) && (lease.take() || !available());
+        }
+    }
+
+    /**
+     * 归还一次未使用的额度(本地限流或熔断未放行时)
+     */
+    public void release(String token) {
+        Lease lease = leases.get(token);
+        if (null != lease && System.nanoTime() - lease.expiresAt < 0) {
+            lease.permits.incrementAndGet();
+        }
+    }
+
+    /**
+     * 距离下一次可以向 Redis 申请额度的时间
+     *
+     * @return 纳秒，0 表示当前可申请或本地仍有额度
+     */
+    public long nanosUntilAvailable(String token) {
+        if (limit <= 0 || !available()) {
+            return 0;
+        }
+        Lease lease = leases.get(token);
+        if (null == lease || lease.hasPermits()) {
+            return 0;
+        }
+        return Math.max(0, lease.retryAt - System.nanoTime());
+    }
+
+    private boolean refill(Lease lease, long now) {
+        // 上一个租约过期后还没被清理线程归还
+        returnUnused(lease);
+        long windowMillis = TimeUnit.SECONDS.toMillis(rateLimit.getWindowSeconds());
+        String leaseId = instanceId + ":" + sequence.incrementAndGet();
+        List<Object> result;
+        try {
+            result = stringRedisTemplate.execute(ACQUIRE_SCRIPT, Collections.singletonList(lease.key),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(windowMillis), String.valueOf(limit),
+                    String.valueOf(Math.max(1, rateLimit.getLeaseSize())), leaseId);
+        } catch (Exception e) {
+            fallbackUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(rateLimit.getFallbackSeconds());
+            log.warn("预警集群限流不可用 {} 秒内只按本实例限流 {}", rateLimit.getFallbackSeconds(), e.toString());
+            return true;
+        }
+        long granted = null == result || result.isEmpty() ? 0 : toLong(result.get(0));
+        if (granted > 0) {
+            lease.grant(leaseId, (int) granted, now + TimeUnit.MILLISECONDS.toNanos(rateLimit.getLeaseMillis()));
+            return true;
+        }
+        long waitMillis = null == result || result.size() < 2 ? windowMillis : toLong(result.get(1));
+        lease.retryAt = now + TimeUnit.MILLISECONDS.toNanos(Math.max(1, waitMillis));
+        return false;
+    }
+
+    /**
+     * 归还已过期租约中未用完的额度
+     */
+    private void returnExpired() {
+        try {
+            for (Lease lease : leases.values()) {
+                if (lease.expiredWithPermits()) {
+                    synchronized (lease) {
+                        returnUnused(lease);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("预警集群限流归还额度失败 {}", e.toString());
+        }
+    }
+
+    /**
+     * 删除租约中未使用的成员，调用方持有 lease 锁
+     */
+    private void returnUnused(Lease lease) {
+        String[] members = lease.drainUnused();
+        if (members.length == 0 || null == stringRedisTemplate) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForZSet().remove(lease.key, (Object[]) members);
+        } catch (Exception e) {
+            // 归还失败时额度随窗口滑动自然释放
+            log.warn("预警集群限流归还 {} 个额度失败 {}", members.length, e.toString());
+        }
+    }
+
+    private boolean available() {
+        return null != stringRedisTemplate && System.nanoTime() - fallbackUntil >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<List<Object>> listType() {
+        return (Class<List<Object>>) (Class<?>) List.class;
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return null == value ? 0 : Long.parseLong(value.toString());
+    }
+
+    /**
+     * 单个令牌的本地租约
+     */
+    private class Lease {
+
+        /**
+         * Redis key，令牌取摘要，不在 Redis 中保存明文
+         */
+        private final String key;
+
+        private final AtomicInteger permits = new AtomicInteger(0);
+
+        private volatile long expiresAt;
+
+        private volatile long retryAt;
+
+        /**
+         * 当前租约在有序集合中的成员前缀与数量，成员为 leaseId:1 .. leaseId:granted
+         */
+        private String leaseId;
+
+        private int granted;
+
+        Lease(String token) {
+            this.key = rateLimit.getKeyPrefix() + DigestUtils.md5DigestAsHex(token.getBytes(StandardCharsets.UTF_8));
+            long now = System.nanoTime();
+            this.expiresAt = now;
+            this.retryAt = now;
+        }
+
+        boolean hasPermits() {
+            return permits.get() > 0 && System.nanoTime() - expiresAt < 0;
+        }
+
+        boolean take() {
+            if (System.nanoTime() - expiresAt >= 0) {
+                return false;
+            }
+            for (; ; ) {
+                int current = permits.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (permits.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean expiredWithPermits() {
+            return permits.get() > 0 && System.nanoTime() - expiresAt >= 0;
+        }
+
+        void grant(String leaseId, int granted, long expiresAt) {
+            this.leaseId = leaseId;
+            this.granted = granted;
+            permits.set(granted);
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * 作废本地余量，返回未使用的成员。成员可互换，取编号最大的几个
+         */
+        String[] drainUnused() {
+            this.expiresAt = System.nanoTime();
+            int unused = Math.min(granted, permits.getAndSet(0));
+            if (unused <= 0 || null == leaseId) {
+                return new String[0];
+            }
+            String[] members = new String[unused];
+            for (int i = 0; i < unused; i++) {
+                members[i] = leaseId + ":" + (granted - i);
+            }
+            granted -= unused;
+            return members;
+        }
+    }
+}
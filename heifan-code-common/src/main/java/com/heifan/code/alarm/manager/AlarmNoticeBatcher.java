@@ -0,0 +1,147 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.dto.AlarmDigest;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.dto.ExceptionNotice;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @description 预警汇总模式，刷新周期内的异常按 工程名 + 类路径 + 方法名 合并，
+ * 每个周期生成一条或多条(超过消息大小时拆分)汇总通知，由派发器定时刷新
+ * @author HiF
+ * @date 2026/10/18 15:40
+ */
+public class AlarmNoticeBatcher {
+
+    private final long flushIntervalMillis;
+
+    private final int maxMessageChars;
+
+    private final Map<String, BatchGroup> groups = new ConcurrentHashMap<>();
+
+    private volatile long windowStart = System.currentTimeMillis();
+
+    public AlarmNoticeBatcher(AlarmNoticeProperty.Batch batch) {
+        this.flushIntervalMillis = TimeUnit.SECONDS.toMillis(Math.max(1, batch.getFlushIntervalSeconds()));
+        this.maxMessageChars = Math.max(256, batch.getMaxMessageChars());
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    /**
+     * 加入汇总
+     *
+     * @param notice    异常通知，合并通知按重复次数计数
+     * @param blamedFor 通知人
+     */
+    public void add(ExceptionNotice notice, String[] blamedFor) {
+        add(notice, blamedFor, Math.max(1, notice.getRepeatCount()));
+    }
+
+    private void add(ExceptionNotice notice, String[] blamedFor, long count) {
+        String key = notice.getProject() + "|" + notice.getClassPath() + "|" + notice.getMethodName();
+        BatchGroup group = groups.computeIfAbsent(key, k -> new BatchGroup(notice));
+        if (null != blamedFor) {
+            for (String blamed : blamedFor) {
+                if (null != blamed) {
+                    group.blamedFor.add(blamed);
+                }
+            }
+        }
+        group.count.addAndGet(count);
+        if (group.drained) {
+            // 计数发生在 drain 取走之后，补到新的分组里
+            long missed = group.count.getAndSet(0);
+            if (missed > 0) {
+                add(notice, blamedFor, missed);
+            }
+        }
+    }
+
+    public int pendingGroups() {
+        return groups.size();
+    }
+
+    /**
+     * 取出当前周期的汇总，按次数倒序并按消息大小拆分
+     *
+     * @return 汇总任务
+     */
+    public List<AlarmNoticeTask> drain() {
+        long start = windowStart;
+        long end = System.currentTimeMillis();
+        windowStart = end;
+        List<BatchGroup> drained = new ArrayList<>();
+        for (String key : groups.keySet()) {
+            BatchGroup group = groups.remove(key);
+            if (null == group) {
+                continue;
+            }
+            group.drained = true;
+            group.drainedCount = group.count.getAndSet(0);
+            if (group.drainedCount > 0) {
+                drained.add(group);
+            }
+        }
+        if (drained.isEmpty()) {
+            return Collections.emptyList();
+        }
+        drained.sort(Comparator.comparingLong((BatchGroup g) -> g.drainedCount).reversed());
+
+        List<AlarmNoticeTask> tasks = new ArrayList<>();
+        AlarmDigest digest = newDigest(start, end);
+        Set<String> blamedFor = new LinkedHashSet<>();
+        int length = 0;
+        for (BatchGroup group : drained) {
+            AlarmDigest.Item item = new AlarmDigest.Item(group.notice, group.drainedCount);
+            if (!digest.getItems().isEmpty() && length + item.estimateLength() > maxMessageChars) {
+                tasks.add(AlarmNoticeTask.of(digest, blamedFor.toArray(new String[0])));
+                digest = newDigest(start, end);
+                blamedFor = new LinkedHashSet<>();
+                length = 0;
+            }
+            digest.getItems().add(item);
+            blamedFor.addAll(group.blamedFor);
+            length += item.estimateLength();
+        }
+        tasks.add(AlarmNoticeTask.of(digest, blamedFor.toArray(new String[0])));
+        return tasks;
+    }
+
+    private static AlarmDigest newDigest(long start, long end) {
+        AlarmDigest digest = new AlarmDigest();
+        digest.setStartTime(start);
+        digest.setEndTime(end);
+        return digest;
+    }
+
+    private static class BatchGroup {
+
+        private final ExceptionNotice notice;
+
+        private final AtomicLong count = new AtomicLong(0);
+
+        private final Set<String> blamedFor = ConcurrentHashMap.newKeySet();
+
+        private volatile boolean drained;
+
+        private long drainedCount;
+
+        BatchGroup(ExceptionNotice notice) {
+            this.notice = notice;
+        }
+    }
+}
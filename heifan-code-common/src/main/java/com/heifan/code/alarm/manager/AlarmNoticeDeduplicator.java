@@ -0,0 +1,252 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.dto.ExceptionNotice;
+import com.heifan.code.alarm.message.AlarmNoticeSendI;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @description 预警去重，按 ExceptionNotice uid 在时间窗口内合并重复异常。
+ * 首次出现立即发送，窗口内的重复只计数，每个窗口发送一次 "xN 次 (自 HH:mm 起)" 的合并通知。
+ * 超出容量时由去重线程淘汰，业务线程不扫描
+ * @author HiF
+ * @date 2026/10/18 10:05
+ */
+@Slf4j
+public class AlarmNoticeDeduplicator {
+
+    private final long windowMillis;
+
+    private final int maxEntries;
+
+    private final Map<String, DedupEntry> entries = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 是否已提交一次淘汰，避免业务线程重复提交
+     */
+    private final AtomicBoolean evictPending = new AtomicBoolean(false);
+
+    @Autowired(required = false)
+    AlarmNoticeDispatcher alarmNoticeDispatcher;
+
+    @Autowired(required = false)
+    AlarmNoticeSendI alarmNoticeSend;
+
+    @Autowired(required = false)
+    AlarmClusterDeduplicator alarmClusterDeduplicator;
+
+    public AlarmNoticeDeduplicator(AlarmNoticeProperty.Dedup dedup) {
+        this.windowMillis = TimeUnit.SECONDS.toMillis(Math.max(1, dedup.getWindowSeconds()));
+        this.maxEntries = Math.max(1, dedup.getMaxEntries());
+    }
+
+    public synchronized void start() {
+        if (null != scheduler) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alarm-dedup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        log.info("init alarmNoticeDeduplicator window {} ms maxEntries {}", windowMillis, maxEntries);
+    }
+
+    public synchronized void shutdown() {
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 登记一次异常
+     *
+     * @param notice    异常通知
+     * @param blamedFor 通知人
+     * @return true 需要立即发送，false 已被合并
+     */
+    public boolean offer(ExceptionNotice notice, String[] blamedFor) {
+        if (null == notice.getUid()) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        DedupEntry entry = entries.get(notice.getUid());
+        if (null == entry) {
+            if (entries.size() >= maxEntries * 2) {
+                // 淘汰跟不上时不再跟踪新异常，直接发送
+                requestEvict();
+                return true;
+            }
+            DedupEntry created = new DedupEntry(notice, blamedFor, now);
+            entry = entries.putIfAbsent(notice.getUid(), created);
+            if (null == entry) {
+                if (entries.size() > maxEntries) {
+                    requestEvict();
+                }
+                return true;
+            }
+        }
+        entry.lastSeen = now;
+        long windowStart = entry.windowStart.get();
+        if (now - windowStart >= windowMillis && entry.suppressed.get() == 0
+                && entry.windowStart.compareAndSet(windowStart, now)) {
+            return true;
+        }
+        entry.suppress(now);
+        if (entry.removed) {
+            // 计数时条目已被去重线程移除，移除后的补发可能没有看到这次计数，由当前线程补发
+            emitSummary(entry, now);
+        }
+        return false;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 发送各窗口的合并通知，并移除一个窗口内没有再出现的异常
+     */
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, DedupEntry> e : entries.entrySet()) {
+            DedupEntry entry = e.getValue();
+            if (!emitSummary(entry, now) && now - entry.lastSeen >= windowMillis) {
+                remove(e.getKey(), entry, now);
+            }
+        }
+    }
+
+    /**
+     * 移除条目并发出移除前累计的合并通知。
+     * 业务线程可能在移除前取到条目、移除后才计数，先标记 removed 再补发，
+     * 补发与业务线程按 removed 的补发都通过 getAndSet 取走计数，每次计数只发送一次
+     */
+    private void remove(String key, DedupEntry entry, long now) {
+        if (entries.remove(key, entry)) {
+            entry.removed = true;
+            emitSummary(entry, now);
+        }
+    }
+
+    private boolean emitSummary(DedupEntry entry, long now) {
+        long since = entry.since.getAndSet(0);
+        long count = entry.suppressed.getAndSet(0);
+        if (count <= 0) {
+            return false;
+        }
+        if (since == 0) {
+            since = now;
+        }
+        entry.windowStart.set(now);
+        dispatch(AlarmNoticeTask.of(entry.notice.toRepeatNotice(count, since), entry.blamedFor));
+        return true;
+    }
+
+    /**
+     * 超出容量时提交一次淘汰到去重线程，未启动去重线程时只靠容量上限保护
+     */
+    private void requestEvict() {
+        ScheduledExecutorService current = scheduler;
+        if (null == current || !evictPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            current.execute(this::evict);
+        } catch (RejectedExecutionException e) {
+            evictPending.set(false);
+        }
+    }
+
+    /**
+     * 按最后出现时间排序一次，淘汰最久未出现的异常，淘汰前先发出其合并通知
+     */
+    void evict() {
+        evictPending.set(false);
+        int surplus = entries.size() - maxEntries;
+        if (surplus <= 0) {
+            return;
+        }
+        List<Map.Entry<String, DedupEntry>> eldest = new ArrayList<>(entries.entrySet());
+        eldest.sort(Comparator.comparingLong(e -> e.getValue().lastSeen));
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < surplus && i < eldest.size(); i++) {
+            remove(eldest.get(i).getKey(), eldest.get(i).getValue(), now);
+        }
+    }
+
+    /**
+     * 交给派发器，集群去重在派发线程完成；未启用派发器时在当前线程去重并发送
+     */
+    private void dispatch(AlarmNoticeTask task) {
+        if (null != alarmNoticeDispatcher) {
+            alarmNoticeDispatcher.dispatch(task);
+        } else if (null != alarmNoticeSend) {
+            if (null != alarmClusterDeduplicator) {
+                // 其他实例持有窗口时只累加共享计数
+                task = alarmClusterDeduplicator.offer(task);
+                if (null == task) {
+                    return;
+                }
+            }
+            try {
+                alarmNoticeSend.send(task);
+            } catch (AlarmTokenExhaustedException e) {
+                log.warn("合并预警未发送 令牌限流额度已用完 {}", e.getChannels());
+            }
+        }
+    }
+
+    private static class DedupEntry {
+
+        private final ExceptionNotice notice;
+
+        private final String[] blamedFor;
+
+        private final AtomicLong windowStart;
+
+        private final AtomicLong suppressed = new AtomicLong(0);
+
+        /**
+         * 当前窗口第一次被合并的时间
+         */
+        private final AtomicLong since = new AtomicLong(0);
+
+        private volatile long lastSeen;
+
+        /**
+         * 是否已从 entries 中移除
+         */
+        private volatile boolean removed;
+
+        DedupEntry(ExceptionNotice notice, String[] blamedFor, long now) {
+            this.notice = notice;
+            this.blamedFor = blamedFor;
+            this.windowStart = new AtomicLong(now);
+            this.lastSeen = now;
+        }
+
+        void suppress(long now) {
+            since.compareAndSet(0, now);
+            suppressed.incrementAndGet();
+        }
+    }
+}
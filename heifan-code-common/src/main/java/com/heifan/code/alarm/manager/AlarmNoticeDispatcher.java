@@ -0,0 +1,372 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.AlarmOverflowPolicyEnum;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.message.AlarmNoticeSendI;
+import com.heifan.code.alarm.metrics.AlarmMetrics;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import com.heifan.code.alarm.spool.AlarmSpool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @description 预警异步派发器，业务线程只负责入队，由独立的派发线程做集群去重并调用webhook。
+ * 汇总模式下每个实例发送自己的汇总，不做集群去重
+ * @author HiF
+ * @date 2026/10/18 9:20
+ */
+@Slf4j
+public class AlarmNoticeDispatcher {
+
+    private final BlockingQueue<AlarmNoticeTask> queue;
+
+    /**
+     * 业务线程丢弃的预警先放入这里，由落盘线程写入 spool，业务线程不做磁盘 IO
+     */
+    private final BlockingQueue<AlarmNoticeTask> dropQueue;
+
+    private Thread spoolWriter;
+
+    private final AlarmOverflowPolicyEnum overflowPolicy;
+
+    private final Thread[] workers;
+
+    private volatile boolean running;
+
+    /**
+     * 是否接收新预警，停机排空时先关闭
+     */
+    private volatile boolean accepting;
+
+    /**
+     * 是否正在停机排空，排空时等待令牌超过截止时间(nanoTime)的预警直接写入 spool
+     */
+    private volatile boolean draining;
+
+    private volatile long drainDeadline;
+
+    /**
+     * 派发线程正在发送的预警数
+     */
+    private final AtomicInteger active = new AtomicInteger(0);
+
+    private ScheduledExecutorService batchScheduler;
+
+    /**
+     * 因队列溢出或已停止而丢弃且未写入 spool 的预警数
+     */
+    private final AtomicLong droppedCount = new AtomicLong(0);
+
+    @Autowired(required = false)
+    AlarmNoticeSendI alarmNoticeSend;
+
+    @Autowired(required = false)
+    AlarmNoticeBatcher alarmNoticeBatcher;
+
+    @Autowired(required = false)
+    AlarmSpool alarmSpool;
+
+    @Autowired(required = false)
+    AlarmMetrics alarmMetrics;
+
+    @Autowired(required = false)
+    AlarmClusterDeduplicator alarmClusterDeduplicator;
+
+    public AlarmNoticeDispatcher(AlarmNoticeProperty.Dispatch dispatch) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, dispatch.getCapacity()));
+        this.dropQueue = new ArrayBlockingQueue<>(Math.max(1, dispatch.getCapacity()));
+        this.overflowPolicy = null == dispatch.getOverflowPolicy()
+                ? AlarmOverflowPolicyEnum.DROP_OLDEST : dispatch.getOverflowPolicy();
+        this.workers = new Thread[Math.max(1, dispatch.getThreads())];
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        accepting = true;
+        for (int i = 0; i < workers.length; i++) {
+            Thread worker = new Thread(this::drain, "alarm-dispatcher-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers[i] = worker;
+        }
+        if (null != alarmSpool) {
+            spoolWriter = new Thread(this::writeDropped, "alarm-dispatcher-spool");
+            spoolWriter.setDaemon(true);
+            spoolWriter.start();
+        }
+        if (null != alarmNoticeBatcher) {
+            long interval = alarmNoticeBatcher.getFlushIntervalMillis();
+            batchScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "alarm-batch");
+                thread.setDaemon(true);
+                return thread;
+            });
+            batchScheduler.scheduleWithFixedDelay(this::flushBatch, interval, interval, TimeUnit.MILLISECONDS);
+            log.info("init alarmNoticeBatcher flushInterval {} ms", interval);
+        }
+        log.info("init alarmNoticeDispatcher capacity {} threads {} overflowPolicy {}",
+                queue.remainingCapacity(), workers.length, overflowPolicy);
+    }
+
+    public synchronized void shutdown() {
+        running = false;
+        accepting = false;
+        if (null != batchScheduler) {
+            batchScheduler.shutdownNow();
+            batchScheduler = null;
+            for (AlarmNoticeTask task : alarmNoticeBatcher.drain()) {
+                spoolOrDrop(task);
+            }
+        }
+        for (Thread worker : workers) {
+            if (null != worker) {
+                worker.interrupt();
+            }
+        }
+        if (null != spoolWriter) {
+            spoolWriter.interrupt();
+            spoolWriter = null;
+        }
+        if (!queue.isEmpty()) {
+            log.warn("alarmNoticeDispatcher 停止，未发送预警 {} 条", queue.size());
+        }
+        AlarmNoticeTask task;
+        while (null != (task = queue.poll())) {
+            spoolOrDrop(task);
+        }
+        while (null != (task = dropQueue.poll())) {
+            spoolOrDrop(task);
+        }
+    }
+
+    /**
+     * 停机排空：不再接收新预警，汇总中的预警立即入队，等待队列发送完毕。
+     * 超过截止时间仍未发送的预警写入 spool，未开启 spool 时丢弃并计数
+     *
+     * @param timeoutMillis 最长等待时间(毫秒)
+     * @return 未能发送的预警数(含写入 spool 的)
+     */
+    public int drain(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        drainDeadline = deadline;
+        draining = true;
+        accepting = false;
+        if (null != alarmNoticeBatcher) {
+            for (AlarmNoticeTask task : alarmNoticeBatcher.drain()) {
+                enqueue(task);
+            }
+        }
+        while ((!queue.isEmpty() || active.get() > 0) && System.nanoTime() - deadline < 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        int unsent = 0;
+        AlarmNoticeTask task;
+        while (null != (task = queue.poll())) {
+            spoolOrDrop(task);
+            unsent++;
+        }
+        while (null != (task = dropQueue.poll())) {
+            spoolOrDrop(task);
+        }
+        return unsent;
+    }
+
+    /**
+     * 提交预警，队列满时按溢出策略处理，不会阻塞调用线程(CALLER_RUNS 除外)，
+     * 开启汇总模式时异常预警先进入汇总，由刷新线程按周期合并发送
+     *
+     * @param task 预警任务
+     * @return 是否被接收
+     */
+    public boolean dispatch(AlarmNoticeTask task) {
+        if (!accepting) {
+            onDrop(task);
+            return false;
+        }
+        if (null != alarmNoticeBatcher && null != task.getExceptionNotice()) {
+            alarmNoticeBatcher.add(task.getExceptionNotice(), task.getBlamedFor());
+            return true;
+        }
+        return enqueue(task);
+    }
+
+    private boolean enqueue(AlarmNoticeTask task) {
+        if (queue.offer(task)) {
+            return true;
+        }
+        switch (overflowPolicy) {
+            case CALLER_RUNS:
+                execute(task, false);
+                return true;
+            case DROP_NEWEST:
+                onDrop(task);
+                return false;
+            case DROP_OLDEST:
+            default:
+                while (!queue.offer(task)) {
+                    AlarmNoticeTask oldest = queue.poll();
+                    if (null != oldest) {
+                        onDrop(oldest);
+                    }
+                }
+                return true;
+        }
+    }
+
+    public int queueSize() {
+        return queue.size();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void flushBatch() {
+        try {
+            for (AlarmNoticeTask task : alarmNoticeBatcher.drain()) {
+                enqueue(task);
+            }
+        } catch (Exception e) {
+            log.error("预警汇总刷新失败", e);
+        }
+    }
+
+    private void drain() {
+        while (running) {
+            AlarmNoticeTask task;
+            try {
+                task = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (null != task) {
+                active.incrementAndGet();
+                try {
+                    execute(task, true);
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 集群去重后发送预警，令牌额度用完时派发线程等待额度恢复后重试，调用线程(CALLER_RUNS)不等待直接丢弃
+     *
+     * @param task         预警任务
+     * @param waitForToken 是否等待令牌
+     */
+    private void execute(AlarmNoticeTask task, boolean waitForToken) {
+        if (null == alarmNoticeSend) {
+            log.error("预警失败 未找到 AlarmNoticeSendI");
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("alarm task wait {} ms", task.waitMillis());
+        }
+        if (null != alarmClusterDeduplicator) {
+            // 集群去重要访问 Redis，放在派发线程发送前，其他实例持有窗口时只累加共享计数
+            task = alarmClusterDeduplicator.offer(task);
+            if (null == task) {
+                if (null != alarmMetrics) {
+                    alarmMetrics.onDeduplicated();
+                }
+                return;
+            }
+        }
+        while (true) {
+            try {
+                alarmNoticeSend.send(task);
+                return;
+            } catch (AlarmTokenExhaustedException e) {
+                // 只重发额度用完的平台，其他平台已经发送
+                if (null != e.getChannels()) {
+                    task = task.withChannels(e.getChannels());
+                }
+                if (!waitForToken) {
+                    onDrop(task);
+                    return;
+                }
+                if (!running || !awaitToken(e.getWaitNanos())) {
+                    spoolOrDrop(task);
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("异常预警失败 {}", task, e);
+                return;
+            }
+        }
+    }
+
+    private boolean awaitToken(long waitNanos) {
+        waitNanos = Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(10));
+        if (draining && System.nanoTime() + waitNanos - drainDeadline > 0) {
+            // 停机排空时等不到额度恢复，交给 spool
+            return false;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 业务线程上无法发送的预警交给落盘线程写入 spool，未开启 spool 或落盘队列已满时丢弃
+     */
+    private void onDrop(AlarmNoticeTask task) {
+        if (null != spoolWriter && dropQueue.offer(task)) {
+            return;
+        }
+        countDropped(task);
+    }
+
+    private void writeDropped() {
+        while (running) {
+            try {
+                spoolOrDrop(dropQueue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在当前线程写入 spool，只在派发线程、落盘线程和停机时调用
+     */
+    private void spoolOrDrop(AlarmNoticeTask task) {
+        if (null != alarmSpool && alarmSpool.append(task)) {
+            return;
+        }
+        countDropped(task);
+    }
+
+    private void countDropped(AlarmNoticeTask task) {
+        droppedCount.incrementAndGet();
+        if (null != alarmMetrics) {
+            alarmMetrics.onDropped();
+        }
+        log.warn("预警未发送 丢弃预警 入队时间 {}", task.getEnqueueTime());
+    }
+
+}
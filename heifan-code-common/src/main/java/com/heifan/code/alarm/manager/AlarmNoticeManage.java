@@ -1,16 +1,13 @@
 package com.heifan.code.alarm.manager;
 
-import cn.hutool.core.util.StrUtil;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.dto.ExceptionNotice;
 import com.heifan.code.alarm.dto.ServiceNotice;
 import com.heifan.code.alarm.message.AlarmNoticeSendI;
+import com.heifan.code.alarm.metrics.AlarmMetrics;
 import com.heifan.code.alarm.property.AlarmNoticeProperty;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.util.StringUtils;
-
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  *
@@ -22,30 +19,29 @@ public class AlarmNoticeManage {
 
     private AlarmNoticeProperty alarmNoticeProperty;
 
-    private final Map<String, String> blameMap = new HashMap<>();
+    @Autowired
+    AlarmWebHookTokenManager alarmWebHookTokenManager;
 
     @Autowired(required = false)
     AlarmNoticeSendI alarmNoticeSend;
 
+    @Autowired(required = false)
+    AlarmNoticeDispatcher alarmNoticeDispatcher;
+
+    @Autowired(required = false)
+    AlarmNoticeDeduplicator alarmNoticeDeduplicator;
+
+    @Autowired(required = false)
+    AlarmNoticeSampler alarmNoticeSampler;
+
+    @Autowired(required = false)
+    AlarmClusterDeduplicator alarmClusterDeduplicator;
+
+    @Autowired(required = false)
+    AlarmMetrics alarmMetrics;
+
     public AlarmNoticeManage(AlarmNoticeProperty alarmNoticeProperty) {
         this.alarmNoticeProperty = alarmNoticeProperty;
-        if (!alarmNoticeProperty.getNotice().isEmpty()) {
-            Iterator<Map.Entry<String, String>> entries = alarmNoticeProperty.getNotice().entrySet().iterator();
-            while (entries.hasNext()) {
-                Map.Entry<String, String> entry = entries.next();
-                String name = entry.getKey();
-                String phone = entry.getValue();
-                String regex = "^((1[0-9])([0-9])|(14[5|7])|(15([0-3]|[5-9]))|(17[013678])|(18[0,5-9]))\\d{8}$";
-                Pattern p = Pattern.compile(regex);
-                Matcher m = p.matcher(phone);
-                boolean isMatch = m.matches();
-                if (!isMatch) {
-                    log.error(" 预警手机号 格式不正确。name  {} phone  {}", name, phone);
-                    continue;
-                }
-                blameMap.put(name, phone);
-            }
-        }
     }
 
     /**
@@ -56,7 +52,7 @@ public class AlarmNoticeManage {
      */
     public void createNotice(ServiceNotice serviceNotice, String blamedFor) {
         blamedFor = checkBlameFor(blamedFor);
-        alarmNoticeSend.send(serviceNotice, blamedFor);
+        dispatch(AlarmNoticeTask.of(serviceNotice, blamedFor));
     }
 
     /**
@@ -65,14 +61,7 @@ public class AlarmNoticeManage {
      * @return
      */
     public void createNoticeAll(ServiceNotice serviceNotice) {
-        if (blameMap.isEmpty()) {
-            String[] blamedForArr = new String[]{};
-            alarmNoticeSend.send(serviceNotice, blamedForArr);
-        } else {
-            String[] blamedForArr = new String[blameMap.size()];
-            blamedForArr = blameMap.values().toArray(blamedForArr);
-            alarmNoticeSend.send(serviceNotice, blamedForArr);
-        }
+        dispatch(AlarmNoticeTask.of(serviceNotice, routing().getAllRecipients()));
     }
 
 
@@ -84,7 +73,7 @@ public class AlarmNoticeManage {
      */
     public void createNoticeMany(ServiceNotice serviceNotice, String... blamedFor) {
         String[] blamedForArr = checkBlameFor(blamedFor);
-        alarmNoticeSend.send(serviceNotice, blamedForArr);
+        dispatch(AlarmNoticeTask.of(serviceNotice, blamedForArr));
     }
 
 
@@ -96,7 +85,7 @@ public class AlarmNoticeManage {
      */
     public void createNotice(Throwable throwable, String extMessage, String blamedFor) {
         blamedFor = checkBlameFor(blamedFor);
-        alarmNoticeSend.sendNotice(throwable, extMessage, blamedFor);
+        dispatchNotice(throwable, null, extMessage, blamedFor);
     }
 
     /**
@@ -105,25 +94,18 @@ public class AlarmNoticeManage {
      * @return
      */
     public void createNoticeAll(Throwable throwable, String extMessage) {
-        if (blameMap.isEmpty()) {
-            String[] blamedForArr = new String[]{};
-            alarmNoticeSend.sendNotice(throwable, extMessage, blamedForArr);
-        } else {
-            String[] blamedForArr = new String[blameMap.size()];
-            blamedForArr = blameMap.values().toArray(blamedForArr);
-            alarmNoticeSend.sendNotice(throwable, extMessage, blamedForArr);
-        }
+        dispatchNotice(throwable, null, extMessage, routing().getAllRecipients());
     }
 
     /**
      * 最基础的异常通知的创建方法
      *
      * @param blamedFor ？
-     * @return
+     * @return 生成的异常通知，可复用其指纹信息
      */
-    public void createNoticeAppTraceIdMany(Throwable throwable, String appTraceId, String extMessage, String... blamedFor) {
+    public ExceptionNotice createNoticeAppTraceIdMany(Throwable throwable, String appTraceId, String extMessage, String... blamedFor) {
         String[] blamedForArr = checkBlameFor(blamedFor);
-        alarmNoticeSend.sendNotice(throwable, appTraceId, extMessage, blamedForArr);
+        return dispatchNotice(throwable, appTraceId, extMessage, blamedForArr);
     }
 
     /**
@@ -134,36 +116,81 @@ public class AlarmNoticeManage {
      */
     public void createNoticeMany(Throwable throwable, String extMessage, String... blamedFor) {
         String[] blamedForArr = checkBlameFor(blamedFor);
-        alarmNoticeSend.sendNotice(throwable, extMessage, blamedForArr);
+        dispatchNotice(throwable, null, extMessage, blamedForArr);
     }
 
-
-    private String checkBlameFor(String blameFor) {
-        if (StringUtils.isEmpty(blameFor) || (!blameMap.containsKey(blameFor))) {
-            return blameMap.get(alarmNoticeProperty.getDefaultNotice());
+    /**
+     * 采样、本实例去重后交给派发器，被采样丢弃或窗口内重复的异常只计数，集群去重由派发线程在发送前完成
+     *
+     * @param throwable  异常
+     * @param appTraceId 链路id
+     * @param extMessage 附加信息
+     * @param blamedFor  通知人
+     * @return 生成的异常通知
+     */
+    private ExceptionNotice dispatchNotice(Throwable throwable, String appTraceId, String extMessage, String... blamedFor) {
+        ExceptionNotice exceptionNotice = new ExceptionNotice(throwable, appTraceId, new String[]{extMessage});
+        exceptionNotice.setProject(alarmNoticeProperty.getProjectName());
+        if (null != alarmNoticeSampler && !alarmNoticeSampler.sample(throwable, exceptionNotice.getUid())) {
+            if (null != alarmMetrics) {
+                alarmMetrics.onCreated();
+                alarmMetrics.onSampled();
+            }
+            return exceptionNotice;
         }
-        return blameMap.get(blameFor);
+        if (null != alarmNoticeDeduplicator && !alarmNoticeDeduplicator.offer(exceptionNotice, blamedFor)) {
+            if (null != alarmMetrics) {
+                alarmMetrics.onCreated();
+                alarmMetrics.onDeduplicated();
+            }
+            return exceptionNotice;
+        }
+        dispatch(AlarmNoticeTask.of(exceptionNotice, blamedFor));
+        return exceptionNotice;
     }
 
-    private String[] checkBlameFor(String... blameFor) {
-        if (null == blameFor || blameFor.length == 0) {
-            return new String[]{alarmNoticeProperty.getDefaultNotice()};
-        } else {
-            Set<String> blameForSet = new HashSet<>();
-            String temp = null;
-            for (int i = 0; i < blameFor.length; i++) {
-                if (null != blameFor[i]) {
-                    temp = blameFor[i];
-                    if (StrUtil.isEmpty(temp) || (!blameMap.containsKey(temp))) {
-                        temp = blameMap.get(alarmNoticeProperty.getDefaultNotice());
-                    } else {
-                        temp = blameMap.get(temp);
-                    }
-                    blameForSet.add(temp);
+    /**
+     * 交给派发器异步发送，未启用派发器时在当前线程集群去重并发送
+     *
+     * @param task 预警任务
+     */
+    private void dispatch(AlarmNoticeTask task) {
+        if (null != alarmMetrics) {
+            alarmMetrics.onCreated();
+        }
+        if (null != alarmNoticeDispatcher) {
+            alarmNoticeDispatcher.dispatch(task);
+            return;
+        }
+        if (null != alarmClusterDeduplicator) {
+            task = alarmClusterDeduplicator.offer(task);
+            if (null == task) {
+                if (null != alarmMetrics) {
+                    alarmMetrics.onDeduplicated();
                 }
+                return;
             }
-            return blameForSet.toArray(new String[blameForSet.size()]);
         }
+        try {
+            alarmNoticeSend.send(task);
+        } catch (AlarmTokenExhaustedException e) {
+            log.warn("预警未发送 令牌限流额度已用完 {}", e.getChannels());
+            if (null != alarmMetrics) {
+                alarmMetrics.onDropped();
+            }
+        }
+    }
+
+    private AlarmRoutingSnapshot routing() {
+        return alarmWebHookTokenManager.routing();
+    }
+
+    private String checkBlameFor(String blameFor) {
+        return routing().recipient(blameFor);
+    }
+
+    private String[] checkBlameFor(String... blameFor) {
+        return routing().recipients(blameFor);
     }
 
 
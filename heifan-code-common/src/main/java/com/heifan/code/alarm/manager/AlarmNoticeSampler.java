@@ -0,0 +1,208 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @description 按异常类型与标识码自适应采样。
+ * 同一异常前 N 次全部通知，之后第 N+1、N+3、N+7 ... 次通知，间隔按 2 倍递增直到上限，
+ * 安静一段时间后重新计数。预警量与开销随不同问题的数量增长，而不是随流量增长。
+ * 超出容量的淘汰由后台线程完成，业务线程只做一次 O(1) 的提交
+ * @author HiF
+ * @date 2026/10/18 21:20
+ */
+@Slf4j
+public class AlarmNoticeSampler {
+
+    private static final long SWEEP_INTERVAL_SECONDS = 10;
+
+    private final AlarmNoticeProperty.SampleRule defaults;
+
+    private final Map<String, AlarmNoticeProperty.SampleRule> overrides;
+
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<String, SampleEntry> entries = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * 是否已提交一次淘汰，避免业务线程重复提交
+     */
+    private final AtomicBoolean sweepPending = new AtomicBoolean(false);
+
+    /**
+     * 异常类 -> 规则，沿父类查找覆盖配置，结果按类缓存
+     */
+    private final ClassValue<AlarmNoticeProperty.SampleRule> rules = new ClassValue<AlarmNoticeProperty.SampleRule>() {
+        @Override
+        protected AlarmNoticeProperty.SampleRule computeValue(Class<?> type) {
+            for (Class<?> current = type; null != current; current = current.getSuperclass()) {
+                AlarmNoticeProperty.SampleRule rule = overrides.get(current.getName());
+                if (null != rule) {
+                    return rule;
+                }
+            }
+            return defaults;
+        }
+    };
+
+    public AlarmNoticeSampler(AlarmNoticeProperty.Sample sample) {
+        this.defaults = null == sample.getDefaults() ? new AlarmNoticeProperty.SampleRule() : sample.getDefaults();
+        this.overrides = null == sample.getClasses() ? new ConcurrentHashMap<>() : sample.getClasses();
+        this.maxEntries = Math.max(1, sample.getMaxEntries());
+        log.info("init alarmNoticeSampler initialPasses {} maxInterval {} quietSeconds {} overrides {}",
+                defaults.getInitialPasses(), defaults.getMaxInterval(), defaults.getQuietSeconds(), overrides.keySet());
+    }
+
+    public synchronized void start() {
+        if (null != sweeper) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alarm-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (null != sweeper) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * 登记一次异常
+     *
+     * @param throwable 异常
+     * @param uid       异常标识码
+     * @return true 需要通知，false 被采样丢弃
+     */
+    public boolean sample(Throwable throwable, String uid) {
+        if (null == throwable || null == uid) {
+            return true;
+        }
+        AlarmNoticeProperty.SampleRule rule = rules.get(throwable.getClass());
+        if (!rule.isEnabled()) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long quietNanos = TimeUnit.SECONDS.toNanos(rule.getQuietSeconds());
+        SampleEntry entry = entries.get(uid);
+        if (null == entry || now - entry.lastSeen >= quietNanos) {
+            if (null == entry && entries.size() >= maxEntries * 2) {
+                // 淘汰跟不上时不再跟踪新异常，直接通知
+                requestSweep();
+                return true;
+            }
+            SampleEntry created = new SampleEntry(rule, now);
+            if (null == entry ? null == entries.putIfAbsent(uid, created) : entries.replace(uid, entry, created)) {
+                if (null == entry && entries.size() > maxEntries) {
+                    requestSweep();
+                }
+                return true;
+            }
+            entry = entries.get(uid);
+            if (null == entry) {
+                return true;
+            }
+        }
+        return entry.offer(now);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 超出容量时提交一次淘汰到后台线程，未启动后台线程时只靠容量上限保护
+     */
+    private void requestSweep() {
+        ScheduledExecutorService current = sweeper;
+        if (null == current || !sweepPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            current.execute(this::sweep);
+        } catch (RejectedExecutionException e) {
+            sweepPending.set(false);
+        }
+    }
+
+    /**
+     * 移除已安静的异常，仍超出容量时按最后出现时间排序一次，移除最久未出现的
+     */
+    void sweep() {
+        sweepPending.set(false);
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.lastSeen >= entry.quietNanos);
+        int surplus = entries.size() - maxEntries;
+        if (surplus <= 0) {
+            return;
+        }
+        List<Map.Entry<String, SampleEntry>> eldest = new ArrayList<>(entries.entrySet());
+        eldest.sort(Comparator.comparingLong(e -> e.getValue().lastSeen));
+        for (int i = 0; i < surplus && i < eldest.size(); i++) {
+            entries.remove(eldest.get(i).getKey(), eldest.get(i).getValue());
+        }
+    }
+
+    private static class SampleEntry {
+
+        private final long initialPasses;
+
+        private final long maxInterval;
+
+        private final long quietNanos;
+
+        private final AtomicLong count = new AtomicLong(1);
+
+        private volatile long nextPass;
+
+        private long interval = 1;
+
+        private volatile long lastSeen;
+
+        SampleEntry(AlarmNoticeProperty.SampleRule rule, long now) {
+            this.initialPasses = Math.max(1, rule.getInitialPasses());
+            this.maxInterval = Math.max(1, rule.getMaxInterval());
+            this.quietNanos = TimeUnit.SECONDS.toNanos(rule.getQuietSeconds());
+            this.nextPass = initialPasses + 1;
+            this.lastSeen = now;
+        }
+
+        boolean offer(long now) {
+            lastSeen = now;
+            long current = count.incrementAndGet();
+            if (current <= initialPasses) {
+                return true;
+            }
+            if (current < nextPass) {
+                return false;
+            }
+            synchronized (this) {
+                if (current < nextPass) {
+                    return false;
+                }
+                interval = Math.min(maxInterval, interval * 2);
+                nextPass = current + interval;
+                return true;
+            }
+        }
+    }
+}
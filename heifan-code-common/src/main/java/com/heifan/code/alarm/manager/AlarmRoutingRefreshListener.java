@@ -0,0 +1,54 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+import java.util.Set;
+
+/**
+ * @description 配置中心刷新 alarm.* 配置后重新生成路由快照，令牌、通知人无需重启即可生效。
+ * 新配置直接从 Environment 绑定，不依赖配置类的重新绑定顺序；新配置不合法时沿用原快照
+ * @author HiF
+ * @date 2026/10/18 21:05
+ */
+@Slf4j
+public class AlarmRoutingRefreshListener implements ApplicationListener<EnvironmentChangeEvent> {
+
+    private static final String PREFIX = "alarm";
+
+    @Autowired
+    Environment environment;
+
+    @Autowired
+    AlarmWebHookTokenManager alarmWebHookTokenManager;
+
+    @Override
+    public void onApplicationEvent(EnvironmentChangeEvent event) {
+        if (!affectsRouting(event.getKeys())) {
+            return;
+        }
+        try {
+            AlarmNoticeProperty property = Binder.get(environment)
+                    .bind(PREFIX, AlarmNoticeProperty.class)
+                    .orElseGet(AlarmNoticeProperty::new);
+            property.resolveWebHook(environment.getProperty("spring.profiles.active", ""));
+            alarmWebHookTokenManager.reload(property);
+        } catch (Exception e) {
+            log.error("预警路由配置刷新失败 沿用原配置", e);
+        }
+    }
+
+    private static boolean affectsRouting(Set<String> keys) {
+        for (String key : keys) {
+            if (key.startsWith(PREFIX + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
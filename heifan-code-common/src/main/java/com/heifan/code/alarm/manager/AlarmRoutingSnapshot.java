@@ -0,0 +1,188 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * @description 预警路由配置快照：平台、令牌、通知人与默认通知人。
+ * 创建后不再修改，配置变更时整体替换，读取方只需一次 volatile 读。
+ * 返回的数组为共享实例，调用方不得修改
+ * @author HiF
+ * @date 2026/10/18 20:50
+ */
+@Slf4j
+@Getter
+public final class AlarmRoutingSnapshot {
+
+    private static final Pattern PHONE = Pattern.compile(
+            "^((1[0-9])([0-9])|(14[5|7])|(15([0-3]|[5-9]))|(17[013678])|(18[0,5-9]))\\d{8}$");
+
+    private static final String[] EMPTY = new String[0];
+
+    private final AlarmNoticeEnum type;
+
+    private final List<AlarmNoticeEnum> channelTypes;
+
+    private final Map<AlarmNoticeEnum, AlarmWebHookToken[]> channelTokens;
+
+    private final Integer tokenLimitPerMinute;
+
+    private final String defaultNotice;
+
+    /**
+     * 通知人 -> 手机号
+     */
+    private final Map<String, String> blameMap;
+
+    /**
+     * 所有通知人的手机号
+     */
+    private final String[] allRecipients;
+
+    /**
+     * 默认通知人的手机号
+     */
+    private final String defaultRecipient;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final Map<String, String[]> recipients;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final String[] defaultRecipients;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final String[] defaultNotices;
+
+    private AlarmRoutingSnapshot(AlarmNoticeProperty property, Map<AlarmNoticeEnum, AlarmWebHookToken[]> channelTokens,
+                                 Map<String, String> blameMap) {
+        this.type = property.getType();
+        this.channelTypes = Collections.unmodifiableList(property.channelTypes());
+        this.channelTokens = channelTokens;
+        this.tokenLimitPerMinute = property.getTokenLimitPerMinute();
+        this.defaultNotice = property.getDefaultNotice();
+        this.blameMap = Collections.unmodifiableMap(blameMap);
+        this.allRecipients = blameMap.values().toArray(new String[0]);
+        this.defaultRecipient = blameMap.get(defaultNotice);
+        this.defaultRecipients = new String[]{defaultRecipient};
+        this.defaultNotices = new String[]{defaultNotice};
+        Map<String, String[]> resolved = new HashMap<>(blameMap.size() * 2);
+        for (Map.Entry<String, String> entry : blameMap.entrySet()) {
+            resolved.put(entry.getKey(), new String[]{entry.getValue()});
+        }
+        this.recipients = resolved;
+    }
+
+    /**
+     * 按配置创建快照，令牌与上一份快照相同时沿用其限流桶与熔断状态
+     *
+     * @param property 配置，webHook 已按环境选好
+     * @param previous 上一份快照，可为 null
+     */
+    public static AlarmRoutingSnapshot build(AlarmNoticeProperty property, AlarmRoutingSnapshot previous)
+            throws IllegalAccessException {
+        boolean reuse = null != previous && Objects.equals(previous.tokenLimitPerMinute, property.getTokenLimitPerMinute());
+        Map<AlarmNoticeEnum, AlarmWebHookToken[]> loaded = new EnumMap<>(AlarmNoticeEnum.class);
+        for (AlarmNoticeEnum channelType : property.channelTypes()) {
+            List<String> webHook = webHook(property, channelType);
+            if (null == webHook || webHook.isEmpty()) {
+                throw new IllegalAccessException("预警模块配置文件初始化异常,项目未初始化 " + channelType + " webHook , 预警无法初始化回调信息");
+            }
+            AlarmWebHookToken[] tokens = new AlarmWebHookToken[webHook.size()];
+            for (int i = 0; i < webHook.size(); i++) {
+                AlarmWebHookToken token = reuse ? previous.find(channelType, webHook.get(i)) : null;
+                tokens[i] = null != token ? token : new AlarmWebHookToken(webHook.get(i),
+                        new AlarmTokenBucket(property.getTokenLimitPerMinute()),
+                        new AlarmTokenHealth(property.getCircuitBreaker()));
+            }
+            loaded.put(channelType, tokens);
+        }
+        if (loaded.isEmpty()) {
+            throw new IllegalAccessException("预警模块配置文件初始化异常,项目未初始化 webHook , 钉钉预警无法初始化回调信息");
+        }
+        Map<String, String> blameMap = new LinkedHashMap<>();
+        if (null != property.getNotice()) {
+            for (Map.Entry<String, String> entry : property.getNotice().entrySet()) {
+                String name = entry.getKey();
+                String phone = entry.getValue();
+                if (null == phone || !PHONE.matcher(phone).matches()) {
+                    log.error(" 预警手机号 格式不正确。name  {} phone  {}", name, phone);
+                    continue;
+                }
+                blameMap.put(name, phone);
+            }
+        }
+        return new AlarmRoutingSnapshot(property, Collections.unmodifiableMap(loaded), blameMap);
+    }
+
+    private static List<String> webHook(AlarmNoticeProperty property, AlarmNoticeEnum channelType) {
+        AlarmNoticeProperty.Channel channel = property.getChannels().get(channelType);
+        if (null != channel && null != channel.getWebHook() && !channel.getWebHook().isEmpty()) {
+            return channel.getWebHook();
+        }
+        return channelType == property.getType() ? property.getWebHook() : null;
+    }
+
+    AlarmWebHookToken find(AlarmNoticeEnum channelType, String token) {
+        AlarmWebHookToken[] tokens = channelTokens.get(channelType);
+        if (null != tokens) {
+            for (AlarmWebHookToken webHookToken : tokens) {
+                if (webHookToken.getToken().equals(token)) {
+                    return webHookToken;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 通知人的手机号，未配置时使用默认通知人
+     */
+    public String recipient(String name) {
+        String phone = null == name ? null : blameMap.get(name);
+        return null == phone ? defaultRecipient : phone;
+    }
+
+    /**
+     * 通知人的手机号，去重，未配置的通知人使用默认通知人，未指定通知人时返回默认通知人
+     */
+    public String[] recipients(String... names) {
+        if (null == names || names.length == 0) {
+            return defaultNotices;
+        }
+        if (names.length == 1) {
+            if (null == names[0]) {
+                return EMPTY;
+            }
+            String[] resolved = recipients.get(names[0]);
+            return null == resolved ? defaultRecipients : resolved;
+        }
+        String[] resolved = new String[names.length];
+        int size = 0;
+        outer:
+        for (String name : names) {
+            if (null == name) {
+                continue;
+            }
+            String phone = recipient(name);
+            for (int i = 0; i < size; i++) {
+                if (Objects.equals(resolved[i], phone)) {
+                    continue outer;
+                }
+            }
+            resolved[size++] = phone;
+        }
+        return size == resolved.length ? resolved : Arrays.copyOf(resolved, size);
+    }
+}
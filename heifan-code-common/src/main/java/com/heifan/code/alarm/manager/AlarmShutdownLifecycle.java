@@ -0,0 +1,74 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * @description 停机排空：应用关闭时先发出去重窗口内的合并通知，再停止接收新预警并排空派发队列与汇总，
+ * 在截止时间内发不完的预警写入 spool(未开启时丢弃并计数)，停机耗时有上限。
+ * phase 低于 Web 容器的优雅停机，正在处理的请求产生的预警也能发出
+ * @author HiF
+ * @date 2026/10/18 22:50
+ */
+@Slf4j
+public class AlarmShutdownLifecycle implements SmartLifecycle {
+
+    private final AlarmNoticeProperty.Shutdown shutdown;
+
+    private volatile boolean running;
+
+    @Autowired(required = false)
+    AlarmNoticeDispatcher alarmNoticeDispatcher;
+
+    @Autowired(required = false)
+    AlarmNoticeDeduplicator alarmNoticeDeduplicator;
+
+    public AlarmShutdownLifecycle(AlarmNoticeProperty.Shutdown shutdown) {
+        this.shutdown = shutdown;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        long start = System.currentTimeMillis();
+        if (null != alarmNoticeDeduplicator) {
+            try {
+                alarmNoticeDeduplicator.flush();
+            } catch (Exception e) {
+                log.error("停机排空 合并通知发送失败", e);
+            }
+        }
+        if (null == alarmNoticeDispatcher) {
+            return;
+        }
+        long dropped = alarmNoticeDispatcher.getDroppedCount();
+        int unsent = alarmNoticeDispatcher.drain(shutdown.getTimeoutMillis());
+        dropped = alarmNoticeDispatcher.getDroppedCount() - dropped;
+        if (unsent > 0) {
+            log.warn("停机排空超时 未发送预警 {} 条 其中丢弃 {} 条 耗时 {} ms", unsent, dropped,
+                    System.currentTimeMillis() - start);
+        } else {
+            log.info("停机排空完成 耗时 {} ms", System.currentTimeMillis() - start);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return shutdown.getPhase();
+    }
+}
@@ -0,0 +1,107 @@
+package com.heifan.code.alarm.manager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @description webHook 令牌桶，无锁实现。
+ * 只保存一个"理论到达时间"(GCRA)，每次取令牌做一次 CAS，容量为每分钟限流数，按均匀速率补充。
+ * @author HiF
+ * @date 2026/10/18 11:02
+ */
+public class AlarmTokenBucket {
+
+    /**
+     * 补充一个令牌需要的时间
+     */
+    private final long intervalNanos;
+
+    /**
+     * 桶容量对应的时间
+     */
+    private final long burstNanos;
+
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param limitPerMinute 每分钟限流数，小于等于 0 表示不限流
+     */
+    public AlarmTokenBucket(Integer limitPerMinute) {
+        if (null == limitPerMinute || limitPerMinute <= 0) {
+            this.intervalNanos = 0;
+            this.burstNanos = 0;
+        } else {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / limitPerMinute;
+            this.burstNanos = intervalNanos * limitPerMinute;
+        }
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @return 是否取到
+     */
+    public boolean tryAcquire() {
+        if (intervalNanos == 0) {
+            return true;
+        }
+        for (; ; ) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrival.get();
+            long next = Math.max(tat, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还一个取到但未使用的令牌，最多归还到桶满
+     */
+    public void release() {
+        if (intervalNanos == 0) {
+            return;
+        }
+        for (; ; ) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrival.get();
+            if (tat - now <= 0) {
+                return;
+            }
+            long next = Math.max(now, tat - intervalNanos);
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 距离下一个可用令牌的时间
+     *
+     * @return 纳秒，0 表示当前可用
+     */
+    public long nanosUntilAvailable() {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long wait = Math.max(theoreticalArrival.get(), now) + intervalNanos - burstNanos - now;
+        return Math.max(0, wait);
+    }
+
+    /**
+     * 当前剩余令牌数
+     */
+    public long availablePermits() {
+        if (intervalNanos == 0) {
+            return Long.MAX_VALUE;
+        }
+        long now = System.nanoTime();
+        long used = Math.max(theoreticalArrival.get(), now) - now;
+        return Math.max(0, (burstNanos - used) / intervalNanos);
+    }
+}
@@ -0,0 +1,37 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * @description webHook 令牌的限流额度都已用完
+ * @author HiF
+ * @date 2026/10/18 11:10
+ */
+@Getter
+public class AlarmTokenExhaustedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 距离最近一个令牌可用的时间(纳秒)
+     */
+    private final long waitNanos;
+
+    /**
+     * 额度用完的平台，null 表示所有平台
+     */
+    private final List<AlarmNoticeEnum> channels;
+
+    public AlarmTokenExhaustedException(long waitNanos) {
+        this(waitNanos, null);
+    }
+
+    public AlarmTokenExhaustedException(long waitNanos, List<AlarmNoticeEnum> channels) {
+        super("webHook 令牌限流额度已用完", null, false, false);
+        this.waitNanos = waitNanos;
+        this.channels = channels;
+    }
+}
@@ -0,0 +1,156 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @description webHook 令牌健康状态与熔断器。
+ * 连续失败达到阈值或平台返回限流错误码时熔断，熔断期过后放行一次探测请求(半开)，探测成功则恢复。
+ * @author HiF
+ * @date 2026/10/18 13:40
+ */
+public class AlarmTokenHealth {
+
+    /**
+     * 延迟 EWMA 的平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    public enum State {
+        /**
+         * 正常
+         */
+        CLOSED,
+        /**
+         * 熔断
+         */
+        OPEN,
+        /**
+         * 熔断期已过，等待探测结果
+         */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    /**
+     * 进入当前状态的时间
+     */
+    private volatile long stateSince = System.nanoTime();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+
+    private final AtomicLong rateLimitedCount = new AtomicLong(0);
+
+    /**
+     * 延迟 EWMA(纳秒)，按 double 的 bit 存储
+     */
+    private final AtomicLong latencyEwma = new AtomicLong(Double.doubleToLongBits(0D));
+
+    public AlarmTokenHealth(AlarmNoticeProperty.CircuitBreaker circuitBreaker) {
+        this.failureThreshold = Math.max(1, circuitBreaker.getFailureThreshold());
+        this.openNanos = TimeUnit.SECONDS.toNanos(Math.max(1, circuitBreaker.getOpenSeconds()));
+    }
+
+    /**
+     * 是否允许发送，熔断期已过时只放行一个探测请求
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - stateSince < openNanos) {
+            return false;
+        }
+        // OPEN 超过熔断期进入半开；HALF_OPEN 的探测超过熔断期仍未回报时重新放行一次探测
+        if (state.compareAndSet(current, State.HALF_OPEN)) {
+            stateSince = now;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 取到的探测请求未真正发出时归还
+     */
+    public void releaseProbe() {
+        if (state.get() == State.HALF_OPEN) {
+            stateSince = System.nanoTime() - openNanos;
+        }
+    }
+
+    public void onSuccess(long latencyNanos) {
+        updateLatency(latencyNanos);
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            stateSince = System.nanoTime();
+        }
+    }
+
+    /**
+     * @param rateLimited 是否被平台限流
+     */
+    public void onFailure(boolean rateLimited, long latencyNanos) {
+        updateLatency(latencyNanos);
+        int failures = consecutiveFailures.incrementAndGet();
+        if (rateLimited) {
+            rateLimitedCount.incrementAndGet();
+        }
+        if (rateLimited || failures >= failureThreshold || state.get() == State.HALF_OPEN) {
+            state.set(State.OPEN);
+            stateSince = System.nanoTime();
+        }
+    }
+
+    /**
+     * 距离可以探测的时间
+     *
+     * @return 纳秒，0 表示可用
+     */
+    public long nanosUntilAvailable() {
+        if (state.get() == State.CLOSED) {
+            return 0;
+        }
+        return Math.max(0, stateSince + openNanos - System.nanoTime());
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimitedCount.get();
+    }
+
+    public long getLatencyEwmaNanos() {
+        return (long) Double.longBitsToDouble(latencyEwma.get());
+    }
+
+    private void updateLatency(long latencyNanos) {
+        if (latencyNanos <= 0) {
+            return;
+        }
+        for (; ; ) {
+            long bits = latencyEwma.get();
+            double current = Double.longBitsToDouble(bits);
+            double next = current == 0D ? latencyNanos : current + EWMA_ALPHA * (latencyNanos - current);
+            if (latencyEwma.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+}
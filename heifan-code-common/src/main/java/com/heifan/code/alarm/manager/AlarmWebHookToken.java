@@ -0,0 +1,63 @@
+package com.heifan.code.alarm.manager;
+
+import lombok.Getter;
+
+/**
+ * @description webHook 令牌及其限流桶、健康状态
+ * @author HiF
+ * @date 2026/10/18 13:55
+ */
+@Getter
+public class AlarmWebHookToken {
+
+    private final String token;
+
+    private final AlarmTokenBucket bucket;
+
+    private final AlarmTokenHealth health;
+
+    public AlarmWebHookToken(String token, AlarmTokenBucket bucket, AlarmTokenHealth health) {
+        this.token = token;
+        this.bucket = bucket;
+        this.health = health;
+    }
+
+    /**
+     * 熔断器允许、集群额度与本地限流桶都有余量时占用一次发送
+     *
+     * @param clusterRateLimiter 集群限流，可为 null
+     */
+    boolean tryAcquire(AlarmClusterRateLimiter clusterRateLimiter) {
+        if (!health.allowRequest()) {
+            return false;
+        }
+        if (null != clusterRateLimiter && !clusterRateLimiter.tryAcquire(token)) {
+            health.releaseProbe();
+            return false;
+        }
+        if (bucket.tryAcquire()) {
+            return true;
+        }
+        if (null != clusterRateLimiter) {
+            clusterRateLimiter.release(token);
+        }
+        health.releaseProbe();
+        return false;
+    }
+
+    /**
+     * 归还 tryAcquire 占用但未发送的一次
+     */
+    void release(AlarmClusterRateLimiter clusterRateLimiter) {
+        bucket.release();
+        if (null != clusterRateLimiter) {
+            clusterRateLimiter.release(token);
+        }
+        health.releaseProbe();
+    }
+
+    long nanosUntilAvailable(AlarmClusterRateLimiter clusterRateLimiter) {
+        long wait = Math.max(health.nanosUntilAvailable(), bucket.nanosUntilAvailable());
+        return null == clusterRateLimiter ? wait : Math.max(wait, clusterRateLimiter.nanosUntilAvailable(token));
+    }
+}
@@ -1,16 +1,17 @@
 package com.heifan.code.alarm.manager;
 
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.dto.AlarmResult;
+import com.heifan.code.alarm.metrics.AlarmMetrics;
 import com.heifan.code.alarm.property.AlarmNoticeProperty;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static java.util.Collections.synchronizedMap;
-
 /**
  *
  * @author HiF
@@ -23,29 +24,205 @@ public class AlarmWebHookTokenManager {
     @Autowired(required = false)
     AlarmNoticeProperty alarmNoticeProperty;
 
+    @Autowired(required = false)
+    AlarmMetrics alarmMetrics;
+
+    @Autowired(required = false)
+    AlarmClusterRateLimiter alarmClusterRateLimiter;
+
     /**
      * 计数器
      */
     private AtomicInteger counter = new AtomicInteger(0);
 
-    private final Map<Integer, String> tokenMaps = synchronizedMap(new LinkedHashMap<>());
+    /**
+     * 路由配置快照，配置变更时整体替换
+     */
+    private volatile AlarmRoutingSnapshot routing;
 
     public void loadToken() throws IllegalAccessException {
         log.info("init alarmDingTalkWebHookTokenManager loadToken");
-        tokenMaps.clear();
-        if (null != alarmNoticeProperty.getWebHook() && !alarmNoticeProperty.getWebHook().isEmpty()) {
-            for (int i = 0; i < alarmNoticeProperty.getWebHook().size(); i++) {
-                tokenMaps.put(i, alarmNoticeProperty.getWebHook().get(i));
+        routing = AlarmRoutingSnapshot.build(alarmNoticeProperty, routing);
+    }
+
+    /**
+     * 按新配置替换路由快照，未变化的令牌保留限流与熔断状态
+     *
+     * @param property 新配置，webHook 已按环境选好
+     */
+    public void reload(AlarmNoticeProperty property) throws IllegalAccessException {
+        AlarmRoutingSnapshot loaded = AlarmRoutingSnapshot.build(property, routing);
+        routing = loaded;
+        log.info("alarm routing reloaded channels {} notice {}", loaded.getChannelTypes(), loaded.getBlameMap().keySet());
+    }
+
+    public AlarmRoutingSnapshot routing() {
+        return routing;
+    }
+
+    private Map<AlarmNoticeEnum, AlarmWebHookToken[]> channelTokens() {
+        AlarmRoutingSnapshot current = routing;
+        return null == current ? Collections.emptyMap() : current.getChannelTokens();
+    }
+
+    /**
+     * 轮询取 type 平台一个未熔断且仍有限流额度的令牌
+     *
+     * @return webHook 令牌
+     * @throws AlarmTokenExhaustedException 所有令牌都已熔断或额度用完，调用方应排队或合并后再发送
+     */
+    public String availableToken() {
+        AlarmRoutingSnapshot current = routing;
+        return availableToken(null == current ? alarmNoticeProperty.getType() : current.getType());
+    }
+
+    /**
+     * 轮询取平台一个未熔断且仍有限流额度的令牌
+     *
+     * @param channelType 平台
+     * @return webHook 令牌
+     * @throws AlarmTokenExhaustedException 所有令牌都已熔断或额度用完，调用方应排队或合并后再发送
+     */
+    public String availableToken(AlarmNoticeEnum channelType) {
+        return availableToken(channelType, null);
+    }
+
+    /**
+     * 轮询取平台一个未熔断且仍有限流额度的令牌，优先避开 exclude，其他令牌都不可用时才返回它。
+     * 重试与对冲时用来换一个令牌
+     *
+     * @param channelType 平台
+     * @param exclude     需要避开的令牌，可为 null
+     * @return webHook 令牌
+     * @throws AlarmTokenExhaustedException 所有令牌都已熔断或额度用完
+     */
+    public String availableToken(AlarmNoticeEnum channelType, String exclude) {
+        AlarmWebHookToken[] current = channelTokens().get(channelType);
+        if (null == current || current.length == 0) {
+            throw new IllegalStateException("预警模块未初始化 " + channelType + " webHook 令牌");
+        }
+        int length = current.length;
+        int start = counter.incrementAndGet();
+        AlarmWebHookToken excluded = null;
+        for (int i = 0; i < length; i++) {
+            AlarmWebHookToken token = current[Math.floorMod(start + i, length)];
+            if (length > 1 && token.getToken().equals(exclude)) {
+                excluded = token;
+                continue;
+            }
+            if (token.tryAcquire(alarmClusterRateLimiter)) {
+                return token.getToken();
             }
-        } else {
-            throw new IllegalAccessException("预警模块配置文件初始化异常,项目未初始化 webHook , 钉钉预警无法初始化回调信息");
         }
+        if (null != excluded && excluded.tryAcquire(alarmClusterRateLimiter)) {
+            return excluded.getToken();
+        }
+        throw new AlarmTokenExhaustedException(nanosUntilAvailable(current));
     }
 
-    public String availableToken() {
-        int length = tokenMaps.size();
-        int index = counter.incrementAndGet();
-        return tokenMaps.get(index % length);
+    /**
+     * 平台除 exclude 外是否还有当前可用的令牌，只读状态不占用额度，对冲前用来判断是否值得取令牌
+     */
+    public boolean hasAlternativeToken(AlarmNoticeEnum channelType, String exclude) {
+        AlarmWebHookToken[] current = channelTokens().get(channelType);
+        if (null == current) {
+            return false;
+        }
+        for (AlarmWebHookToken token : current) {
+            if (!token.getToken().equals(exclude) && token.nanosUntilAvailable(alarmClusterRateLimiter) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 归还取到但未发送的令牌额度
+     */
+    public void release(String token) {
+        AlarmWebHookToken webHookToken = find(token);
+        if (null != webHookToken) {
+            webHookToken.release(alarmClusterRateLimiter);
+        }
+    }
+
+    /**
+     * 距离最近一个令牌可用的时间
+     *
+     * @return 纳秒，0 表示当前有令牌可用
+     */
+    public long nanosUntilAvailable() {
+        long wait = Long.MAX_VALUE;
+        for (AlarmWebHookToken[] tokens : channelTokens().values()) {
+            wait = Math.min(wait, nanosUntilAvailable(tokens));
+        }
+        return wait == Long.MAX_VALUE ? 0 : wait;
+    }
+
+    private long nanosUntilAvailable(AlarmWebHookToken[] tokens) {
+        long wait = Long.MAX_VALUE;
+        for (AlarmWebHookToken token : tokens) {
+            wait = Math.min(wait, token.nanosUntilAvailable(alarmClusterRateLimiter));
+        }
+        return wait == Long.MAX_VALUE ? 0 : wait;
+    }
+
+    /**
+     * 是否存在未熔断或已过熔断期的令牌，不占用限流额度
+     */
+    public boolean hasHealthyToken() {
+        for (AlarmWebHookToken[] tokens : channelTokens().values()) {
+            for (AlarmWebHookToken token : tokens) {
+                if (token.getHealth().nanosUntilAvailable() == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 回报一次发送结果，用于熔断与延迟统计
+     *
+     * @param token        发送使用的令牌
+     * @param result       平台返回，null 表示请求异常
+     * @param latencyNanos 请求耗时
+     */
+    public void report(String token, AlarmResult result, long latencyNanos) {
+        AlarmWebHookToken webHookToken = find(token);
+        if (null == webHookToken) {
+            return;
+        }
+        if (null != alarmMetrics) {
+            alarmMetrics.onTokenLatency(mask(token), latencyNanos);
+        }
+        if (null != result && result.isSuccess()) {
+            webHookToken.getHealth().onSuccess(latencyNanos);
+            return;
+        }
+        boolean rateLimited = null != result && result.isRateLimited();
+        webHookToken.getHealth().onFailure(rateLimited, latencyNanos);
+        if (webHookToken.getHealth().getState() == AlarmTokenHealth.State.OPEN) {
+            log.warn("webHook 令牌熔断 token {} result {}", mask(token), result);
+        }
+    }
+
+    private AlarmWebHookToken find(String token) {
+        for (AlarmWebHookToken[] tokens : channelTokens().values()) {
+            for (AlarmWebHookToken webHookToken : tokens) {
+                if (webHookToken.getToken().equals(token)) {
+                    return webHookToken;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String mask(String token) {
+        if (null == token || token.length() <= 8) {
+            return token;
+        }
+        return token.substring(0, 4) + "****" + token.substring(token.length() - 4);
     }
 
 }
@@ -1,5 +1,9 @@
 package com.heifan.code.alarm.message;
 
+import com.heifan.code.alarm.dto.AlarmDigest;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.dto.AlarmSendResult;
+import com.heifan.code.alarm.dto.ExceptionNotice;
 import com.heifan.code.alarm.dto.ServiceNotice;
 
 /**
@@ -23,5 +27,17 @@ public interface AlarmNoticeSendI {
 
     void sendNotice(Throwable throwable, String appTraceId, String extMessage, String... blamedFor);
 
+    void sendNotice(ExceptionNotice exceptionNotice, String... blamedFor);
+
+    void sendDigest(AlarmDigest digest, String... blamedFor);
+
+    /**
+     * 发送到任务指定的平台，未指定时发送到所有配置的平台
+     *
+     * @param task 预警任务
+     * @return 各平台结果
+     */
+    AlarmSendResult send(AlarmNoticeTask task);
+
 
 }
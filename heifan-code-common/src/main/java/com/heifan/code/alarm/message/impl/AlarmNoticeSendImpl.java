@@ -1,99 +1,87 @@
 package com.heifan.code.alarm.message.impl;
 
-import com.google.gson.Gson;
+import com.heifan.code.alarm.AlarmChannelStatusEnum;
 import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.channel.AlarmChannel;
+import com.heifan.code.alarm.channel.AlarmChannelFanout;
+import com.heifan.code.alarm.channel.AlarmSendRetrier;
+import com.heifan.code.alarm.client.AlarmJsonCodec;
 import com.heifan.code.alarm.client.SimpleHttpClient;
+import com.heifan.code.alarm.dto.AlarmDigest;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
 import com.heifan.code.alarm.dto.AlarmResult;
+import com.heifan.code.alarm.dto.AlarmSendResult;
 import com.heifan.code.alarm.dto.ExceptionNotice;
-import com.heifan.code.alarm.dto.NoticeText;
 import com.heifan.code.alarm.dto.ServiceNotice;
+import com.heifan.code.alarm.manager.AlarmTokenExhaustedException;
 import com.heifan.code.alarm.manager.AlarmWebHookTokenManager;
 import com.heifan.code.alarm.message.AlarmNoticeSendI;
+import com.heifan.code.alarm.metrics.AlarmMetrics;
 import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import com.heifan.code.alarm.spool.AlarmSpool;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 
 /**
- * 
+ *
  * @author HiF
  * @date 2022/3/8 10:22
- */ 
+ */
 @Slf4j
 public class AlarmNoticeSendImpl implements AlarmNoticeSendI {
 
-    private static final String DD_ULR = "https://oapi.dingtalk.com/robot/send?access_token=%s";
+    @Autowired(required = false)
+    private AlarmWebHookTokenManager alarmWebHookTokenManager;
+
+    @Autowired(required = false)
+    private AlarmNoticeProperty alarmNoticeProperty;
 
-    private static final String WX_URL = "https://qyapi.weixin.qq.com/cgi-bin/webhook/send?key=%s";
+    @Autowired(required = false)
+    private AlarmSpool alarmSpool;
 
-    private static final String FS_URL = "https://open.feishu.cn/open-apis/bot/v2/hook/%s";
+    @Autowired(required = false)
+    private AlarmChannelFanout alarmChannelFanout;
 
     @Autowired(required = false)
-    private AlarmWebHookTokenManager alarmWebHookTokenManager;
+    private AlarmSendRetrier alarmSendRetrier;
 
     @Autowired(required = false)
-    private AlarmNoticeProperty alarmNoticeProperty;
+    private AlarmMetrics alarmMetrics;
+
+    /**
+     * 计算对冲延迟需要的最少耗时样本数
+     */
+    private static final long HEDGE_MIN_SAMPLES = 20;
+
+    private final Map<AlarmNoticeEnum, AlarmChannel> channels = new EnumMap<>(AlarmNoticeEnum.class);
+
+    @Autowired(required = false)
+    public void setAlarmChannels(List<AlarmChannel> alarmChannels) {
+        for (AlarmChannel alarmChannel : alarmChannels) {
+            channels.put(alarmChannel.type(), alarmChannel);
+        }
+    }
 
     @Override
     public void send(String content) {
-        send(content, alarmNoticeProperty.getDefaultNotice());
+        send(content, alarmWebHookTokenManager.routing().getDefaultNotice());
     }
 
     @Override
     public void send(String content, String blamedFor) {
-        Gson gson = new Gson();
-        Object exceptionTxtNotice = new Object();
-        String url = null;
-        if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.WX)) {
-            exceptionTxtNotice = new NoticeText.WeChatText(content,
-                    new String[]{blamedFor});
-            url = String.format(WX_URL, alarmWebHookTokenManager.availableToken());
-        } else if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.DD)) {
-            exceptionTxtNotice = new NoticeText.DingTalkText(content,
-                    new String[]{blamedFor});
-            url = String.format(DD_ULR, alarmWebHookTokenManager.availableToken());
-        } else if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.FS)) {
-            exceptionTxtNotice = new NoticeText.FeiShuText(content,
-                    new String[]{blamedFor});
-            url = String.format(FS_URL, alarmWebHookTokenManager.availableToken());
-        }
-        log.info("{} ", gson.toJson(exceptionTxtNotice));
-        try {
-            AlarmResult result = SimpleHttpClient.post(url, exceptionTxtNotice,
-                    AlarmResult.class);
-            log.info("result {} ", result);
-        } catch (Exception e) {
-            log.info("通知失败 {}", content);
-        }
+        sendQuietly(AlarmNoticeTask.ofText(content, blamedFor));
     }
 
     @Override
     public void send(ServiceNotice serviceNotice, String... blamedFor) {
         if (blamedFor != null) {
-            Gson gson = new Gson();
-            Object exceptionTxtNotice = new Object();
-            String url = null;
-            if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.WX)) {
-                exceptionTxtNotice = new NoticeText.WeChatText(serviceNotice.createText(),
-                        blamedFor);
-                url = String.format(WX_URL, alarmWebHookTokenManager.availableToken());
-            } else if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.DD)) {
-                exceptionTxtNotice = new NoticeText.DingTalkText(serviceNotice.createText(),
-                        blamedFor);
-                url = String.format(DD_ULR, alarmWebHookTokenManager.availableToken());
-            } else if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.FS)) {
-                exceptionTxtNotice = new NoticeText.FeiShuText(serviceNotice.createText(),
-                        blamedFor);
-                url = String.format(FS_URL, alarmWebHookTokenManager.availableToken());
-            }
-            log.info("{} ", gson.toJson(exceptionTxtNotice));
-            try {
-                AlarmResult result = SimpleHttpClient.post(url, exceptionTxtNotice,
-                        AlarmResult.class);
-                log.info("result {} ", result);
-            } catch (Exception e) {
-                log.info("异常预警失败 {}", serviceNotice);
-            }
+            sendQuietly(AlarmNoticeTask.of(serviceNotice, blamedFor));
         } else {
             log.info("无法进行通知，不存在背锅侠");
         }
@@ -111,80 +99,193 @@ public class AlarmNoticeSendImpl implements AlarmNoticeSendI {
 
     @Override
     public void sendNotice(Throwable throwable, String extMessage, String... blamedFor) {
-        if (blamedFor != null) {
+        ExceptionNotice exceptionNotice = new ExceptionNotice(throwable,
+                new String[]{extMessage});
+        exceptionNotice.setProject(alarmNoticeProperty.getProjectName());
+        sendNotice(exceptionNotice, blamedFor);
+    }
 
-            Gson gson = new Gson();
-            Object exceptionTxtNotice = new Object();
-            String url = null;
-
-            ExceptionNotice exceptionNotice = new ExceptionNotice(throwable,
-                    new String[]{extMessage});
-            exceptionNotice.setProject(alarmNoticeProperty.getProjectName());
-
-            if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.WX)) {
-                exceptionTxtNotice = new NoticeText.WeChatText(exceptionNotice.createWorkWxText(),
-                        blamedFor);
-                url = String.format(WX_URL, alarmWebHookTokenManager.availableToken());
-            } else if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.DD)) {
-                exceptionTxtNotice = new NoticeText.DingTalkText(exceptionNotice.createDingDingText(),
-                        blamedFor);
-                url = String.format(DD_ULR, alarmWebHookTokenManager.availableToken());
-            } else if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.FS)) {
-                exceptionTxtNotice = new NoticeText.FeiShuText(exceptionNotice.createFeiShuText(),
-                        blamedFor);
-                url = String.format(FS_URL, alarmWebHookTokenManager.availableToken());
-            }
-            log.info("{} ", gson.toJson(exceptionTxtNotice));
-            try {
-                AlarmResult result = SimpleHttpClient.post(url, exceptionTxtNotice,
-                        AlarmResult.class);
-                log.info("result {} ", result);
-            } catch (Exception e) {
-                log.info("异常预警失败 {}", exceptionNotice);
-            }
+    @Override
+    public void sendNotice(Throwable throwable, String appTraceId, String extMessage, String... blamedFor) {
+        ExceptionNotice exceptionNotice = new ExceptionNotice(throwable, appTraceId,
+                new String[]{extMessage});
+        exceptionNotice.setProject(alarmNoticeProperty.getProjectName());
+        sendNotice(exceptionNotice, blamedFor);
+    }
+
+    @Override
+    public void sendNotice(ExceptionNotice exceptionNotice, String... blamedFor) {
+        if (blamedFor != null) {
+            sendQuietly(AlarmNoticeTask.of(exceptionNotice, blamedFor));
         } else {
             log.info("无法进行通知，不存在背锅侠");
         }
     }
 
     @Override
-    public void sendNotice(Throwable throwable, String appTraceId, String extMessage, String... blamedFor) {
-        if (blamedFor != null) {
+    public void sendDigest(AlarmDigest digest, String... blamedFor) {
+        if (null == digest || digest.getItems().isEmpty()) {
+            return;
+        }
+        blamedFor = null == blamedFor || blamedFor.length == 0
+                ? new String[]{alarmWebHookTokenManager.routing().getDefaultNotice()} : blamedFor;
+        sendQuietly(AlarmNoticeTask.of(digest, blamedFor));
+    }
+
+    /**
+     * 对外的发送方法不抛出令牌额度异常，额度用完的平台写入 spool 等待补发
+     */
+    private void sendQuietly(AlarmNoticeTask task) {
+        try {
+            send(task);
+        } catch (AlarmTokenExhaustedException e) {
+            log.warn("预警未发送 令牌限流额度已用完 {}", e.getChannels());
+            spool(task.withChannels(e.getChannels()));
+        }
+    }
 
-            Gson gson = new Gson();
-            Object exceptionTxtNotice = new Object();
-            String url = null;
-
-            ExceptionNotice exceptionNotice = new ExceptionNotice(throwable, appTraceId,
-                    new String[]{extMessage});
-            exceptionNotice.setProject(alarmNoticeProperty.getProjectName());
-
-            if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.WX)) {
-                exceptionTxtNotice = new NoticeText.WeChatText(exceptionNotice.createWorkWxText(),
-                        blamedFor);
-                url = String.format(WX_URL, alarmWebHookTokenManager.availableToken());
-            } else if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.DD)) {
-                exceptionTxtNotice = new NoticeText.DingTalkText(exceptionNotice.createDingDingText(),
-                        blamedFor);
-                url = String.format(DD_ULR, alarmWebHookTokenManager.availableToken());
-            } else if (alarmNoticeProperty.getType().equals(AlarmNoticeEnum.FS)) {
-                exceptionTxtNotice = new NoticeText.FeiShuText(exceptionNotice.createFeiShuText(),
-                        blamedFor);
-                url = String.format(FS_URL, alarmWebHookTokenManager.availableToken());
+    /**
+     * 并行发送到任务指定的平台(默认所有配置的平台)。
+     * 请求异常与被限流的平台写入 spool；令牌额度用完的平台抛出 {@link AlarmTokenExhaustedException}，
+     * 由调用方只针对这些平台重发
+     */
+    @Override
+    public AlarmSendResult send(AlarmNoticeTask task) {
+        List<AlarmNoticeEnum> targets = null == task.getChannels()
+                ? alarmWebHookTokenManager.routing().getChannelTypes() : task.getChannels();
+        AlarmSendResult result;
+        if (null != alarmChannelFanout) {
+            result = alarmChannelFanout.send(targets, channelType -> send(channelType, task));
+        } else {
+            result = new AlarmSendResult();
+            for (AlarmNoticeEnum channelType : targets) {
+                result.put(channelType, send(channelType, task));
             }
-            if (log.isDebugEnabled()) {
-                log.debug(gson.toJson(exceptionTxtNotice));
+        }
+        if (null != alarmMetrics) {
+            for (Map.Entry<AlarmNoticeEnum, AlarmSendResult.ChannelResult> entry : result.getChannels().entrySet()) {
+                alarmMetrics.onResult(entry.getKey(), entry.getValue());
             }
-            try {
-                AlarmResult result = SimpleHttpClient.post(url, exceptionTxtNotice,
-                        AlarmResult.class);
-                log.info("result {} ", result);
-            } catch (Exception e) {
-                log.info("异常预警失败 {} {}", exceptionNotice, e);
+        }
+        List<AlarmNoticeEnum> failed = result.channelsOf(AlarmChannelStatusEnum.ERROR, AlarmChannelStatusEnum.RATE_LIMITED);
+        if (!failed.isEmpty()) {
+            spool(task.withChannels(failed));
+        }
+        List<AlarmNoticeEnum> exhausted = result.channelsOf(AlarmChannelStatusEnum.EXHAUSTED);
+        if (!exhausted.isEmpty()) {
+            long waitNanos = Long.MAX_VALUE;
+            for (AlarmNoticeEnum channelType : exhausted) {
+                waitNanos = Math.min(waitNanos, result.getChannels().get(channelType).getWaitNanos());
             }
+            throw new AlarmTokenExhaustedException(waitNanos, exhausted);
+        }
+        return result;
+    }
 
-        } else {
-            log.info("无法进行通知，不存在背锅侠");
+    private AlarmSendResult.ChannelResult send(AlarmNoticeEnum channelType, AlarmNoticeTask task) {
+        AlarmChannel channel = channels.get(channelType);
+        if (null == channel) {
+            log.error("预警失败 未找到平台 {}", channelType);
+            return AlarmSendResult.ChannelResult.error("未找到平台 " + channelType, 0);
+        }
+        Object noticeText = channel.createBody(task);
+        log.debug("{}", AlarmJsonCodec.lazy(noticeText));
+        if (null != alarmSendRetrier) {
+            AlarmSendResult.ChannelResult result = alarmSendRetrier.send(tokenSource(channelType),
+                    token -> post(channel, token, noticeText), hedgeDelayNanos(channelType));
+            log.info("result {} {} ", channelType, result);
+            return result;
+        }
+        String token;
+        try {
+            token = alarmWebHookTokenManager.availableToken(channelType);
+        } catch (AlarmTokenExhaustedException e) {
+            return AlarmSendResult.ChannelResult.exhausted(e.getWaitNanos());
+        }
+        long start = System.nanoTime();
+        try {
+            AlarmResult result = post(channel, token, noticeText);
+            log.info("result {} {} ", channelType, result);
+            return AlarmSendResult.ChannelResult.of(result, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            log.info("异常预警失败 {} {} {}", channelType, task, e);
+            return AlarmSendResult.ChannelResult.failure(e,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private AlarmSendRetrier.TokenSource tokenSource(AlarmNoticeEnum channelType) {
+        return new AlarmSendRetrier.TokenSource() {
+            @Override
+            public String acquire(String exclude) {
+                return alarmWebHookTokenManager.availableToken(channelType, exclude);
+            }
+
+            @Override
+            public boolean hasAlternative(String exclude) {
+                return alarmWebHookTokenManager.hasAlternativeToken(channelType, exclude);
+            }
+
+            @Override
+            public void release(String token) {
+                alarmWebHookTokenManager.release(token);
+            }
+        };
+    }
+
+    /**
+     * 对冲延迟：平台单次请求 p95 耗时，样本不足时用配置值，未开启对冲返回 0
+     */
+    private long hedgeDelayNanos(AlarmNoticeEnum channelType) {
+        AlarmNoticeProperty.Retry retry = alarmNoticeProperty.getRetry();
+        if (!retry.isHedgeEnabled()) {
+            return 0;
+        }
+        double p95 = null == alarmMetrics ? -1 : alarmMetrics.latencyPercentile(channelType, 0.95, HEDGE_MIN_SAMPLES);
+        long delayMillis = p95 < 0 ? retry.getHedgeDelayMillis() : (long) p95;
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(retry.getHedgeMinDelayMillis(), delayMillis));
+    }
+
+    /**
+     * 用指定令牌发送一次，记录单次请求耗时
+     */
+    private AlarmResult post(AlarmChannel channel, String token, Object noticeText) {
+        if (null == alarmMetrics) {
+            return post(token, channel.url(token), noticeText);
+        }
+        alarmMetrics.onSendStart();
+        long start = System.nanoTime();
+        try {
+            return post(token, channel.url(token), noticeText);
+        } finally {
+            alarmMetrics.onAttempt(channel.type(), System.nanoTime() - start);
+            alarmMetrics.onSendEnd();
+        }
+    }
+
+    /**
+     * 发送失败的预警写入 spool，webHook 恢复后补发
+     */
+    private void spool(AlarmNoticeTask task) {
+        if (null != alarmSpool && alarmSpool.append(task)) {
+            log.info("预警已写入 spool 等待补发 {}", task.getChannels());
+            if (null != alarmMetrics) {
+                alarmMetrics.onSpooled();
+            }
+        }
+    }
+
+    /**
+     * 调用 webHook 并把结果回报给令牌管理器
+     */
+    private AlarmResult post(String token, String url, Object noticeText) {
+        long start = System.nanoTime();
+        AlarmResult result = null;
+        try {
+            result = SimpleHttpClient.post(url, noticeText, AlarmResult.class);
+            return result;
+        } finally {
+            alarmWebHookTokenManager.report(token, result, System.nanoTime() - start);
         }
     }
 
@@ -0,0 +1,340 @@
+package com.heifan.code.alarm.metrics;
+
+import com.heifan.code.alarm.dto.ExceptionNotice;
+import com.heifan.code.alarm.dto.ExceptionTrace;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @description 异常热点统计，按 异常指纹 + 返回码 统计 1 分钟、5 分钟、1 小时内出现最多的异常。
+ * 计数使用固定内存的 Count-Min Sketch，每个窗口保留当前与上一周期两份，按已过时间线性衰减上一周期得到滑动窗口计数；
+ * 记录一次只做固定次数的原子自增，无锁、无扩容，可以放在所有异常处理路径上。
+ * 候选异常的描述信息单独登记，数量有上限，由后台线程每分钟按 1 小时计数淘汰一次
+ * @author HiF
+ * @date 2026/10/18 23:10
+ */
+public class AlarmHeavyHitters {
+
+    private static final String[] WINDOW_NAMES = {"1m", "5m", "1h"};
+
+    private static final long[] WINDOW_MILLIS = {TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(5),
+            TimeUnit.HOURS.toMillis(1)};
+
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * 各行的哈希种子，奇数
+     */
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L,
+            0xD6E8FEB86659FD93L, 0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L};
+
+    private final int topK;
+
+    private final int maxCandidates;
+
+    private final Window[] windows = new Window[WINDOW_MILLIS.length];
+
+    private final Map<Long, Candidate> candidates = new ConcurrentHashMap<>();
+
+    /**
+     * 候选已满时，新异常的 1 小时计数需要达到该值才登记
+     */
+    private volatile long admission;
+
+    private ScheduledExecutorService pruneScheduler;
+
+    public AlarmHeavyHitters(AlarmNoticeProperty.HeavyHitter heavyHitter) {
+        this.topK = Math.max(1, heavyHitter.getTopK());
+        this.maxCandidates = Math.max(topK, heavyHitter.getMaxCandidates());
+        int depth = Math.min(SEEDS.length, Math.max(1, heavyHitter.getDepth()));
+        // 宽度取 2 的幂
+        int width = Integer.highestOneBit(Math.max(64, heavyHitter.getWidth()));
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new Window(WINDOW_MILLIS[i], depth, width);
+        }
+    }
+
+    public synchronized void start() {
+        if (null != pruneScheduler) {
+            return;
+        }
+        pruneScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alarm-heavy-hitter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pruneScheduler.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL_MILLIS, PRUNE_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (null != pruneScheduler) {
+            pruneScheduler.shutdownNow();
+            pruneScheduler = null;
+        }
+    }
+
+    /**
+     * 记录一次异常，复用异常通知已计算的指纹，不渲染堆栈
+     *
+     * @param notice 异常通知
+     * @param code   返回码
+     */
+    public void record(ExceptionNotice notice, int code) {
+        if (null == notice) {
+            return;
+        }
+        record(notice.getUid(), notice.getClassPath(), notice.getMethodName(), code);
+    }
+
+    /**
+     * 记录一次未生成预警的异常，只取抛出位置计算指纹，不创建异常通知
+     *
+     * @param throwable 异常
+     * @param code      返回码
+     */
+    public void record(Throwable throwable, int code) {
+        if (null == throwable) {
+            return;
+        }
+        StackTraceElement topFrame = ExceptionTrace.topFrame(throwable);
+        record(ExceptionTrace.uid(throwable, topFrame), null == topFrame ? null : topFrame.getClassName(),
+                null == topFrame ? null : topFrame.getMethodName(), code);
+    }
+
+    /**
+     * 记录一次异常
+     *
+     * @param uid        异常指纹
+     * @param classPath  类路径
+     * @param methodName 方法名
+     * @param code       返回码
+     */
+    public void record(String uid, String classPath, String methodName, int code) {
+        long key = key(uid, code);
+        long now = System.currentTimeMillis();
+        long estimate = 0;
+        for (Window window : windows) {
+            estimate = window.add(key, now);
+        }
+        if (!candidates.containsKey(key)) {
+            int size = candidates.size();
+            if (size < maxCandidates || (size < maxCandidates * 2 && estimate >= admission)) {
+                candidates.putIfAbsent(key, new Candidate(uid, classPath, methodName, code));
+            }
+        }
+    }
+
+    /**
+     * 各窗口当前的热点异常，按次数从多到少
+     */
+    public Map<String, Object> snapshot() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        for (int i = 0; i < windows.length; i++) {
+            List<HeavyHitter> hitters = new ArrayList<>();
+            for (Map.Entry<Long, Candidate> entry : candidates.entrySet()) {
+                long count = windows[i].estimate(entry.getKey(), now);
+                if (count > 0) {
+                    Candidate candidate = entry.getValue();
+                    hitters.add(new HeavyHitter(candidate.uid, candidate.classPath, candidate.methodName,
+                            candidate.code, count));
+                }
+            }
+            hitters.sort(Comparator.comparingLong(HeavyHitter::getCount).reversed());
+            snapshot.put(WINDOW_NAMES[i], hitters.size() > topK ? new ArrayList<>(hitters.subList(0, topK)) : hitters);
+        }
+        return snapshot;
+    }
+
+    public int candidateSize() {
+        return candidates.size();
+    }
+
+    /**
+     * 移除 1 小时内没有再出现的候选，超出上限时只保留次数最多的，在后台线程执行
+     */
+    private void prune() {
+        long now = System.currentTimeMillis();
+        Window hour = windows[windows.length - 1];
+        List<long[]> kept = new ArrayList<>();
+        Iterator<Long> iterator = candidates.keySet().iterator();
+        while (iterator.hasNext()) {
+            long key = iterator.next();
+            long count = hour.estimate(key, now);
+            if (count == 0) {
+                iterator.remove();
+            } else {
+                kept.add(new long[]{key, count});
+            }
+        }
+        if (kept.size() <= maxCandidates) {
+            admission = 0;
+            return;
+        }
+        kept.sort((a, b) -> Long.compare(b[1], a[1]));
+        for (int i = maxCandidates; i < kept.size(); i++) {
+            candidates.remove(kept.get(i)[0]);
+        }
+        admission = kept.get(maxCandidates - 1)[1];
+    }
+
+    /**
+     * 指纹与返回码合成 64 位 key，经 murmur3 fmix64 打散
+     */
+    private static long key(String uid, int code) {
+        long hash = ((long) (null == uid ? 0 : uid.hashCode()) << 32) ^ (code & 0xffffffffL);
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * 单个衰减窗口，两份 sketch 交替作为当前与上一周期
+     */
+    private static final class Window {
+
+        private final long lengthMillis;
+
+        private final int depth;
+
+        private final int width;
+
+        private final int shift;
+
+        private final AtomicLongArray[] sketches = new AtomicLongArray[2];
+
+        private volatile long epoch;
+
+        Window(long lengthMillis, int depth, int width) {
+            this.lengthMillis = lengthMillis;
+            this.depth = depth;
+            this.width = width;
+            this.shift = 64 - Integer.numberOfTrailingZeros(width);
+            this.sketches[0] = new AtomicLongArray(depth * width);
+            this.sketches[1] = new AtomicLongArray(depth * width);
+            this.epoch = System.currentTimeMillis() / lengthMillis;
+        }
+
+        /**
+         * 计数加一
+         *
+         * @return 加一后的滑动窗口计数
+         */
+        long add(long key, long now) {
+            long current = rotate(now);
+            AtomicLongArray sketch = sketches[(int) (current & 1)];
+            long min = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                min = Math.min(min, sketch.incrementAndGet(index(key, row)));
+            }
+            return min + previous(key, current, now);
+        }
+
+        long estimate(long key, long now) {
+            long current = rotate(now);
+            return min(sketches[(int) (current & 1)], key) + previous(key, current, now);
+        }
+
+        /**
+         * 上一周期的计数按当前周期已过的比例衰减
+         */
+        private long previous(long key, long current, long now) {
+            long count = min(sketches[(int) ((current + 1) & 1)], key);
+            if (count == 0) {
+                return 0;
+            }
+            double remaining = 1 - (double) (now - current * lengthMillis) / lengthMillis;
+            return Math.round(count * Math.max(0, remaining));
+        }
+
+        private long min(AtomicLongArray sketch, long key) {
+            long min = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                min = Math.min(min, sketch.get(index(key, row)));
+            }
+            return min;
+        }
+
+        /**
+         * 乘法哈希取高位
+         */
+        private int index(long key, int row) {
+            return row * width + (int) ((key * SEEDS[row]) >>> shift);
+        }
+
+        /**
+         * 进入新周期时清空将作为当前周期的 sketch，跨过两个以上周期时两份都清空
+         */
+        private long rotate(long now) {
+            long target = now / lengthMillis;
+            long current = epoch;
+            if (target <= current) {
+                return current;
+            }
+            synchronized (this) {
+                current = epoch;
+                if (target > current) {
+                    clear(sketches[(int) (target & 1)]);
+                    if (target - current > 1) {
+                        clear(sketches[(int) ((target + 1) & 1)]);
+                    }
+                    epoch = target;
+                }
+                return epoch;
+            }
+        }
+
+        private static void clear(AtomicLongArray sketch) {
+            for (int i = 0; i < sketch.length(); i++) {
+                sketch.set(i, 0);
+            }
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Candidate {
+
+        private final String uid;
+
+        private final String classPath;
+
+        private final String methodName;
+
+        private final int code;
+    }
+
+    /**
+     * 热点异常
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class HeavyHitter {
+
+        private final String uid;
+
+        private final String classPath;
+
+        private final String methodName;
+
+        private final int code;
+
+        private final long count;
+    }
+}
@@ -0,0 +1,27 @@
+package com.heifan.code.alarm.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
+
+/**
+ * @description 异常热点查询接口，返回 1 分钟、5 分钟、1 小时内出现最多的异常。
+ * 不标注 @RestController，避免被组件扫描注册，只在 alarm.heavy-hitter.endpoint-enabled 开启时由配置类注册
+ * @author HiF
+ * @date 2026/10/18 23:15
+ */
+@RequestMapping
+@ResponseBody
+public class AlarmHeavyHittersEndpoint {
+
+    @Autowired
+    AlarmHeavyHitters alarmHeavyHitters;
+
+    @GetMapping("${alarm.heavy-hitter.path:/alarm/heavy-hitters}")
+    public Map<String, Object> heavyHitters() {
+        return alarmHeavyHitters.snapshot();
+    }
+}
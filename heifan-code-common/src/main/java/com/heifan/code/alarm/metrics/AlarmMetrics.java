@@ -0,0 +1,243 @@
+package com.heifan.code.alarm.metrics;
+
+import com.heifan.code.alarm.AlarmChannelStatusEnum;
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.client.AlarmHttpTransport;
+import com.heifan.code.alarm.dto.AlarmSendResult;
+import com.heifan.code.alarm.manager.AlarmNoticeDeduplicator;
+import com.heifan.code.alarm.manager.AlarmNoticeDispatcher;
+import com.heifan.code.alarm.spool.AlarmSpool;
+import com.heifan.code.helper.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @description 预警链路指标。
+ * 计数器记录通知的创建、去重、发送结果、丢弃与落盘，直方图按平台和令牌记录发送耗时，
+ * 队列深度、连接池等瞬时值在取快照时读取。指标名沿用 Micrometer 的命名方式(alarm.xxx)
+ * @author HiF
+ * @date 2026/10/18 20:20
+ */
+public class AlarmMetrics {
+
+    /**
+     * 令牌直方图的最大数量，防止令牌轮换后无限增长
+     */
+    private static final int MAX_TOKENS = 64;
+
+    private final LongAdder created = new LongAdder();
+
+    private final LongAdder deduplicated = new LongAdder();
+
+    private final LongAdder sampled = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder spooled = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder hedges = new LongAdder();
+
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    /**
+     * 平台 -> 发送结果 -> 次数，构造时建好，之后只读
+     */
+    private final Map<AlarmNoticeEnum, Map<AlarmChannelStatusEnum, LongAdder>> results = new EnumMap<>(AlarmNoticeEnum.class);
+
+    private final Map<AlarmNoticeEnum, LatencyHistogram> channelLatency = new EnumMap<>(AlarmNoticeEnum.class);
+
+    /**
+     * 单次 webHook 请求耗时，不含重试退避与对冲等待，用于计算对冲延迟
+     */
+    private final Map<AlarmNoticeEnum, LatencyHistogram> attemptLatency = new EnumMap<>(AlarmNoticeEnum.class);
+
+    private final ConcurrentMap<String, LatencyHistogram> tokenLatency = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    AlarmNoticeDispatcher alarmNoticeDispatcher;
+
+    @Autowired(required = false)
+    AlarmNoticeDeduplicator alarmNoticeDeduplicator;
+
+    @Autowired(required = false)
+    AlarmHttpTransport alarmHttpTransport;
+
+    @Autowired(required = false)
+    AlarmSpool alarmSpool;
+
+    public AlarmMetrics() {
+        for (AlarmNoticeEnum channel : AlarmNoticeEnum.values()) {
+            Map<AlarmChannelStatusEnum, LongAdder> counters = new EnumMap<>(AlarmChannelStatusEnum.class);
+            for (AlarmChannelStatusEnum status : AlarmChannelStatusEnum.values()) {
+                counters.put(status, new LongAdder());
+            }
+            results.put(channel, counters);
+            channelLatency.put(channel, new LatencyHistogram());
+            attemptLatency.put(channel, new LatencyHistogram());
+        }
+    }
+
+    public void onCreated() {
+        created.increment();
+    }
+
+    public void onDeduplicated() {
+        deduplicated.increment();
+    }
+
+    public void onSampled() {
+        sampled.increment();
+    }
+
+    public void onDropped() {
+        dropped.increment();
+    }
+
+    public void onSpooled() {
+        spooled.increment();
+    }
+
+    public void onRetry() {
+        retries.increment();
+    }
+
+    public void onHedge() {
+        hedges.increment();
+    }
+
+    public void onSendStart() {
+        inFlight.incrementAndGet();
+    }
+
+    public void onSendEnd() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * 记录单个平台的发送结果与耗时
+     */
+    public void onResult(AlarmNoticeEnum channel, AlarmSendResult.ChannelResult result) {
+        results.get(channel).get(result.getStatus()).increment();
+        if (result.getStatus() != AlarmChannelStatusEnum.EXHAUSTED) {
+            channelLatency.get(channel).record(TimeUnit.MILLISECONDS.toNanos(result.getLatencyMillis()));
+        }
+    }
+
+    /**
+     * 记录单次 webHook 请求的耗时
+     */
+    public void onAttempt(AlarmNoticeEnum channel, long nanos) {
+        attemptLatency.get(channel).record(nanos);
+    }
+
+    /**
+     * 记录单个令牌的请求耗时
+     *
+     * @param token 脱敏后的令牌
+     */
+    public void onTokenLatency(String token, long nanos) {
+        LatencyHistogram histogram = tokenLatency.get(token);
+        if (null == histogram) {
+            if (tokenLatency.size() >= MAX_TOKENS) {
+                return;
+            }
+            histogram = tokenLatency.computeIfAbsent(token, key -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * 平台单次请求耗时分位值，样本不足 minCount 时返回 -1
+     *
+     * @return 毫秒
+     */
+    public double latencyPercentile(AlarmNoticeEnum channel, double percentile, long minCount) {
+        LatencyHistogram histogram = attemptLatency.get(channel);
+        return histogram.count() < minCount ? -1 : histogram.percentile(percentile);
+    }
+
+    public long count(AlarmChannelStatusEnum... statuses) {
+        long total = 0;
+        for (Map<AlarmChannelStatusEnum, LongAdder> counters : results.values()) {
+            for (AlarmChannelStatusEnum status : statuses) {
+                total += counters.get(status).sum();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 当前指标快照，发送次数按平台计，一条通知发到两个平台计两次
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("alarm.notice.created", created.sum());
+        snapshot.put("alarm.notice.deduplicated", deduplicated.sum());
+        snapshot.put("alarm.notice.sampled", sampled.sum());
+        snapshot.put("alarm.notice.sent", count(AlarmChannelStatusEnum.SUCCESS));
+        snapshot.put("alarm.notice.failed", count(AlarmChannelStatusEnum.REJECTED,
+                AlarmChannelStatusEnum.ERROR, AlarmChannelStatusEnum.TIMEOUT));
+        snapshot.put("alarm.notice.rate_limited", count(AlarmChannelStatusEnum.RATE_LIMITED,
+                AlarmChannelStatusEnum.EXHAUSTED));
+        snapshot.put("alarm.notice.dropped", dropped.sum());
+        snapshot.put("alarm.notice.spooled", spooled.sum());
+        snapshot.put("alarm.send.retries", retries.sum());
+        snapshot.put("alarm.send.hedges", hedges.sum());
+        snapshot.put("alarm.send.in_flight", inFlight.get());
+        if (null != alarmNoticeDispatcher) {
+            snapshot.put("alarm.dispatcher.queue.depth", alarmNoticeDispatcher.queueSize());
+        }
+        if (null != alarmNoticeDeduplicator) {
+            snapshot.put("alarm.dedup.entries", alarmNoticeDeduplicator.size());
+        }
+        if (null != alarmHttpTransport) {
+            snapshot.put("alarm.http.requests", alarmHttpTransport.requestStats());
+        }
+        if (null != alarmSpool) {
+            snapshot.put("alarm.spool.pending.bytes", alarmSpool.pendingBytes());
+        }
+        Map<String, Object> channelResults = new LinkedHashMap<>();
+        Map<String, Object> channelLatencies = new LinkedHashMap<>();
+        Map<String, Object> attemptLatencies = new LinkedHashMap<>();
+        for (AlarmNoticeEnum channel : AlarmNoticeEnum.values()) {
+            LatencyHistogram histogram = channelLatency.get(channel);
+            if (histogram.count() == 0 && count(channel) == 0) {
+                continue;
+            }
+            Map<String, Long> counters = new LinkedHashMap<>();
+            for (Map.Entry<AlarmChannelStatusEnum, LongAdder> entry : results.get(channel).entrySet()) {
+                counters.put(entry.getKey().name(), entry.getValue().sum());
+            }
+            channelResults.put(channel.name(), counters);
+            channelLatencies.put(channel.name(), histogram.snapshot());
+            attemptLatencies.put(channel.name(), attemptLatency.get(channel).snapshot());
+        }
+        snapshot.put("alarm.send.results", channelResults);
+        snapshot.put("alarm.send.latency", channelLatencies);
+        snapshot.put("alarm.send.attempt.latency", attemptLatencies);
+        Map<String, Object> tokenLatencies = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : tokenLatency.entrySet()) {
+            tokenLatencies.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        snapshot.put("alarm.token.latency", tokenLatencies);
+        return snapshot;
+    }
+
+    private long count(AlarmNoticeEnum channel) {
+        long total = 0;
+        for (LongAdder counter : results.get(channel).values()) {
+            total += counter.sum();
+        }
+        return total;
+    }
+}
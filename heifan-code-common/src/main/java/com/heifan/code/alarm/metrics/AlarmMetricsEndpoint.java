@@ -0,0 +1,27 @@
+package com.heifan.code.alarm.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
+
+/**
+ * @description 预警指标查询接口，返回格式与 actuator 类似，用于对预警模块本身做监控。
+ * 由 AlarmNoticeConfiguration 按 alarm.metrics.endpoint-enabled 注册，不参与组件扫描
+ * @author HiF
+ * @date 2026/10/18 20:35
+ */
+@RequestMapping
+@ResponseBody
+public class AlarmMetricsEndpoint {
+
+    @Autowired
+    AlarmMetrics alarmMetrics;
+
+    @GetMapping("${alarm.metrics.path:/alarm/metrics}")
+    public Map<String, Object> metrics() {
+        return alarmMetrics.snapshot();
+    }
+}
@@ -1,11 +1,15 @@
 package com.heifan.code.alarm.property;
 
 import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.AlarmOverflowPolicyEnum;
+import com.heifan.code.alarm.AlarmSpoolFsyncEnum;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +23,10 @@ import java.util.Map;
 @Setter
 public class AlarmNoticeProperty {
 
+    private static final String DEV = "dev";
+    private static final String TEST = "test";
+    private static final String PROD = "prod";
+
     /**
      * 异常工程名
      */
@@ -60,4 +68,616 @@ public class AlarmNoticeProperty {
      */
     private AlarmNoticeEnum type;
 
+    /**
+     * 同时发送的平台，为空时只发送 type
+     */
+    private List<AlarmNoticeEnum> types;
+
+    /**
+     * 各平台的 webHook 令牌与超时，type 对应的平台未配置令牌时使用 webHookDevToken / webHookProToken
+     */
+    private Map<AlarmNoticeEnum, Channel> channels = new LinkedHashMap<>();
+
+    /**
+     * 单个平台发送超时(毫秒)
+     */
+    private long channelTimeoutMillis = 10000;
+
+    /**
+     * 异步派发
+     */
+    private Dispatch dispatch = new Dispatch();
+
+    /**
+     * 异常去重
+     */
+    private Dedup dedup = new Dedup();
+
+    /**
+     * 多实例间通过 Redis 去重
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * 汇总模式
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 按异常类型自适应采样
+     */
+    private Sample sample = new Sample();
+
+    /**
+     * webHook 令牌熔断
+     */
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * 多实例共享的 webHook 限流
+     */
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * 单个平台发送的重试与对冲
+     */
+    private Retry retry = new Retry();
+
+    /**
+     * webHook 连接池
+     */
+    private Http http = new Http();
+
+    /**
+     * 发送失败预警落盘
+     */
+    private Spool spool = new Spool();
+
+    /**
+     * 预警链路指标
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * 停机排空
+     */
+    private Shutdown shutdown = new Shutdown();
+
+    /**
+     * 异常热点统计
+     */
+    private HeavyHitter heavyHitter = new HeavyHitter();
+
+    /**
+     * 实际发送的平台
+     */
+    public List<AlarmNoticeEnum> channelTypes() {
+        if (null != types && !types.isEmpty()) {
+            return types;
+        }
+        return null == type ? Collections.emptyList() : Collections.singletonList(type);
+    }
+
+    /**
+     * 按环境为各平台选出 webHook
+     *
+     * @param active spring.profiles.active
+     */
+    public void resolveWebHook(String active) throws IllegalAccessException {
+        for (AlarmNoticeEnum channelType : channelTypes()) {
+            Channel channel = channels.get(channelType);
+            if (null != channel && (null != channel.getWebHookDevToken() || null != channel.getWebHookProToken())) {
+                channel.setWebHook(selectWebHook(active, channelType + " ", channel.getWebHookDevToken(),
+                        channel.getWebHookProToken()));
+            } else if (channelType == type) {
+                webHook = selectWebHook(active, "", webHookDevToken, webHookProToken);
+            } else {
+                throw new IllegalAccessException("预警模块配置文件初始化异常,项目未指定 " + channelType + " 的 webHook , 预警无法初始化回调信息");
+            }
+        }
+    }
+
+    private static List<String> selectWebHook(String active, String channelName, List<String> devToken,
+                                              List<String> proToken) throws IllegalAccessException {
+        if (active.contains(TEST) || active.contains(DEV)) {
+            if (null == devToken || devToken.isEmpty()) {
+                throw new IllegalAccessException("预警模块配置文件初始化异常,项目未指定 " + channelName + "webHookDevToken , 预警无法初始化回调信息");
+            }
+            return devToken;
+        } else if (active.contains(PROD)) {
+            if (null == proToken || proToken.isEmpty()) {
+                throw new IllegalAccessException("预警模块配置文件初始化异常,项目未指定 " + channelName + "webHookProToken , 预警无法初始化回调信息");
+            }
+            return proToken;
+        }
+        throw new IllegalAccessException("预警模块配置文件初始化异常,项目未指定合法的 spring.profiles.active , 钉钉预警无法初始化回调信息");
+    }
+
+    /**
+     * 平台 webHook 地址模板，未配置时返回 null
+     */
+    public String channelUrl(AlarmNoticeEnum channelType) {
+        Channel channel = channels.get(channelType);
+        return null == channel ? null : channel.getUrl();
+    }
+
+    /**
+     * 平台发送超时，未单独配置时使用 channelTimeoutMillis
+     */
+    public long channelTimeoutMillis(AlarmNoticeEnum channelType) {
+        Channel channel = channels.get(channelType);
+        return null == channel || null == channel.getTimeoutMillis() ? channelTimeoutMillis : channel.getTimeoutMillis();
+    }
+
+    /**
+     * 平台配置
+     */
+    @Getter
+    @Setter
+    public static class Channel {
+
+        /**
+         * webHook 开发环境
+         */
+        private List<String> webHookDevToken;
+
+        /**
+         * webHook 正式环境
+         */
+        private List<String> webHookProToken;
+
+        /**
+         * 按环境选出的 webHook
+         */
+        private List<String> webHook;
+
+        /**
+         * webHook 地址模板，%s 为令牌，为空时使用官方地址。压测或内网代理时指向其他地址
+         */
+        private String url;
+
+        /**
+         * 发送超时(毫秒)
+         */
+        private Long timeoutMillis;
+    }
+
+    /**
+     * 异步派发配置
+     */
+    @Getter
+    @Setter
+    public static class Dispatch {
+
+        /**
+         * 队列容量
+         */
+        private int capacity = 1024;
+
+        /**
+         * 派发线程数
+         */
+        private int threads = 1;
+
+        /**
+         * 队列满时的处理策略
+         */
+        private AlarmOverflowPolicyEnum overflowPolicy = AlarmOverflowPolicyEnum.DROP_OLDEST;
+    }
+
+    /**
+     * 异常去重配置
+     */
+    @Getter
+    @Setter
+    public static class Dedup {
+
+        /**
+         * 是否开启去重
+         */
+        private boolean enabled = true;
+
+        /**
+         * 合并窗口(秒)
+         */
+        private long windowSeconds = 60;
+
+        /**
+         * 最多跟踪的异常数，超出时淘汰最久未出现的异常
+         */
+        private int maxEntries = 1024;
+    }
+
+    /**
+     * 多实例去重配置
+     */
+    @Getter
+    @Setter
+    public static class Cluster {
+
+        /**
+         * 是否开启，需要 spring-boot-starter-data-redis
+         */
+        private boolean enabled = false;
+
+        /**
+         * 窗口(秒)，每个窗口集群内只发送一次
+         */
+        private long windowSeconds = 60;
+
+        /**
+         * Redis key 前缀
+         */
+        private String keyPrefix = "alarm:dedup:";
+
+        /**
+         * 共享计数的过期时间(秒)
+         */
+        private long counterTtlSeconds = 3600;
+
+        /**
+         * Redis 访问失败后使用本实例去重的时间(秒)
+         */
+        private long fallbackSeconds = 30;
+    }
+
+    /**
+     * 多实例共享限流配置
+     */
+    @Getter
+    @Setter
+    public static class RateLimit {
+
+        /**
+         * 是否开启，需要 spring-boot-starter-data-redis
+         */
+        private boolean enabled = false;
+
+        /**
+         * 滑动窗口(秒)
+         */
+        private long windowSeconds = 60;
+
+        /**
+         * 单个令牌窗口内的额度，为空时按 tokenLimitPerMinute 换算
+         */
+        private Integer limitPerWindow;
+
+        /**
+         * 每次向 Redis 预取的额度
+         */
+        private int leaseSize = 2;
+
+        /**
+         * 预取额度的有效期(毫秒)，过期未用完作废
+         */
+        private long leaseMillis = 5000;
+
+        /**
+         * Redis key 前缀
+         */
+        private String keyPrefix = "alarm:rate:";
+
+        /**
+         * Redis 访问失败后只按本实例限流的时间(秒)
+         */
+        private long fallbackSeconds = 30;
+    }
+
+    /**
+     * 汇总模式配置
+     */
+    @Getter
+    @Setter
+    public static class Batch {
+
+        /**
+         * 是否开启汇总，开启后异常预警按周期合并为一条消息发送
+         */
+        private boolean enabled = false;
+
+        /**
+         * 刷新周期(秒)
+         */
+        private long flushIntervalSeconds = 30;
+
+        /**
+         * 单条消息最大字符数，超出时拆分为多条
+         */
+        private int maxMessageChars = 4000;
+    }
+
+    /**
+     * 异常采样配置，同一异常前 initialPasses 次全部通知，之后通知间隔按 2 倍递增，
+     * 安静 quietSeconds 后重新计数
+     */
+    @Getter
+    @Setter
+    public static class Sample {
+
+        /**
+         * 是否开启采样
+         */
+        private boolean enabled = false;
+
+        /**
+         * 最多跟踪的异常数
+         */
+        private int maxEntries = 4096;
+
+        /**
+         * 默认规则
+         */
+        private SampleRule defaults = new SampleRule();
+
+        /**
+         * 按异常类名覆盖默认规则，子类沿用父类的规则
+         */
+        private Map<String, SampleRule> classes = new LinkedHashMap<>();
+    }
+
+    /**
+     * 采样规则
+     */
+    @Getter
+    @Setter
+    public static class SampleRule {
+
+        /**
+         * 是否采样，false 时该类异常全部通知
+         */
+        private boolean enabled = true;
+
+        /**
+         * 开始采样前全部通知的次数
+         */
+        private int initialPasses = 5;
+
+        /**
+         * 两次通知之间的最大间隔(次)
+         */
+        private long maxInterval = 1024;
+
+        /**
+         * 多久没有再出现后重新计数(秒)
+         */
+        private long quietSeconds = 300;
+    }
+
+    /**
+     * webHook 令牌熔断配置
+     */
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+
+        /**
+         * 连续失败多少次后熔断
+         */
+        private int failureThreshold = 3;
+
+        /**
+         * 熔断时长(秒)，之后放行一次探测请求
+         */
+        private long openSeconds = 60;
+    }
+
+    /**
+     * 发送重试配置，只重试请求异常、限流与平台繁忙，每次重试换一个令牌
+     */
+    @Getter
+    @Setter
+    public static class Retry {
+
+        /**
+         * 是否开启重试
+         */
+        private boolean enabled = false;
+
+        /**
+         * 最多尝试次数，包含首次发送
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * 首次重试的退避上限(毫秒)，之后按 2 倍递增，实际退避在 0 到上限间随机
+         */
+        private long initialBackoffMillis = 200;
+
+        /**
+         * 退避上限(毫秒)
+         */
+        private long maxBackoffMillis = 2000;
+
+        /**
+         * 所有尝试的截止时间(毫秒)，应小于 channelTimeoutMillis
+         */
+        private long deadlineMillis = 8000;
+
+        /**
+         * 是否开启对冲，首个请求超过平台 p95 耗时仍未返回时用另一个令牌再发一次，可能重复通知
+         */
+        private boolean hedgeEnabled = false;
+
+        /**
+         * 耗时样本不足时的对冲延迟(毫秒)
+         */
+        private long hedgeDelayMillis = 500;
+
+        /**
+         * 对冲延迟下限(毫秒)
+         */
+        private long hedgeMinDelayMillis = 100;
+
+        /**
+         * 对冲请求的最大线程数，用尽时不再对冲
+         */
+        private int maxHedgeThreads = 4;
+    }
+
+    /**
+     * webHook 连接池配置
+     */
+    @Getter
+    @Setter
+    public static class Http {
+
+        /**
+         * 建立连接超时(毫秒)，同时作为从连接池获取连接的超时
+         */
+        private long connectTimeoutMillis = 3000;
+
+        /**
+         * 读取超时(毫秒)
+         */
+        private long readTimeoutMillis = 5000;
+
+        /**
+         * 整体超时(毫秒)，到达后中断请求，0 表示不限制
+         */
+        private long totalTimeoutMillis = 10000;
+
+        /**
+         * 最大并发请求数
+         */
+        private int maxTotal = 20;
+
+        /**
+         * TLS 会话缓存时间(秒)
+         */
+        private long tlsSessionTimeoutSeconds = 3600;
+    }
+
+    /**
+     * 发送失败预警落盘配置
+     */
+    @Getter
+    @Setter
+    public static class Spool {
+
+        /**
+         * 是否开启落盘
+         */
+        private boolean enabled = false;
+
+        /**
+         * 落盘目录
+         */
+        private String directory = "./alarm-spool";
+
+        /**
+         * 单个分段文件大小(字节)，写满后滚动
+         */
+        private long segmentBytes = 4 * 1024 * 1024;
+
+        /**
+         * 落盘总大小上限(字节)，超出时删除最旧的分段
+         */
+        private long maxTotalBytes = 64 * 1024 * 1024;
+
+        /**
+         * 刷盘策略
+         */
+        private AlarmSpoolFsyncEnum fsyncPolicy = AlarmSpoolFsyncEnum.INTERVAL;
+
+        /**
+         * INTERVAL 策略的刷盘间隔(毫秒)
+         */
+        private long fsyncIntervalMillis = 1000;
+
+        /**
+         * 补发检查间隔(秒)
+         */
+        private long replayIntervalSeconds = 10;
+    }
+
+
+    /**
+     * 预警链路指标配置
+     */
+    @Getter
+    @Setter
+    public static class Metrics {
+
+        /**
+         * 是否统计指标
+         */
+        private boolean enabled = true;
+
+        /**
+         * 是否开放指标查询接口，接口暴露内部状态，默认关闭
+         */
+        private boolean endpointEnabled = false;
+
+        /**
+         * 指标查询接口路径
+         */
+        private String path = "/alarm/metrics";
+    }
+
+    /**
+     * 停机排空配置
+     */
+    @Getter
+    @Setter
+    public static class Shutdown {
+
+        /**
+         * 是否在停机时排空未发送的预警
+         */
+        private boolean enabled = true;
+
+        /**
+         * 排空最长等待时间(毫秒)，超时未发送的预警写入 spool
+         */
+        private long timeoutMillis = 5000;
+
+        /**
+         * SmartLifecycle phase，停止顺序按 phase 从大到小，默认在 Web 容器停止之后
+         */
+        private int phase = Integer.MAX_VALUE - 2048;
+    }
+
+    /**
+     * 异常热点统计配置，内存占用约 3 * 2 * depth * width * 8 字节
+     */
+    @Getter
+    @Setter
+    public static class HeavyHitter {
+
+        /**
+         * 是否统计
+         */
+        private boolean enabled = false;
+
+        /**
+         * 是否开放查询接口
+         */
+        private boolean endpointEnabled = false;
+
+        /**
+         * 查询接口路径
+         */
+        private String path = "/alarm/heavy-hitters";
+
+        /**
+         * 每个窗口返回的异常数
+         */
+        private int topK = 10;
+
+        /**
+         * 最多登记的候选异常数
+         */
+        private int maxCandidates = 1024;
+
+        /**
+         * sketch 行数，越多误差越小
+         */
+        private int depth = 4;
+
+        /**
+         * sketch 每行的计数器数，取 2 的幂
+         */
+        private int width = 2048;
+    }
 }
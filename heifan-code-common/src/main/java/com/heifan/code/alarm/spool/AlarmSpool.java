@@ -0,0 +1,520 @@
+package com.heifan.code.alarm.spool;
+
+import com.heifan.code.alarm.AlarmSpoolFsyncEnum;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * @description 预警落盘队列，webHook 不可用或派发器丢弃的预警追加写入分段文件，恢复后由 {@link AlarmSpoolReplayer} 补发。
+ * 记录格式为 长度(int) + CRC32(int) + 编码后的预警，单个分段写满后滚动，总大小超限时删除最旧的分段。
+ * 读取进度保存在 cursor 文件中，重启后从上次位置继续补发。
+ * @author HiF
+ * @date 2026/10/18 16:30
+ */
+@Slf4j
+public class AlarmSpool {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("alarm-(\\d{20})\\.spool");
+
+    private static final String CURSOR_NAME = "cursor";
+
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+
+    private final long segmentBytes;
+
+    private final long maxTotalBytes;
+
+    private final AlarmSpoolFsyncEnum fsyncPolicy;
+
+    private final long fsyncIntervalMillis;
+
+    /**
+     * 分段序号 -> 分段大小
+     */
+    private final TreeMap<Long, Long> segments = new TreeMap<>();
+
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+    private long totalBytes;
+
+    private FileChannel writeChannel;
+
+    private long writeSeq;
+
+    private long writePosition;
+
+    private boolean dirty;
+
+    private FileChannel readChannel;
+
+    private long readSeq;
+
+    private long readPosition;
+
+    private FileChannel cursorChannel;
+
+    private ScheduledExecutorService fsyncScheduler;
+
+    /**
+     * 写入失败或因超出总大小被删除而丢弃的记录数
+     */
+    private final AtomicLong droppedCount = new AtomicLong(0);
+
+    /**
+     * 因超出总大小而删除的分段数
+     */
+    private final AtomicLong evictedSegmentCount = new AtomicLong(0);
+
+    public AlarmSpool(AlarmNoticeProperty.Spool spool) {
+        this.directory = Paths.get(spool.getDirectory());
+        this.segmentBytes = Math.max(64 * 1024, spool.getSegmentBytes());
+        this.maxTotalBytes = Math.max(segmentBytes, spool.getMaxTotalBytes());
+        this.fsyncPolicy = null == spool.getFsyncPolicy() ? AlarmSpoolFsyncEnum.INTERVAL : spool.getFsyncPolicy();
+        this.fsyncIntervalMillis = Math.max(10, spool.getFsyncIntervalMillis());
+    }
+
+    public synchronized void start() throws IOException {
+        if (null != writeChannel) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "alarm-*.spool")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    long size = Files.size(file);
+                    segments.put(Long.parseLong(matcher.group(1)), size);
+                    totalBytes += size;
+                }
+            }
+        }
+        cursorChannel = FileChannel.open(directory.resolve(CURSOR_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        loadCursor();
+        // 上次未写完的分段只读不写，新记录总是写入新分段，避免接在半条记录后面
+        openSegment(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        if (fsyncPolicy == AlarmSpoolFsyncEnum.INTERVAL) {
+            fsyncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "alarm-spool-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            fsyncScheduler.scheduleWithFixedDelay(this::sync, fsyncIntervalMillis, fsyncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        log.info("init alarmSpool directory {} segments {} pending {} bytes fsync {}",
+                directory.toAbsolutePath(), segments.size(), pendingBytes(), fsyncPolicy);
+    }
+
+    public synchronized void shutdown() {
+        if (null != fsyncScheduler) {
+            fsyncScheduler.shutdownNow();
+            fsyncScheduler = null;
+        }
+        sync();
+        closeQuietly(writeChannel);
+        closeQuietly(readChannel);
+        closeQuietly(cursorChannel);
+        writeChannel = null;
+        readChannel = null;
+        cursorChannel = null;
+    }
+
+    /**
+     * 追加一条预警
+     *
+     * @param task 预警任务
+     * @return 是否写入成功
+     */
+    public boolean append(AlarmNoticeTask task) {
+        byte[] payload;
+        try {
+            payload = AlarmSpoolCodec.encode(task);
+        } catch (IOException e) {
+            log.warn("预警写入 spool 失败 编码异常 {}", task, e);
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        long recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes > segmentBytes) {
+            log.warn("预警写入 spool 失败 记录 {} bytes 超过分段大小", recordBytes);
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        synchronized (this) {
+            if (null == writeChannel) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            try {
+                if (writePosition > 0 && writePosition + recordBytes > segmentBytes) {
+                    writeChannel.force(false);
+                    openSegment(writeSeq + 1);
+                }
+                ensureCapacity(recordBytes);
+                header.clear();
+                header.putInt(payload.length).putInt((int) crc.getValue()).flip();
+                ByteBuffer body = ByteBuffer.wrap(payload);
+                while (header.hasRemaining()) {
+                    writeChannel.write(header, writePosition + header.position());
+                }
+                while (body.hasRemaining()) {
+                    writeChannel.write(body, writePosition + HEADER_BYTES + body.position());
+                }
+                writePosition += recordBytes;
+                totalBytes += recordBytes;
+                segments.put(writeSeq, writePosition);
+                if (fsyncPolicy == AlarmSpoolFsyncEnum.ALWAYS) {
+                    writeChannel.force(false);
+                } else {
+                    dirty = true;
+                }
+                return true;
+            } catch (IOException e) {
+                log.warn("预警写入 spool 失败", e);
+                droppedCount.incrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 读取下一条待补发的记录，不移动读取进度
+     *
+     * @return 记录，没有待补发记录时返回 null
+     */
+    public synchronized Record peek() {
+        while (null != writeChannel) {
+            Map.Entry<Long, Long> segment = segments.ceilingEntry(readSeq);
+            if (null == segment) {
+                return null;
+            }
+            if (segment.getKey() != readSeq) {
+                moveTo(segment.getKey());
+            }
+            boolean active = readSeq == writeSeq;
+            long limit = segment.getValue();
+            if (readPosition + HEADER_BYTES > limit) {
+                if (active) {
+                    return null;
+                }
+                // 分段已读完或末尾是半条记录
+                deleteSegment(readSeq);
+                continue;
+            }
+            try {
+                Record record = readRecord(limit);
+                if (null != record) {
+                    return record;
+                }
+            } catch (IOException e) {
+                log.warn("读取 spool 分段失败 {}", readSeq, e);
+            }
+            // 记录损坏，丢弃当前分段的剩余部分
+            if (active) {
+                readPosition = writePosition;
+                saveCursor();
+                return null;
+            }
+            deleteSegment(readSeq);
+        }
+        return null;
+    }
+
+    /**
+     * 记录补发完成，移动读取进度
+     *
+     * @param record 已补发的记录
+     */
+    public synchronized void commit(Record record) {
+        if (record.getSeq() == readSeq && record.getPosition() == readPosition) {
+            readPosition = record.getNextPosition();
+            saveCursor();
+        }
+    }
+
+    /**
+     * 当前写入位置，补发线程只补发这之前的记录，补发失败重新写入的记录留到下一轮
+     */
+    public synchronized Record endMark() {
+        return new Record(null, writeSeq, writePosition, writePosition);
+    }
+
+    public synchronized long pendingBytes() {
+        long pending = totalBytes;
+        Long readSize = segments.get(readSeq);
+        if (null != readSize) {
+            pending -= Math.min(readPosition, readSize);
+        }
+        return pending;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getEvictedSegmentCount() {
+        return evictedSegmentCount.get();
+    }
+
+    public synchronized void sync() {
+        if (!dirty || null == writeChannel) {
+            return;
+        }
+        try {
+            writeChannel.force(false);
+            if (null != cursorChannel) {
+                cursorChannel.force(false);
+            }
+            dirty = false;
+        } catch (IOException e) {
+            log.warn("spool 刷盘失败", e);
+        }
+    }
+
+    private Record readRecord(long limit) throws IOException {
+        if (null == readChannel) {
+            readChannel = FileChannel.open(segmentPath(readSeq), StandardOpenOption.READ);
+        }
+        header.clear();
+        while (header.hasRemaining()) {
+            if (readChannel.read(header, readPosition + header.position()) < 0) {
+                return null;
+            }
+        }
+        header.flip();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (length <= 0 || readPosition + HEADER_BYTES + length > limit) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        while (body.hasRemaining()) {
+            if (readChannel.read(body, readPosition + HEADER_BYTES + body.position()) < 0) {
+                return null;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, length);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        long nextPosition = readPosition + HEADER_BYTES + length;
+        try {
+            return new Record(AlarmSpoolCodec.decode(body.array()), readSeq, readPosition, nextPosition);
+        } catch (IOException e) {
+            // 单条记录无法解析时跳过，不影响后续记录
+            log.warn("spool 记录无法解析 跳过 分段 {} 位置 {}", readSeq, readPosition, e);
+            readPosition = nextPosition;
+            saveCursor();
+            return readRecord(limit);
+        }
+    }
+
+    /**
+     * 超过总大小时从最旧的分段开始删除，当前写入分段不删除
+     */
+    private void ensureCapacity(long recordBytes) throws IOException {
+        while (totalBytes + recordBytes > maxTotalBytes && segments.size() > 1) {
+            long oldest = segments.firstKey();
+            if (oldest == writeSeq) {
+                break;
+            }
+            long unread = unreadRecords(oldest);
+            log.warn("spool 超过 {} bytes 删除最旧分段 {} 丢弃未补发预警 {} 条", maxTotalBytes, oldest, unread);
+            evictedSegmentCount.incrementAndGet();
+            droppedCount.addAndGet(unread);
+            deleteSegment(oldest);
+        }
+        if (totalBytes + recordBytes > maxTotalBytes) {
+            throw new IOException("spool 已满 " + totalBytes + " bytes");
+        }
+    }
+
+    /**
+     * 分段中尚未补发的记录数，只读记录头逐条跳过
+     */
+    private long unreadRecords(long seq) {
+        if (seq < readSeq) {
+            return 0;
+        }
+        long position = seq == readSeq ? readPosition : 0;
+        long count = 0;
+        ByteBuffer length = ByteBuffer.allocate(4);
+        try (FileChannel channel = FileChannel.open(segmentPath(seq), StandardOpenOption.READ)) {
+            long size = channel.size();
+            while (position + HEADER_BYTES <= size) {
+                length.clear();
+                while (length.hasRemaining()) {
+                    if (channel.read(length, position + length.position()) < 0) {
+                        return count;
+                    }
+                }
+                length.flip();
+                int recordLength = length.getInt();
+                if (recordLength <= 0 || position + HEADER_BYTES + recordLength > size) {
+                    break;
+                }
+                position += HEADER_BYTES + recordLength;
+                count++;
+            }
+        } catch (IOException e) {
+            log.warn("统计 spool 分段 {} 记录数失败", seq, e);
+        }
+        return count;
+    }
+
+    private void openSegment(long seq) throws IOException {
+        closeQuietly(writeChannel);
+        writeChannel = FileChannel.open(segmentPath(seq),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        writeSeq = seq;
+        writePosition = writeChannel.size();
+        segments.put(seq, writePosition);
+    }
+
+    private void deleteSegment(long seq) {
+        Long size = segments.remove(seq);
+        if (null != size) {
+            totalBytes -= size;
+        }
+        if (seq == readSeq) {
+            closeQuietly(readChannel);
+            readChannel = null;
+            Long next = segments.higherKey(seq);
+            readSeq = null == next ? writeSeq : next;
+            readPosition = 0;
+            saveCursor();
+        }
+        try {
+            Files.deleteIfExists(segmentPath(seq));
+        } catch (IOException e) {
+            log.warn("删除 spool 分段失败 {}", seq, e);
+        }
+    }
+
+    private void moveTo(long seq) {
+        closeQuietly(readChannel);
+        readChannel = null;
+        readSeq = seq;
+        readPosition = 0;
+        saveCursor();
+    }
+
+    private void loadCursor() throws IOException {
+        ByteBuffer cursor = ByteBuffer.allocate(16);
+        while (cursor.hasRemaining() && cursorChannel.read(cursor, cursor.position()) > 0) {
+            // 读满 16 字节
+        }
+        if (!cursor.hasRemaining()) {
+            cursor.flip();
+            long seq = cursor.getLong();
+            long position = cursor.getLong();
+            Long size = segments.get(seq);
+            if (null != size && position <= size) {
+                readSeq = seq;
+                readPosition = position;
+                // 读取进度之前的分段都已补发
+                for (Long replayed : new ArrayList<>(segments.headMap(seq).keySet())) {
+                    deleteSegment(replayed);
+                }
+                return;
+            }
+        }
+        readSeq = segments.isEmpty() ? 0 : segments.firstKey();
+        readPosition = 0;
+    }
+
+    private void saveCursor() {
+        if (null == cursorChannel) {
+            return;
+        }
+        ByteBuffer cursor = ByteBuffer.allocate(16);
+        cursor.putLong(readSeq).putLong(readPosition).flip();
+        try {
+            while (cursor.hasRemaining()) {
+                cursorChannel.write(cursor, cursor.position());
+            }
+            if (fsyncPolicy == AlarmSpoolFsyncEnum.ALWAYS) {
+                cursorChannel.force(false);
+            } else {
+                dirty = true;
+            }
+        } catch (IOException e) {
+            log.warn("保存 spool 读取进度失败", e);
+        }
+    }
+
+    private Path segmentPath(long seq) {
+        return directory.resolve(String.format("alarm-%020d.spool", seq));
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (null == channel) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("关闭 spool 文件失败", e);
+        }
+    }
+
+    /**
+     * spool 中的一条记录
+     */
+    @Getter
+    public static class Record {
+
+        private final AlarmNoticeTask task;
+
+        private final long seq;
+
+        private final long position;
+
+        private final long nextPosition;
+
+        Record(AlarmNoticeTask task, long seq, long position, long nextPosition) {
+            this.task = task;
+            this.seq = seq;
+            this.position = position;
+            this.nextPosition = nextPosition;
+        }
+
+        /**
+         * 是否位于另一条记录之前
+         */
+        public boolean isBefore(Record other) {
+            return seq < other.seq || (seq == other.seq && position < other.position);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.heifan.code.alarm.spool;
+
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.dto.AlarmDigest;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.dto.ExceptionNotice;
+import com.heifan.code.alarm.dto.ServiceNotice;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @description 预警任务的二进制编码，字符串以 长度 + UTF-8 字节 存储，-1 表示 null
+ * @author HiF
+ * @date 2026/10/18 16:15
+ */
+public final class AlarmSpoolCodec {
+
+    private static final byte VERSION = 2;
+
+    private static final byte TYPE_EXCEPTION = 1;
+
+    private static final byte TYPE_SERVICE = 2;
+
+    private static final byte TYPE_DIGEST = 3;
+
+    private static final byte TYPE_TEXT = 4;
+
+    private AlarmSpoolCodec() {
+    }
+
+    public static byte[] encode(AlarmNoticeTask task) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        if (null != task.getExceptionNotice()) {
+            out.writeByte(TYPE_EXCEPTION);
+            writeExceptionNotice(out, task.getExceptionNotice());
+        } else if (null != task.getServiceNotice()) {
+            out.writeByte(TYPE_SERVICE);
+            writeServiceNotice(out, task.getServiceNotice());
+        } else if (null != task.getDigest()) {
+            out.writeByte(TYPE_DIGEST);
+            writeDigest(out, task.getDigest());
+        } else if (null != task.getContent()) {
+            out.writeByte(TYPE_TEXT);
+            writeString(out, task.getContent());
+        } else {
+            throw new IOException("预警任务内容为空");
+        }
+        writeStrings(out, task.getBlamedFor());
+        List<AlarmNoticeEnum> channels = task.getChannels();
+        if (null == channels) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(channels.size());
+            for (AlarmNoticeEnum channel : channels) {
+                writeString(out, channel.name());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static AlarmNoticeTask decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte version = in.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("不支持的 spool 记录版本 " + version);
+        }
+        byte type = in.readByte();
+        AlarmNoticeTask task;
+        switch (type) {
+            case TYPE_EXCEPTION:
+                ExceptionNotice exceptionNotice = readExceptionNotice(in);
+                task = AlarmNoticeTask.of(exceptionNotice, readStrings(in));
+                break;
+            case TYPE_SERVICE:
+                ServiceNotice serviceNotice = readServiceNotice(in);
+                task = AlarmNoticeTask.of(serviceNotice, readStrings(in));
+                break;
+            case TYPE_DIGEST:
+                AlarmDigest digest = readDigest(in);
+                task = AlarmNoticeTask.of(digest, readStrings(in));
+                break;
+            case TYPE_TEXT:
+                String content = readString(in);
+                task = AlarmNoticeTask.ofText(content, readStrings(in));
+                break;
+            default:
+                throw new IOException("未知的 spool 记录类型 " + type);
+        }
+        // 版本 1 没有平台信息，发送到所有平台
+        if (version >= 2) {
+            int size = in.readInt();
+            if (size >= 0) {
+                List<AlarmNoticeEnum> channels = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    channels.add(AlarmNoticeEnum.valueOf(readString(in)));
+                }
+                task = task.withChannels(channels);
+            }
+        }
+        return task;
+    }
+
+    private static void writeExceptionNotice(DataOutputStream out, ExceptionNotice notice) throws IOException {
+        writeString(out, notice.getProject());
+        writeString(out, notice.getUid());
+        writeString(out, notice.getMethodName());
+        writeString(out, notice.getAppTraceId());
+        writeString(out, notice.getClassPath());
+        writeString(out, notice.getExceptionMessage());
+        // 参数只用于展示，按字符串保存
+        List<Object> parames = notice.getParames();
+        if (null == parames) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(parames.size());
+            for (Object parame : parames) {
+                writeString(out, null == parame ? null : parame.toString());
+            }
+        }
+        List<String> traceInfo = notice.getTraceInfo();
+        writeStrings(out, null == traceInfo ? null : traceInfo.toArray(new String[0]));
+        out.writeLong(notice.getRepeatCount());
+        out.writeLong(notice.getRepeatSince());
+    }
+
+    private static ExceptionNotice readExceptionNotice(DataInputStream in) throws IOException {
+        ExceptionNotice notice = new ExceptionNotice();
+        notice.setProject(readString(in));
+        notice.setUid(readString(in));
+        notice.setMethodName(readString(in));
+        notice.setAppTraceId(readString(in));
+        notice.setClassPath(readString(in));
+        notice.setExceptionMessage(readString(in));
+        int size = in.readInt();
+        if (size >= 0) {
+            List<Object> parames = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                parames.add(readString(in));
+            }
+            notice.setParames(parames);
+        }
+        String[] traceInfo = readStrings(in);
+        List<String> traces = new ArrayList<>();
+        if (null != traceInfo) {
+            for (String trace : traceInfo) {
+                traces.add(trace);
+            }
+        }
+        notice.setTraceInfo(traces);
+        notice.setRepeatCount(in.readLong());
+        notice.setRepeatSince(in.readLong());
+        return notice;
+    }
+
+    private static void writeServiceNotice(DataOutputStream out, ServiceNotice notice) throws IOException {
+        writeString(out, notice.getTitle());
+        writeString(out, notice.getAppName());
+        writeString(out, notice.getServerId());
+        out.writeLong(null == notice.getTimestamp() ? System.currentTimeMillis() : notice.getTimestamp());
+        writeString(out, notice.getProfiles());
+    }
+
+    private static ServiceNotice readServiceNotice(DataInputStream in) throws IOException {
+        ServiceNotice notice = new ServiceNotice();
+        notice.setTitle(readString(in));
+        notice.setAppName(readString(in));
+        notice.setServerId(readString(in));
+        notice.setTimestamp(in.readLong());
+        notice.setProfiles(readString(in));
+        return notice;
+    }
+
+    private static void writeDigest(DataOutputStream out, AlarmDigest digest) throws IOException {
+        out.writeLong(digest.getStartTime());
+        out.writeLong(digest.getEndTime());
+        out.writeInt(digest.getItems().size());
+        for (AlarmDigest.Item item : digest.getItems()) {
+            writeString(out, item.getProject());
+            writeString(out, item.getClassPath());
+            writeString(out, item.getMethodName());
+            writeString(out, item.getExceptionMessage());
+            out.writeLong(item.getCount());
+        }
+    }
+
+    private static AlarmDigest readDigest(DataInputStream in) throws IOException {
+        AlarmDigest digest = new AlarmDigest();
+        digest.setStartTime(in.readLong());
+        digest.setEndTime(in.readLong());
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            AlarmDigest.Item item = new AlarmDigest.Item();
+            item.setProject(readString(in));
+            item.setClassPath(readString(in));
+            item.setMethodName(readString(in));
+            item.setExceptionMessage(readString(in));
+            item.setCount(in.readLong());
+            digest.getItems().add(item);
+        }
+        return digest;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        if (null == values) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.length);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = readString(in);
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+package com.heifan.code.alarm.spool;
+
+import com.heifan.code.alarm.AlarmNoticeEnum;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.manager.AlarmTokenExhaustedException;
+import com.heifan.code.alarm.manager.AlarmWebHookTokenManager;
+import com.heifan.code.alarm.message.AlarmNoticeSendI;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description spool 补发线程，存在健康的 webHook 令牌时按写入顺序补发落盘的预警。
+ * 每轮只补发本轮开始前写入的记录，补发失败的预警由发送方重新写入队尾，留到下一轮。
+ * @author HiF
+ * @date 2026/10/18 16:50
+ */
+@Slf4j
+public class AlarmSpoolReplayer {
+
+    private final long intervalMillis;
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired(required = false)
+    AlarmSpool alarmSpool;
+
+    @Autowired(required = false)
+    AlarmNoticeSendI alarmNoticeSend;
+
+    @Autowired(required = false)
+    AlarmWebHookTokenManager alarmWebHookTokenManager;
+
+    @Autowired(required = false)
+    AlarmNoticeProperty alarmNoticeProperty;
+
+    public AlarmSpoolReplayer(AlarmNoticeProperty.Spool spool) {
+        this.intervalMillis = TimeUnit.SECONDS.toMillis(Math.max(1, spool.getReplayIntervalSeconds()));
+    }
+
+    public synchronized void start() {
+        if (null != scheduler || null == alarmSpool || null == alarmNoticeSend) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alarm-spool-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::replay, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("init alarmSpoolReplayer interval {} ms", intervalMillis);
+    }
+
+    public synchronized void shutdown() {
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void replay() {
+        try {
+            AlarmSpool.Record end = alarmSpool.endMark();
+            int replayed = 0;
+            while (!Thread.currentThread().isInterrupted() && hasHealthyToken()) {
+                AlarmSpool.Record record = alarmSpool.peek();
+                if (null == record || !record.isBefore(end)) {
+                    break;
+                }
+                try {
+                    alarmNoticeSend.send(record.getTask());
+                } catch (AlarmTokenExhaustedException e) {
+                    if (null == e.getChannels() || e.getChannels().equals(targets(record.getTask()))) {
+                        // 额度用完，记录保留到下一轮
+                        break;
+                    }
+                    // 部分平台已发送，其余平台重新写入队尾
+                    alarmSpool.append(record.getTask().withChannels(e.getChannels()));
+                } catch (Exception e) {
+                    log.error("spool 预警补发失败 跳过 {}", record.getTask(), e);
+                }
+                alarmSpool.commit(record);
+                replayed++;
+            }
+            if (replayed > 0) {
+                log.info("spool 补发预警 {} 条 剩余 {} bytes", replayed, alarmSpool.pendingBytes());
+            }
+        } catch (Exception e) {
+            log.error("spool 补发异常", e);
+        }
+    }
+
+    private boolean hasHealthyToken() {
+        return null == alarmWebHookTokenManager || alarmWebHookTokenManager.hasHealthyToken();
+    }
+
+    private List<AlarmNoticeEnum> targets(AlarmNoticeTask task) {
+        if (null != task.getChannels()) {
+            return task.getChannels();
+        }
+        return null == alarmWebHookTokenManager ? alarmNoticeProperty.channelTypes()
+                : alarmWebHookTokenManager.routing().getChannelTypes();
+    }
+}
@@ -2,10 +2,12 @@ package com.heifan.code.config;
 
 import cn.hutool.json.JSONUtil;
 import lombok.extern.slf4j.Slf4j;
+import com.heifan.code.mdc.MdcSpan;
+import com.heifan.code.mdc.MdcTracer;
 import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.After;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -25,22 +27,43 @@ import javax.servlet.http.HttpServletRequest;
 @Component
 public class ApiMonitorConfig {
 
-    Long startTime;
-
-    Long endTime;
+    /**
+     * 打印接口请求参数与耗时，开启片段追踪时记录接口片段。
+     * 耗时用局部变量计算，并发请求之间互不影响
+     *
+     * @param joinPoint joinPoint
+     */
+    @Around("within(com.heifan.code.*.controller.*)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        long startTime = System.currentTimeMillis();
+        before(joinPoint);
+        MdcSpan span = MdcTracer.isEnabled() ? MdcTracer.start(joinPoint.getSignature().getDeclaringTypeName()
+                + "#" + joinPoint.getSignature().getName()) : null;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            if (null != span) {
+                span.error(e);
+            }
+            throw e;
+        } finally {
+            if (null != span) {
+                span.finish();
+            }
+            log.info(" Runtime:   {} ms", System.currentTimeMillis() - startTime);
+        }
+    }
 
     /**
      * 打印接口请求参数
      *
      * @param joinPoint joinPoint
      */
-    @Before("within(com.heifan.code.*.controller.*)")
-    public void before(JoinPoint joinPoint) {
+    private void before(JoinPoint joinPoint) {
         ServletRequestAttributes httpServletRequest = (ServletRequestAttributes) RequestContextHolder
                 .getRequestAttributes();
         HttpServletRequest request = null;
         log.info("--------------------------------");
-        startTime = System.currentTimeMillis();
         if (null != httpServletRequest) {
             request = httpServletRequest.getRequest();
             log.info(" HTTP URL Method :  {}#{}", request.getRequestURI(), request.getMethod());
@@ -60,11 +83,4 @@ public class ApiMonitorConfig {
         log.info("--------------------------------");
     }
 
-    @After("within(com.heifan.code.*.controller.*)")
-    public void after(JoinPoint joinPoint) {
-        endTime = System.currentTimeMillis();
-        Long runTime = endTime - startTime;
-        log.info(" Runtime:   {} ms", runTime);
-    }
-
 }
@@ -1,7 +1,9 @@
 package com.heifan.code.exception;
 
 import cn.hutool.core.util.StrUtil;
+import com.heifan.code.alarm.dto.ExceptionNotice;
 import com.heifan.code.alarm.manager.AlarmNoticeManage;
+import com.heifan.code.alarm.metrics.AlarmHeavyHitters;
 import com.heifan.code.domain.result.Result;
 import com.heifan.code.helper.SpringContentTools;
 import com.heifan.code.helper.SpringContextHelper;
@@ -34,7 +36,29 @@ public class ExceptionHandlerAdvice {
     @Autowired(required = false)
     SpringContentTools springContentTools;
 
-    private void sendAlarmNotice(Throwable e, String msg, String ext, String blamedFor) {
+    @Autowired(required = false)
+    AlarmHeavyHitters alarmHeavyHitters;
+
+    /**
+     * 记录到异常热点统计，已生成预警时复用预警的指纹信息，否则只按异常类型与抛出位置计算指纹
+     *
+     * @param notice 已生成的异常通知，可为 null
+     */
+    private void recordHeavyHitter(Throwable e, ExceptionNotice notice, int code) {
+        if (null == alarmHeavyHitters) {
+            return;
+        }
+        if (null != notice) {
+            alarmHeavyHitters.record(notice, code);
+        } else {
+            alarmHeavyHitters.record(e, code);
+        }
+    }
+
+    /**
+     * @return 生成的异常通知，未开启预警或当前环境不预警时为 null
+     */
+    private ExceptionNotice sendAlarmNotice(Throwable e, String msg, String ext, String blamedFor) {
         if (null != alarmNoticeManage) {
             if (SpringContextHelper.isTestEnv() || SpringContextHelper.isProdEnv() || SpringContextHelper.isDevEnv()) {
                 String appTraceId = MDC.get(MdcApiConstant.HTTP_HEADER_TRACE_ID);
@@ -48,11 +72,12 @@ public class ExceptionHandlerAdvice {
                         ext = springContentTools.instanceInfo();
                     }
                 }
-                alarmNoticeManage.createNoticeAppTraceIdMany(e, appTraceId, msg + " " + ext, blamedFor);
+                return alarmNoticeManage.createNoticeAppTraceIdMany(e, appTraceId, msg + " " + ext, blamedFor);
             }
         } else {
             log.error("预警失败 未开启alarm模块");
         }
+        return null;
     }
 
     @ExceptionHandler(value = {ResponseStatusException.class})
@@ -77,7 +102,8 @@ public class ExceptionHandlerAdvice {
     public Result handle(FeignException ex, HttpServletResponse response) {
         response.setStatus(HttpStatus.OK.value());
         response.setContentType("application/json; CharSet=UTF-8");
-        sendAlarmNotice(ex, "", ex.getMessage(), "");
+        ExceptionNotice notice = sendAlarmNotice(ex, "", ex.getMessage(), "");
+        recordHeavyHitter(ex, notice, MessageCodeEnum.SERVER_ERROR.getCode());
         log.error("response status exception:{}", ex.getMessage());
         return Result.failure("服务开小差,请稍后尝试！");
     }
@@ -97,7 +123,8 @@ public class ExceptionHandlerAdvice {
     public Result handle(RuntimeException ex, HttpServletResponse response) {
         response.setContentType("application/json; CharSet=UTF-8");
         log.error("runtime exception:{}", ex.getMessage());
-        sendAlarmNotice(ex, "", ex.getMessage(), "");
+        ExceptionNotice notice = sendAlarmNotice(ex, "", ex.getMessage(), "");
+        recordHeavyHitter(ex, notice, MessageCodeEnum.SERVER_ERROR.getCode());
         return Result.failure("服务开小差,请稍后尝试！");
     }
 
@@ -116,7 +143,8 @@ public class ExceptionHandlerAdvice {
     public Result handle(BizException ex, HttpServletResponse response) {
         response.setContentType("application/json; CharSet=UTF-8");
         log.error("runtime exception:{}", ex.getMessage());
-        sendAlarmNotice(ex, "", ex.getMessage(), "");
+        ExceptionNotice notice = sendAlarmNotice(ex, "", ex.getMessage(), "");
+        recordHeavyHitter(ex, notice, ex.getCode());
         return Result.failure(ex.getMessage());
     }
 
@@ -126,6 +154,7 @@ public class ExceptionHandlerAdvice {
     public Result handle(ParamException ex, HttpServletResponse response) {
         response.setContentType("application/json; CharSet=UTF-8");
         log.error("runtime exception:{}", ex.getMessage());
+        recordHeavyHitter(ex, null, MessageCodeEnum.PARAM_ERROR.getCode());
         return Result.failure(ex.getMessage());
     }
 
@@ -152,6 +181,7 @@ public class ExceptionHandlerAdvice {
             result = Result.failure(HttpStatus.METHOD_NOT_ALLOWED.value(),
                     "Client Error");
         } else {// 其他异常，返回500状态码
+            recordHeavyHitter(e, null, MessageCodeEnum.SERVER_ERROR.getCode());
             response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
             result = Result.failure(
                     HttpStatus.INTERNAL_SERVER_ERROR.value(),
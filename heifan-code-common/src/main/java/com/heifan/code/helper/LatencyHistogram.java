@@ -0,0 +1,95 @@
+package com.heifan.code.helper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @description 固定桶的延迟直方图，记录无锁无分配，分位数取所在桶的上界。预警与 Feign 指标共用
+ * @author HiF
+ * @date 2026/10/18 20:10
+ */
+public class LatencyHistogram {
+
+    /**
+     * 桶上界(毫秒)，最后一个桶收纳超出部分
+     */
+    private static final long[] BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sumMicros = new LongAdder();
+
+    private final AtomicLong maxMicros = new AtomicLong(0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        int index = 0;
+        while (index < BOUNDS.length && micros > BOUNDS[index] * 1000) {
+            index++;
+        }
+        buckets[index].increment();
+        count.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 分位数(毫秒)，超出最大桶时返回最大值
+     */
+    public double percentile(double percentile) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUNDS[i];
+            }
+        }
+        return maxMicros.get() / 1000.0;
+    }
+
+    public Map<String, Object> snapshot() {
+        long total = count.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("mean", total == 0 ? 0 : sumMicros.sum() / 1000.0 / total);
+        snapshot.put("max", maxMicros.get() / 1000.0);
+        snapshot.put("p50", percentile(0.50));
+        snapshot.put("p90", percentile(0.90));
+        snapshot.put("p99", percentile(0.99));
+        // 累计桶，与 Prometheus 的 le 语义一致
+        Map<String, Long> cumulative = new LinkedHashMap<>();
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += buckets[i].sum();
+            cumulative.put(String.valueOf(BOUNDS[i]), seen);
+        }
+        cumulative.put("+Inf", seen + buckets[BOUNDS.length].sum());
+        snapshot.put("buckets", cumulative);
+        return snapshot;
+    }
+}
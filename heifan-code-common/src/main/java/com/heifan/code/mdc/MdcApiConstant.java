@@ -11,6 +11,11 @@ public interface MdcApiConstant {
      */
     String HTTP_HEADER_TRACE_ID = "AppTraceId";
 
+    /**
+     * MDC中的片段id
+     */
+    String SPAN_ID = "SpanId";
+
     /**
      * 请求头
      */
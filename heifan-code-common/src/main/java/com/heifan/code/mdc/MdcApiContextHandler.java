@@ -9,9 +9,6 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.servlet.http.HttpServletRequest;
-import java.time.Instant;
-import java.util.UUID;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * @author z201.coding@gmail.com
@@ -52,22 +49,12 @@ public class MdcApiContextHandler implements MdcApiConstant {
     }
 
     /**
-     * 生成日志随机数
+     * 生成日志随机数，格式见 {@link MdcTraceIdGenerator}
      *
      * @return
      */
-    public static synchronized String currentTraceId() {
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-        UUID uuid = new UUID(random.nextInt(), random.nextInt());
-        StringBuilder st = new StringBuilder(uuid.toString().replace("-", "").toLowerCase());
-        st.append(Instant.now().toEpochMilli());
-        int i = 0;
-        while (i < 3) {
-            i++;
-            st.append(ThreadLocalRandom.current().nextInt(2));
-        }
-        return st.toString();
+    public static String currentTraceId() {
+        return MdcTraceIdGenerator.next();
     }
 
-
 }
@@ -1,6 +1,7 @@
 package com.heifan.code.mdc;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -9,11 +10,20 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 /**
  * @author z201.coding@gamil.com
  * 日志拦截器，排除对spring cloud gateway的影响 (WebMvcConfigurer)
+ * 响应式应用(spring cloud gateway)使用 {@link MdcReactiveLogAutoConfiguration}
  */
 @ConditionalOnClass(WebMvcConfigurer.class)
 @Slf4j
 public class MdcApiLogAutoConfiguration {
 
+    /**
+     * 链路id格式 HEX / TRACEPARENT
+     */
+    @Value("${mdc.trace-id-format:HEX}")
+    public void setTraceIdFormat(MdcTraceIdFormatEnum traceIdFormat) {
+        MdcTraceIdGenerator.setFormat(traceIdFormat);
+    }
+
     @Bean
     public FilterRegistrationBean requestContextRepositoryFilterRegistrationBean() {
         FilterRegistrationBean<MdcTraceContextFilter> filterRegistrationBean = new FilterRegistrationBean<>();
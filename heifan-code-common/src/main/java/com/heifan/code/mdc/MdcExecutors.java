@@ -0,0 +1,67 @@
+package com.heifan.code.mdc;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * MDC传递的工具方法，包装各类线程池，提交任务时取父线程的MDC快照并在子线程中恢复。
+ * <pre>
+ *     ExecutorService executor = MdcExecutors.wrap(Executors.newFixedThreadPool(8));
+ *     CompletableFuture.supplyAsync(() -> query(), MdcExecutors.commonPool());
+ *     ScheduledExecutorService scheduler = MdcExecutors.wrap(Executors.newScheduledThreadPool(1));
+ * </pre>
+ * 并行流跑在 ForkJoin 公共池上，无法从外部包装，使用 {@link MdcSnapshot#wrapFunction(java.util.function.Function)} 包装流中的函数
+ *
+ * @author HiF
+ * @date 2026/10/18 23:50
+ */
+public final class MdcExecutors {
+
+    private static final ExecutorService COMMON_POOL = new MdcExecutorService(ForkJoinPool.commonPool());
+
+    private MdcExecutors() {
+    }
+
+    public static Executor wrap(Executor executor) {
+        if (executor instanceof ScheduledExecutorService) {
+            return wrap((ScheduledExecutorService) executor);
+        }
+        if (executor instanceof ExecutorService) {
+            return wrap((ExecutorService) executor);
+        }
+        return command -> executor.execute(MdcSnapshot.capture().wrap(command));
+    }
+
+    public static ExecutorService wrap(ExecutorService executor) {
+        if (executor instanceof MdcExecutorService) {
+            return executor;
+        }
+        if (executor instanceof ScheduledExecutorService) {
+            return wrap((ScheduledExecutorService) executor);
+        }
+        return new MdcExecutorService(executor);
+    }
+
+    public static ScheduledExecutorService wrap(ScheduledExecutorService executor) {
+        if (executor instanceof MdcScheduledExecutorService) {
+            return executor;
+        }
+        return new MdcScheduledExecutorService(executor);
+    }
+
+    /**
+     * 包装 ForkJoinPool，任务以普通任务提交，fork / join 不经过包装，需要时用 {@link MdcSnapshot} 包装子任务
+     */
+    public static ExecutorService wrap(ForkJoinPool pool) {
+        return new MdcExecutorService(pool);
+    }
+
+    /**
+     * ForkJoin 公共池的包装，供 CompletableFuture 的 xxxAsync 方法使用
+     */
+    public static ExecutorService commonPool() {
+        return COMMON_POOL;
+    }
+}
@@ -0,0 +1,65 @@
+package com.heifan.code.mdc;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.openfeign.Targeter;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * @description Feign 调用透传链路id，按客户端与方法记录耗时和错误。
+ * 拦截器注册在主容器，各 FeignClient 子容器会一并取到；Targeter 由 FeignAutoConfiguration 创建，这里只做包装
+ * @author HiF
+ * @date 2026/10/19 1:30
+ */
+@ConditionalOnClass(name = {"feign.RequestInterceptor", "org.springframework.cloud.openfeign.Targeter"})
+@EnableConfigurationProperties({MdcFeignProperty.class})
+public class MdcFeignConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean({MdcFeignRequestInterceptor.class})
+    @ConditionalOnProperty(prefix = "mdc.feign", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public MdcFeignRequestInterceptor mdcFeignRequestInterceptor(MdcFeignProperty mdcFeignProperty) {
+        return new MdcFeignRequestInterceptor(mdcFeignProperty);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({MdcFeignMetrics.class})
+    @ConditionalOnProperty(prefix = "mdc.feign", name = "metrics-enabled", havingValue = "true", matchIfMissing = true)
+    public MdcFeignMetrics mdcFeignMetrics() {
+        return new MdcFeignMetrics();
+    }
+
+    /**
+     * 后置处理器先于普通 bean 创建，指标延迟获取
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "mdc.feign", name = "metrics-enabled", havingValue = "true", matchIfMissing = true)
+    public static BeanPostProcessor mdcFeignTargeterPostProcessor(ObjectProvider<MdcFeignMetrics> mdcFeignMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof Targeter && !(bean instanceof MdcFeignTargeter)) {
+                    MdcFeignMetrics metrics = mdcFeignMetrics.getIfAvailable();
+                    if (null != metrics) {
+                        return new MdcFeignTargeter((Targeter) bean, metrics);
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({MdcFeignEndpoint.class})
+    @ConditionalOnBean({MdcFeignMetrics.class})
+    @ConditionalOnProperty(prefix = "mdc.feign", name = "endpoint-enabled", havingValue = "true")
+    public MdcFeignEndpoint mdcFeignEndpoint() {
+        return new MdcFeignEndpoint();
+    }
+}
@@ -0,0 +1,27 @@
+package com.heifan.code.mdc;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
+
+/**
+ * @description Feign 调用指标查询接口。
+ * 仅在 mdc.feign.endpoint-enabled=true 时注册
+ * @author HiF
+ * @date 2026/10/19 1:30
+ */
+@RequestMapping
+@ResponseBody
+public class MdcFeignEndpoint {
+
+    @Autowired
+    MdcFeignMetrics mdcFeignMetrics;
+
+    @GetMapping("${mdc.feign.path:/mdc/feign/metrics}")
+    public Map<String, Object> metrics() {
+        return mdcFeignMetrics.snapshot();
+    }
+}
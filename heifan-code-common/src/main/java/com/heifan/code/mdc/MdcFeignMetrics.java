@@ -0,0 +1,106 @@
+package com.heifan.code.mdc;
+
+import com.heifan.code.helper.LatencyHistogram;
+import feign.FeignException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @description Feign 调用指标，按客户端(@FeignClient name)与方法(Feign configKey)记录耗时直方图与错误数。
+ * 错误按响应状态码归类，没有响应(超时、连接失败)时按异常类名归类。指标名沿用 Micrometer 的命名方式(mdc.feign.xxx)
+ * @author HiF
+ * @date 2026/10/19 1:20
+ */
+public class MdcFeignMetrics {
+
+    /**
+     * 客户端 -> 方法 -> 指标，方法在代理创建时登记，调用时不再查找
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Timer>> clients = new ConcurrentHashMap<>();
+
+    /**
+     * 登记客户端方法，重复登记返回同一个计时器
+     *
+     * @param client    客户端名称
+     * @param configKey 方法，格式如 UserClient#get(Long)
+     */
+    public Timer timer(String client, String configKey) {
+        return clients.computeIfAbsent(client, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(configKey, key -> new Timer());
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long calls = 0;
+        long errors = 0;
+        Map<String, Object> latencies = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentMap<String, Timer>> client : clients.entrySet()) {
+            Map<String, Object> methods = new TreeMap<>();
+            for (Map.Entry<String, Timer> method : client.getValue().entrySet()) {
+                Timer timer = method.getValue();
+                if (timer.latency.count() == 0) {
+                    continue;
+                }
+                calls += timer.latency.count();
+                errors += timer.errorCount();
+                methods.put(method.getKey(), timer.snapshot());
+            }
+            if (!methods.isEmpty()) {
+                latencies.put(client.getKey(), methods);
+            }
+        }
+        snapshot.put("mdc.feign.calls", calls);
+        snapshot.put("mdc.feign.errors", errors);
+        snapshot.put("mdc.feign.client", latencies);
+        return snapshot;
+    }
+
+    /**
+     * 单个客户端方法的耗时与错误
+     */
+    public static class Timer {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        public void record(long nanos, Throwable throwable) {
+            latency.record(nanos);
+            if (null != throwable) {
+                errors.computeIfAbsent(errorKey(throwable), key -> new LongAdder()).increment();
+            }
+        }
+
+        private long errorCount() {
+            long total = 0;
+            for (LongAdder counter : errors.values()) {
+                total += counter.sum();
+            }
+            return total;
+        }
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("latency", latency.snapshot());
+            Map<String, Long> counters = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> entry : errors.entrySet()) {
+                counters.put(entry.getKey(), entry.getValue().sum());
+            }
+            snapshot.put("errors", counters);
+            return snapshot;
+        }
+
+        private static String errorKey(Throwable throwable) {
+            if (throwable instanceof FeignException && ((FeignException) throwable).status() > 0) {
+                return String.valueOf(((FeignException) throwable).status());
+            }
+            Throwable cause = null == throwable.getCause() ? throwable : throwable.getCause();
+            return cause.getClass().getSimpleName();
+        }
+    }
+}
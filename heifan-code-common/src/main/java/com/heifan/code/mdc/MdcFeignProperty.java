@@ -0,0 +1,52 @@
+package com.heifan.code.mdc;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @description Feign 调用透传与指标配置
+ * @author HiF
+ * @date 2026/10/19 1:20
+ */
+@ConfigurationProperties(prefix = "mdc.feign")
+@Getter
+@Setter
+public class MdcFeignProperty {
+
+    /**
+     * 是否透传链路id与请求头
+     */
+    private boolean enabled = true;
+
+    /**
+     * 从当前请求透传到下游的请求头，链路id总是透传
+     */
+    private List<String> headers = new ArrayList<>(Arrays.asList(
+            MdcApiConstant.CLIENT_BUSINESS_GROUP_SOURCE,
+            MdcApiConstant.CLIENT_BUSINESS_SOURCE,
+            MdcApiConstant.CLIENT_BUSINESS_ACTIVITY_SOURCE,
+            MdcApiConstant.CLIENT_EVN_SOURCE,
+            MdcApiConstant.CLIENT_PLATFORM_SOURCE,
+            MdcApiConstant.CLIENT_START_TIME,
+            MdcApiConstant.CLIENT_VERSION_SOURCE));
+
+    /**
+     * 是否按客户端与方法记录耗时和错误
+     */
+    private boolean metricsEnabled = true;
+
+    /**
+     * 是否开启指标查询接口
+     */
+    private boolean endpointEnabled = false;
+
+    /**
+     * 指标查询接口路径
+     */
+    private String path = "/mdc/feign/metrics";
+}
@@ -0,0 +1,60 @@
+package com.heifan.code.mdc;
+
+import cn.hutool.core.util.StrUtil;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import org.slf4j.MDC;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * @description Feign 请求透传链路id与 Client-* 请求头，下游 MdcTraceContextFilter 沿用同一个 AppTraceId。
+ * 链路id优先取MDC，其次取当前请求的请求头；Client-* 请求头取自当前请求，异步线程中没有请求时只透传链路id。
+ * 调用方已设置的请求头不覆盖
+ * @author HiF
+ * @date 2026/10/19 1:20
+ */
+public class MdcFeignRequestInterceptor implements RequestInterceptor {
+
+    private final List<String> headers;
+
+    public MdcFeignRequestInterceptor(MdcFeignProperty mdcFeignProperty) {
+        this.headers = mdcFeignProperty.getHeaders();
+    }
+
+    @Override
+    public void apply(RequestTemplate template) {
+        HttpServletRequest request = currentRequest();
+        String appTraceId = MDC.get(MdcApiConstant.HTTP_HEADER_TRACE_ID);
+        if (StrUtil.isEmpty(appTraceId) && null != request) {
+            appTraceId = request.getHeader(MdcApiConstant.HTTP_HEADER_TRACE_ID);
+        }
+        if (StrUtil.isNotEmpty(appTraceId)) {
+            header(template, MdcApiConstant.HTTP_HEADER_TRACE_ID, appTraceId);
+        }
+        if (null == request) {
+            return;
+        }
+        for (String name : headers) {
+            String value = request.getHeader(name);
+            if (StrUtil.isNotEmpty(value)) {
+                header(template, name, value);
+            }
+        }
+    }
+
+    private static void header(RequestTemplate template, String name, String value) {
+        if (!template.headers().containsKey(name)) {
+            template.header(name, value);
+        }
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes ? ((ServletRequestAttributes) attributes).getRequest() : null;
+    }
+}
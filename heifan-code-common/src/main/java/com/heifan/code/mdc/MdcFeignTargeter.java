@@ -0,0 +1,136 @@
+package com.heifan.code.mdc;
+
+import feign.Feign;
+import feign.Target;
+import org.springframework.cloud.openfeign.FeignClientFactoryBean;
+import org.springframework.cloud.openfeign.FeignContext;
+import org.springframework.cloud.openfeign.Targeter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @description 包装 Spring Cloud OpenFeign 的 Targeter，在生成的客户端外再套一层代理，
+ * 按客户端与方法记录耗时和错误，开启追踪时每次调用记录一个片段。
+ * 包在最外层，负载均衡、熔断、重试都算在耗时内，熔断降级吞掉的异常不计为错误
+ * @author HiF
+ * @date 2026/10/19 1:25
+ */
+public class MdcFeignTargeter implements Targeter {
+
+    private final Targeter delegate;
+
+    private final MdcFeignMetrics metrics;
+
+    public MdcFeignTargeter(Targeter delegate, MdcFeignMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <T> T target(FeignClientFactoryBean factory, Feign.Builder feign, FeignContext context,
+                        Target.HardCodedTarget<T> target) {
+        T client = delegate.target(factory, feign, context, target);
+        Class<T> type = target.type();
+        Map<Method, TimedMethod> methods = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            if (method.getDeclaringClass() != Object.class) {
+                methods.put(method, new TimedMethod(method, method.isDefault()
+                        ? null : metrics.timer(target.name(), Feign.configKey(type, method))));
+            }
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new TimedInvocationHandler(client, target.name(), methods)));
+    }
+
+    /**
+     * 客户端方法与其计时器，默认方法不计时。
+     * 代理回调传入的 Method 是另一个实例，这里保存已放开访问检查的实例，接口不是 public 时也能调用
+     */
+    private static class TimedMethod {
+
+        private final Method method;
+
+        private final MdcFeignMetrics.Timer timer;
+
+        TimedMethod(Method method, MdcFeignMetrics.Timer timer) {
+            method.setAccessible(true);
+            this.method = method;
+            this.timer = timer;
+        }
+    }
+
+    private static class TimedInvocationHandler implements InvocationHandler {
+
+        private final Object client;
+
+        private final String name;
+
+        private final Map<Method, TimedMethod> methods;
+
+        TimedInvocationHandler(Object client, String name, Map<Method, TimedMethod> methods) {
+            this.client = client;
+            this.name = name;
+            this.methods = methods;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            TimedMethod timed = methods.get(method);
+            if (null == timed) {
+                if ("equals".equals(method.getName()) && method.getParameterCount() == 1) {
+                    return null != args[0] && Proxy.isProxyClass(args[0].getClass())
+                            && equals(Proxy.getInvocationHandler(args[0]));
+                }
+                if ("hashCode".equals(method.getName()) && method.getParameterCount() == 0) {
+                    return hashCode();
+                }
+                return invoke(method, args);
+            }
+            if (null == timed.timer) {
+                return invoke(timed.method, args);
+            }
+            MdcSpan span = MdcTracer.isEnabled()
+                    ? MdcTracer.start("feign " + name + " " + method.getName()) : MdcSpan.NOOP;
+            long start = System.nanoTime();
+            Throwable error = null;
+            try {
+                return invoke(timed.method, args);
+            } catch (Throwable e) {
+                error = e;
+                span.error(e);
+                throw e;
+            } finally {
+                timed.timer.record(System.nanoTime() - start, error);
+                span.finish();
+            }
+        }
+
+        private Object invoke(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(client, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TimedInvocationHandler && client.equals(((TimedInvocationHandler) obj).client);
+        }
+
+        @Override
+        public int hashCode() {
+            return client.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return client.toString();
+        }
+    }
+}
@@ -1,14 +1,30 @@
 package com.heifan.code.mdc;
 
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
+import org.springframework.context.ResourceLoaderAware;
 import org.springframework.context.annotation.ImportSelector;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.context.WebApplicationContext;
 
 import java.util.Map;
 
 /**
  * @author z201.coding@gmail.com
  **/
-public class MdcLogImportSelector implements ImportSelector {
+public class MdcLogImportSelector implements ImportSelector, ResourceLoaderAware {
+
+    private static final String SERVLET_CLASS = "org.springframework.web.servlet.DispatcherServlet";
+
+    private static final String REACTIVE_CLASS = "org.springframework.web.reactive.DispatcherHandler";
+
+    private ResourceLoader resourceLoader;
+
+    @Override
+    public void setResourceLoader(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
 
     @Override
     public String[] selectImports(AnnotationMetadata importingClassMetadata) {
@@ -17,11 +33,35 @@ public class MdcLogImportSelector implements ImportSelector {
         if (null != attributes && null != attributes.get("enable")) {
             Boolean enable = (Boolean) attributes.get("enable");
             if (enable) {
+                if (isReactive()) {
+                    return new String[] {
+                            "com.heifan.code.mdc.MdcReactiveLogAutoConfiguration",
+                            "com.heifan.code.mdc.MdcTaskExecutorConfiguration",
+                            "com.heifan.code.mdc.MdcTracingConfiguration",
+                    };
+                }
                 return new String[] {
                         "com.heifan.code.mdc.MdcApiLogAutoConfiguration",
+                        "com.heifan.code.mdc.MdcTaskExecutorConfiguration",
+                        "com.heifan.code.mdc.MdcTracingConfiguration",
+                        "com.heifan.code.mdc.MdcFeignConfiguration",
                 };
             }
         }
         return new String[] {};
     }
+
+    /**
+     * 响应式应用(WebFlux / Spring Cloud Gateway)。
+     * 优先按容器类型判断，容器类型未知时与 Spring Boot 一致，只有 WebFlux 没有 Spring MVC 时才算响应式
+     */
+    private boolean isReactive() {
+        if (resourceLoader instanceof ReactiveWebApplicationContext) {
+            return true;
+        }
+        ClassLoader classLoader = null == resourceLoader ? null : resourceLoader.getClassLoader();
+        return !(resourceLoader instanceof WebApplicationContext)
+                && ClassUtils.isPresent(REACTIVE_CLASS, classLoader)
+                && !ClassUtils.isPresent(SERVLET_CLASS, classLoader);
+    }
 }
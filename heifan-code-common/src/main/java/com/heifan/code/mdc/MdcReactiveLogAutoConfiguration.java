@@ -0,0 +1,31 @@
+package com.heifan.code.mdc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * @description 响应式应用(WebFlux / Spring Cloud Gateway)的链路id过滤器，由 MdcLogImportSelector 按应用类型选择
+ * @author HiF
+ * @date 2026/10/19 1:55
+ */
+@ConditionalOnClass(name = "reactor.core.publisher.Mono")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class MdcReactiveLogAutoConfiguration {
+
+    /**
+     * 链路id格式 HEX / TRACEPARENT
+     */
+    @Value("${mdc.trace-id-format:HEX}")
+    public void setTraceIdFormat(MdcTraceIdFormatEnum traceIdFormat) {
+        MdcTraceIdGenerator.setFormat(traceIdFormat);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({MdcReactiveTraceFilter.class})
+    public MdcReactiveTraceFilter mdcReactiveTraceFilter() {
+        return new MdcReactiveTraceFilter();
+    }
+}
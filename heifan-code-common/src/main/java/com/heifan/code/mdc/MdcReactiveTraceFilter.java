@@ -0,0 +1,41 @@
+package com.heifan.code.mdc;
+
+import cn.hutool.core.util.StrUtil;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * @description MdcTraceContextFilter 的响应式版本，用于 WebFlux 与 Spring Cloud Gateway。
+ * 链路id取请求头 AppTraceId，没有时生成并写回请求头，网关转发时下游沿用同一个链路id。
+ * 链路id写入 Reactor Context 与 exchange 属性，不复制到每个操作符的线程变量，打印日志时用 {@link MdcReactorContext} 临时写入MDC
+ * @author HiF
+ * @date 2026/10/19 1:50
+ */
+public class MdcReactiveTraceFilter implements WebFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String appTraceId = exchange.getRequest().getHeaders().getFirst(MdcApiConstant.HTTP_HEADER_TRACE_ID);
+        if (StrUtil.isEmpty(appTraceId)) {
+            appTraceId = MdcApiContextHandler.currentTraceId();
+            String traceId = appTraceId;
+            ServerHttpRequest request = exchange.getRequest().mutate()
+                    .headers(headers -> headers.set(MdcApiConstant.HTTP_HEADER_TRACE_ID, traceId))
+                    .build();
+            exchange = exchange.mutate().request(request).build();
+        }
+        exchange.getAttributes().put(MdcApiConstant.HTTP_HEADER_TRACE_ID, appTraceId);
+        String traceId = appTraceId;
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(MdcReactorContext.TRACE_ID_KEY, traceId));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 8;
+    }
+}
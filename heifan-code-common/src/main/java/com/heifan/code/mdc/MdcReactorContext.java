@@ -0,0 +1,88 @@
+package com.heifan.code.mdc;
+
+import org.slf4j.MDC;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.util.context.ContextView;
+
+import java.util.function.Consumer;
+
+/**
+ * @description 响应式链路里的链路id读取与日志桥接。
+ * 链路id只保存在 Reactor Context 中，打印日志时才写入MDC，日志打完立即恢复，避免每个操作符切换线程都复制MDC
+ * <pre>
+ *     return service.find(id)
+ *             .doOnEach(MdcReactorContext.onNext(user -&gt; log.info("find {}", user)))
+ *             .doOnEach(MdcReactorContext.onError(e -&gt; log.error("find error", e)));
+ * </pre>
+ * @author HiF
+ * @date 2026/10/19 1:50
+ */
+public final class MdcReactorContext {
+
+    /**
+     * Reactor Context 中链路id的键
+     */
+    public static final String TRACE_ID_KEY = MdcApiConstant.HTTP_HEADER_TRACE_ID;
+
+    private MdcReactorContext() {
+    }
+
+    /**
+     * 当前订阅的链路id，没有时为空
+     */
+    public static Mono<String> traceId() {
+        return Mono.deferContextual(context -> Mono.justOrEmpty(traceId(context)));
+    }
+
+    /**
+     * 上下文中的链路id，没有时返回 null
+     */
+    public static String traceId(ContextView context) {
+        return context.getOrDefault(TRACE_ID_KEY, null);
+    }
+
+    /**
+     * 链路id写入MDC后执行日志语句，执行完恢复线程原有的值
+     */
+    public static void withMdc(ContextView context, Runnable logStatement) {
+        String traceId = traceId(context);
+        if (null == traceId) {
+            logStatement.run();
+            return;
+        }
+        String previous = MDC.get(MdcApiConstant.HTTP_HEADER_TRACE_ID);
+        MDC.put(MdcApiConstant.HTTP_HEADER_TRACE_ID, traceId);
+        try {
+            logStatement.run();
+        } finally {
+            if (null == previous) {
+                MDC.remove(MdcApiConstant.HTTP_HEADER_TRACE_ID);
+            } else {
+                MDC.put(MdcApiConstant.HTTP_HEADER_TRACE_ID, previous);
+            }
+        }
+    }
+
+    /**
+     * 用于 doOnEach，onNext 时带链路id打印日志
+     */
+    public static <T> Consumer<Signal<T>> onNext(Consumer<T> logStatement) {
+        return signal -> {
+            if (signal.isOnNext()) {
+                withMdc(signal.getContextView(), () -> logStatement.accept(signal.get()));
+            }
+        };
+    }
+
+    /**
+     * 用于 doOnEach，onError 时带链路id打印日志
+     */
+    public static <T> Consumer<Signal<T>> onError(Consumer<Throwable> logStatement) {
+        return signal -> {
+            if (signal.isOnError()) {
+                withMdc(signal.getContextView(), () -> logStatement.accept(signal.getThrowable()));
+            }
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package com.heifan.code.mdc;
+
+/**
+ * @description 线程池满时的处理策略
+ * @author HiF
+ * @date 2026/10/19 0:10
+ */
+public enum MdcRejectionPolicyEnum {
+
+    /**
+     * 抛出 RejectedExecutionException
+     */
+    ABORT,
+    /**
+     * 由提交任务的线程执行
+     */
+    CALLER_RUNS,
+    /**
+     * 阻塞提交线程等待队列空位，超时后抛出 RejectedExecutionException
+     */
+    BLOCK;
+}
@@ -0,0 +1,193 @@
+package com.heifan.code.mdc;
+
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import org.slf4j.MDC;
+import org.slf4j.spi.MDCAdapter;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 不可变的MDC快照，在父线程取一次，之后可以包装任意多个任务在子线程中恢复，
+ * 并行拆分的任务共用同一份快照，不再每个任务复制一次MDC。
+ * <p>
+ * 任务执行完后恢复子线程原来的MDC，调用方线程自己执行任务(CallerRuns、ForkJoin 的 join、并行流)时不会丢失自己的MDC。
+ * 线程池线程没有MDC时执行完直接清空，调用方线程的MDC与快照相同时不再设置，只有两者不同时才复制一份原来的MDC。
+ * 同一线程MDC未变时重复 capture 复用上一份快照
+ * <pre>
+ *     MdcSnapshot snapshot = MdcSnapshot.capture();
+ *     list.parallelStream().map(snapshot.wrapFunction(this::convert)).collect(toList());
+ *     CompletableFuture.supplyAsync(snapshot.wrapSupplier(() -> query()), executor);
+ * </pre>
+ *
+ * @author HiF
+ * @date 2026/10/18 23:50
+ */
+public final class MdcSnapshot {
+
+    private static final MdcSnapshot EMPTY = new MdcSnapshot(Collections.emptyMap());
+
+    private static final boolean LOGBACK_PRESENT = ClassUtils.isPresent(
+            "ch.qos.logback.classic.util.LogbackMDCAdapter", MdcSnapshot.class.getClassLoader());
+
+    /**
+     * 当前线程上一次取的快照
+     */
+    private static final ThreadLocal<MdcSnapshot> LAST = new ThreadLocal<>();
+
+    private final Map<String, String> context;
+
+    private MdcSnapshot(Map<String, String> context) {
+        this.context = context;
+    }
+
+    /**
+     * 取当前线程的MDC
+     */
+    public static MdcSnapshot capture() {
+        Map<String, String> current = currentContext();
+        if (null == current || current.isEmpty()) {
+            return EMPTY;
+        }
+        MdcSnapshot last = LAST.get();
+        if (null != last && last.context.equals(current)) {
+            return last;
+        }
+        MdcSnapshot snapshot = new MdcSnapshot(Collections.unmodifiableMap(new HashMap<>(current)));
+        LAST.set(snapshot);
+        return snapshot;
+    }
+
+    public Map<String, String> getContext() {
+        return context;
+    }
+
+    public boolean isEmpty() {
+        return context.isEmpty();
+    }
+
+    /**
+     * 在快照的MDC下执行，结束后恢复当前线程原来的MDC
+     */
+    public void run(Runnable runnable) {
+        Map<String, String> previous = apply();
+        try {
+            runnable.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public <T> T call(Callable<T> callable) throws Exception {
+        Map<String, String> previous = apply();
+        try {
+            return callable.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public <T> T get(Supplier<T> supplier) {
+        Map<String, String> previous = apply();
+        try {
+            return supplier.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public Runnable wrap(Runnable runnable) {
+        return () -> run(runnable);
+    }
+
+    public <T> Callable<T> wrapCallable(Callable<T> callable) {
+        return () -> call(callable);
+    }
+
+    public <T> Supplier<T> wrapSupplier(Supplier<T> supplier) {
+        return () -> get(supplier);
+    }
+
+    public <T, R> Function<T, R> wrapFunction(Function<T, R> function) {
+        return value -> get(() -> function.apply(value));
+    }
+
+    public <T> Consumer<T> wrapConsumer(Consumer<T> consumer) {
+        return value -> run(() -> consumer.accept(value));
+    }
+
+    /**
+     * 设置快照的MDC
+     *
+     * @return 恢复方式：{@link #context} 表示任务结束后恢复为快照，null 表示清空，其他为当前线程原来的MDC
+     */
+    private Map<String, String> apply() {
+        Map<String, String> current = currentContext();
+        if (null == current || current.isEmpty()) {
+            // 线程池线程通常没有MDC，结束后清空即可
+            if (!context.isEmpty()) {
+                MDC.setContextMap(context);
+            }
+            return null;
+        }
+        if (current.equals(context)) {
+            // 调用方线程自己执行任务，MDC 已是快照
+            return context;
+        }
+        Map<String, String> previous = new HashMap<>(current);
+        if (context.isEmpty()) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+        return previous;
+    }
+
+    private void restore(Map<String, String> previous) {
+        Map<String, String> current = currentContext();
+        if (null == previous) {
+            if (null != current && !current.isEmpty()) {
+                MDC.clear();
+            }
+        } else if (!previous.equals(current)) {
+            // 只有任务改过MDC时才恢复
+            MDC.setContextMap(previous);
+        }
+    }
+
+    /**
+     * 当前线程的MDC，logback 直接读取线程上的 Map 不复制，其他实现退回 getCopyOfContextMap，返回值只读
+     */
+    private static Map<String, String> currentContext() {
+        if (LOGBACK_PRESENT) {
+            Map<String, String> context = LogbackContext.current();
+            if (null != context) {
+                return context;
+            }
+        }
+        return MDC.getCopyOfContextMap();
+    }
+
+    /**
+     * 单独放在内部类，没有 logback 时不会加载 LogbackMDCAdapter
+     */
+    private static final class LogbackContext {
+
+        private static final Map<String, String> NONE = Collections.emptyMap();
+
+        static Map<String, String> current() {
+            MDCAdapter adapter = MDC.getMDCAdapter();
+            if (adapter instanceof LogbackMDCAdapter) {
+                Map<String, String> context = ((LogbackMDCAdapter) adapter).getPropertyMap();
+                return null == context ? NONE : context;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.heifan.code.mdc;
+
+import org.slf4j.MDC;
+
+/**
+ * @description 进程内的调用片段，记录链路id、片段id、父片段id、名称与耗时。
+ * 由 {@link MdcTracer#start(String)} 创建，在同一线程中 finish，支持 try-with-resources
+ * @author HiF
+ * @date 2026/10/19 0:40
+ */
+public class MdcSpan implements AutoCloseable {
+
+    /**
+     * 未开启追踪时返回的空片段
+     */
+    static final MdcSpan NOOP = new MdcSpan(null, 0, 0, null, null, false);
+
+    private final String traceId;
+
+    private final long spanId;
+
+    private final long parentId;
+
+    private final String name;
+
+    /**
+     * 父片段，finish 后恢复为当前片段
+     */
+    private final MdcSpan parent;
+
+    /**
+     * 链路id是否由本片段生成并写入MDC，结束时一并移除
+     */
+    private final boolean traceIdGenerated;
+
+    private final long startEpochMicros;
+
+    private final long startNanos;
+
+    private long durationNanos = -1;
+
+    private String error;
+
+    /**
+     * 十六进制片段id，写入MDC时生成，恢复父片段时复用
+     */
+    private String spanIdHex;
+
+    /**
+     * 写入环形缓冲时的序号
+     */
+    long sequence;
+
+    MdcSpan(String traceId, long spanId, long parentId, String name, MdcSpan parent, boolean traceIdGenerated) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.name = name;
+        this.parent = parent;
+        this.traceIdGenerated = traceIdGenerated;
+        this.startEpochMicros = System.currentTimeMillis() * 1000;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 标记异常
+     */
+    public MdcSpan error(Throwable throwable) {
+        if (this != NOOP && null != throwable) {
+            error = throwable.getClass().getName();
+        }
+        return this;
+    }
+
+    /**
+     * 结束片段，恢复父片段并交给导出器，重复调用无效
+     */
+    public void finish() {
+        if (this == NOOP || durationNanos >= 0) {
+            return;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        MdcTracer.onFinish(this);
+    }
+
+    @Override
+    public void close() {
+        finish();
+    }
+
+    public boolean isNoop() {
+        return this == NOOP;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public long getSpanId() {
+        return spanId;
+    }
+
+    public long getParentId() {
+        return parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    MdcSpan getParent() {
+        return parent;
+    }
+
+    boolean isTraceIdGenerated() {
+        return traceIdGenerated;
+    }
+
+    public long getStartEpochMicros() {
+        return startEpochMicros;
+    }
+
+    /**
+     * 耗时(纳秒)，未结束时为 -1
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * 写入MDC的片段id
+     */
+    void putMdc() {
+        if (null == spanIdHex) {
+            spanIdHex = MdcTraceIdGenerator.toHex(spanId);
+        }
+        MDC.put(MdcApiConstant.SPAN_ID, spanIdHex);
+    }
+}
@@ -0,0 +1,163 @@
+package com.heifan.code.mdc;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description 片段导出器，后台线程定时读取环形缓冲，按 JSON Lines 追加写入本地文件，
+ * 文件超过上限时滚动为 .1 文件，只保留一份历史
+ * @author HiF
+ * @date 2026/10/19 0:50
+ */
+@Slf4j
+public class MdcSpanExporter {
+
+    private final MdcTracingProperty property;
+
+    private final MdcSpanRingBuffer ringBuffer;
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    private ScheduledExecutorService scheduler;
+
+    private Writer writer;
+
+    private long fileBytes;
+
+    public MdcSpanExporter(MdcTracingProperty property) {
+        this.property = property;
+        this.ringBuffer = new MdcSpanRingBuffer(property.getBufferSize());
+    }
+
+    public synchronized void start() {
+        if (null != scheduler) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mdc-span-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(10, property.getFlushIntervalMillis());
+        scheduler.scheduleWithFixedDelay(this::export, interval, interval, TimeUnit.MILLISECONDS);
+        MdcTracer.setRingBuffer(ringBuffer);
+        log.info("init mdcSpanExporter file {} buffer {}", property.getFile(), ringBuffer.capacity());
+    }
+
+    public synchronized void shutdown() {
+        MdcTracer.setRingBuffer(null);
+        if (null != scheduler) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        export();
+        closeWriter();
+    }
+
+    public long getDropped() {
+        return ringBuffer.getDropped();
+    }
+
+    private synchronized void export() {
+        try {
+            int drained = ringBuffer.drain(this::write);
+            if (drained > 0 && null != writer) {
+                writer.flush();
+            }
+        } catch (Exception e) {
+            log.error("片段导出失败", e);
+            closeWriter();
+        }
+    }
+
+    private void write(MdcSpan span) {
+        line.setLength(0);
+        line.append("{\"traceId\":\"").append(span.getTraceId())
+                .append("\",\"spanId\":\"").append(MdcTraceIdGenerator.toHex(span.getSpanId()))
+                .append("\",\"parentId\":\"").append(span.getParentId() == 0 ? "" : MdcTraceIdGenerator.toHex(span.getParentId()))
+                .append("\",\"name\":\"");
+        escape(span.getName());
+        line.append("\",\"start\":").append(span.getStartEpochMicros())
+                .append(",\"durationMicros\":").append(TimeUnit.NANOSECONDS.toMicros(span.getDurationNanos()));
+        if (null != span.getError()) {
+            line.append(",\"error\":\"");
+            escape(span.getError());
+            line.append('"');
+        }
+        line.append("}\n");
+        try {
+            Writer current = writer();
+            current.append(line);
+            fileBytes += line.length();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void escape(String value) {
+        if (null == value) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+    }
+
+    private Writer writer() throws IOException {
+        if (null != writer && fileBytes >= property.getMaxFileBytes()) {
+            closeWriter();
+            File file = new File(property.getFile());
+            File rolled = new File(property.getFile() + ".1");
+            if (rolled.exists() && !rolled.delete()) {
+                log.warn("片段文件滚动失败 {}", rolled);
+            }
+            if (!file.renameTo(rolled)) {
+                log.warn("片段文件滚动失败 {}", file);
+            }
+        }
+        if (null == writer) {
+            File file = new File(property.getFile());
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (null != parent && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("无法创建目录 " + parent);
+            }
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8),
+                    64 * 1024);
+            fileBytes = file.length();
+        }
+        return writer;
+    }
+
+    private void closeWriter() {
+        if (null != writer) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("片段文件关闭失败", e);
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.heifan.code.mdc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * @description 已结束片段的无锁环形缓冲，多线程写入、单线程读取。
+ * 写入只做一次原子自增与一次数组写，不阻塞；读取跟不上时覆盖最旧的片段并计入丢弃数
+ * @author HiF
+ * @date 2026/10/19 0:40
+ */
+public class MdcSpanRingBuffer {
+
+    private final AtomicReferenceArray<MdcSpan> slots;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong(0);
+
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * 读取位置，只有导出线程访问
+     */
+    private long head;
+
+    public MdcSpanRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public void offer(MdcSpan span) {
+        long sequence = tail.getAndIncrement();
+        span.sequence = sequence;
+        slots.set((int) (sequence & mask), span);
+    }
+
+    /**
+     * 按写入顺序读取，遇到尚未写完的位置时停止，留到下一次
+     *
+     * @param consumer 片段处理
+     * @return 读取数
+     */
+    public int drain(Consumer<MdcSpan> consumer) {
+        long end = tail.get();
+        if (end - head > slots.length()) {
+            dropped.add(end - slots.length() - head);
+            head = end - slots.length();
+        }
+        int drained = 0;
+        while (head < end) {
+            int index = (int) (head & mask);
+            MdcSpan span = slots.get(index);
+            if (null == span || span.sequence < head) {
+                break;
+            }
+            if (span.sequence > head) {
+                // 已被后来的片段覆盖
+                dropped.increment();
+                head++;
+                continue;
+            }
+            slots.compareAndSet(index, span, null);
+            consumer.accept(span);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,22 @@
+package com.heifan.code.mdc;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Spring 线程池的MDC传递，提交任务时取父线程的MDC快照，在子线程中恢复。
+ * <pre>
+ *     ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+ *     executor.setTaskDecorator(new MdcTaskDecorator());
+ * </pre>
+ * {@code @Async} 指定的线程池同样适用
+ *
+ * @author HiF
+ * @date 2026/10/18 23:50
+ */
+public class MdcTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return MdcSnapshot.capture().wrap(runnable);
+    }
+}
@@ -0,0 +1,45 @@
+package com.heifan.code.mdc;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * @description MdcThreadTaskUtils 线程池交给 Spring 管理，按 mdc.executor 配置创建，随容器关闭优雅停机。
+ * 线程池由 {@link MdcTaskExecutorHolder} 持有，不注册为 Executor 类型的 Bean，以免 Spring Boot 不再创建 applicationTaskExecutor
+ * @author HiF
+ * @date 2026/10/19 0:20
+ */
+@EnableConfigurationProperties({MdcTaskExecutorProperty.class})
+public class MdcTaskExecutorConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean({MdcTaskExecutorMetrics.class})
+    public MdcTaskExecutorMetrics mdcTaskExecutorMetrics() {
+        return new MdcTaskExecutorMetrics();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({MdcTaskExecutorHolder.class})
+    public MdcTaskExecutorHolder mdcTaskExecutorHolder(MdcTaskExecutorProperty mdcTaskExecutorProperty,
+                                                       MdcTaskExecutorMetrics mdcTaskExecutorMetrics) {
+        return new MdcTaskExecutorHolder(mdcTaskExecutorProperty, mdcTaskExecutorMetrics);
+    }
+
+    /**
+     * 所有单例初始化完成后替换 MdcThreadTaskUtils 的线程池
+     */
+    @Bean
+    public SmartInitializingSingleton mdcThreadTaskUtilsInitializer(MdcTaskExecutorHolder mdcTaskExecutorHolder) {
+        return () -> MdcThreadTaskUtils.setTaskExecutor(mdcTaskExecutorHolder.getTaskExecutor());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({MdcTaskExecutorEndpoint.class})
+    @ConditionalOnProperty(prefix = "mdc.executor", name = "endpoint-enabled", havingValue = "true")
+    public MdcTaskExecutorEndpoint mdcTaskExecutorEndpoint() {
+        return new MdcTaskExecutorEndpoint();
+    }
+}
@@ -0,0 +1,27 @@
+package com.heifan.code.mdc;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
+
+/**
+ * @description MdcThreadTaskUtils 线程池指标查询接口。
+ * 仅由 MdcTaskExecutorConfiguration 注册(mdc.executor.endpoint-enabled)
+ * @author HiF
+ * @date 2026/10/19 0:20
+ */
+@RequestMapping
+@ResponseBody
+public class MdcTaskExecutorEndpoint {
+
+    @Autowired
+    MdcTaskExecutorHolder mdcTaskExecutorHolder;
+
+    @GetMapping("${mdc.executor.path:/mdc/executor/metrics}")
+    public Map<String, Object> metrics() {
+        return mdcTaskExecutorHolder.metrics();
+    }
+}
@@ -0,0 +1,74 @@
+package com.heifan.code.mdc;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import java.util.Map;
+
+/**
+ * @description MdcThreadTaskUtils 线程池的持有者。
+ * 本身不是 Executor，容器中不多出一个 Executor 类型的 Bean，Spring Boot 默认的 applicationTaskExecutor 照常创建。
+ * 容器中已有名为 mdcTaskExecutor 的 MdcThreadPoolTaskExecutor 时直接使用(其生命周期由容器管理)，
+ * 否则按 mdc.executor 配置自行创建，随容器关闭优雅停机
+ * @author HiF
+ * @date 2026/10/19 5:10
+ */
+@Slf4j
+public class MdcTaskExecutorHolder {
+
+    private final MdcTaskExecutorProperty property;
+
+    private final MdcTaskExecutorMetrics metrics;
+
+    @Autowired(required = false)
+    @Qualifier("mdcTaskExecutor")
+    MdcThreadPoolTaskExecutor mdcTaskExecutor;
+
+    private MdcThreadPoolTaskExecutor taskExecutor;
+
+    /**
+     * 线程池是否由本类创建，只关闭自己创建的线程池
+     */
+    private boolean owned;
+
+    public MdcTaskExecutorHolder(MdcTaskExecutorProperty property, MdcTaskExecutorMetrics metrics) {
+        this.property = property;
+        this.metrics = metrics;
+    }
+
+    public synchronized void start() {
+        if (null != taskExecutor) {
+            return;
+        }
+        if (null != mdcTaskExecutor) {
+            taskExecutor = mdcTaskExecutor;
+            log.info("init mdcTaskExecutorHolder use bean mdcTaskExecutor");
+            return;
+        }
+        taskExecutor = new MdcThreadPoolTaskExecutor(property, metrics);
+        taskExecutor.initialize();
+        owned = true;
+        log.info("init mdcTaskExecutorHolder corePoolSize {} maxPoolSize {} queueCapacity {} rejectionPolicy {}",
+                property.getCorePoolSize(), property.getMaxPoolSize(), property.getQueueCapacity(),
+                property.getRejectionPolicy());
+    }
+
+    public synchronized void shutdown() {
+        if (owned && null != taskExecutor) {
+            taskExecutor.shutdown();
+        }
+    }
+
+    public MdcThreadPoolTaskExecutor getTaskExecutor() {
+        return taskExecutor;
+    }
+
+    /**
+     * 线程池指标，使用外部线程池且其未记录指标时只有线程数与队列深度
+     */
+    public Map<String, Object> metrics() {
+        MdcTaskExecutorMetrics current = null == taskExecutor.getMetrics() ? metrics : taskExecutor.getMetrics();
+        return current.snapshot(taskExecutor);
+    }
+}
@@ -0,0 +1,133 @@
+package com.heifan.code.mdc;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @description 线程池指标：任务排队时间、执行时间、拒绝数，活跃线程与队列深度在取快照时读取。
+ * 指标名沿用 Micrometer 的命名方式(mdc.executor.xxx)
+ * @author HiF
+ * @date 2026/10/19 0:10
+ */
+public class MdcTaskExecutorMetrics {
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+
+    private final LongAdder executionNanos = new LongAdder();
+
+    private final AtomicLong maxExecutionNanos = new AtomicLong(0);
+
+    /**
+     * 包装任务，记录排队与执行耗时。
+     * submit 提交的 FutureTask 会吞掉异常，执行完后从 Future 中取出结果判断是否失败
+     */
+    public Runnable wrap(Runnable runnable) {
+        submitted.increment();
+        long submitTime = System.nanoTime();
+        return () -> {
+            long start = System.nanoTime();
+            record(waitNanos, maxWaitNanos, start - submitTime);
+            try {
+                runnable.run();
+                if (isFailed(runnable)) {
+                    failed.increment();
+                } else {
+                    completed.increment();
+                }
+            } catch (RuntimeException | Error e) {
+                failed.increment();
+                throw e;
+            } finally {
+                record(executionNanos, maxExecutionNanos, System.nanoTime() - start);
+            }
+        };
+    }
+
+    private static boolean isFailed(Runnable runnable) {
+        if (!(runnable instanceof Future)) {
+            return false;
+        }
+        Future<?> future = (Future<?>) runnable;
+        if (!future.isDone() || future.isCancelled()) {
+            return false;
+        }
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 包装拒绝策略，统计拒绝次数
+     */
+    public RejectedExecutionHandler wrap(RejectedExecutionHandler handler) {
+        return (runnable, executor) -> {
+            try {
+                handler.rejectedExecution(runnable, executor);
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                throw e;
+            }
+        };
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public Map<String, Object> snapshot(ThreadPoolTaskExecutor taskExecutor) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        ThreadPoolExecutor executor = taskExecutor.getThreadPoolExecutor();
+        snapshot.put("mdc.executor.active", executor.getActiveCount());
+        snapshot.put("mdc.executor.pool.size", executor.getPoolSize());
+        snapshot.put("mdc.executor.pool.max", executor.getMaximumPoolSize());
+        snapshot.put("mdc.executor.queue.depth", executor.getQueue().size());
+        snapshot.put("mdc.executor.queue.remaining", executor.getQueue().remainingCapacity());
+        snapshot.put("mdc.executor.tasks.submitted", submitted.sum());
+        snapshot.put("mdc.executor.tasks.completed", completed.sum());
+        snapshot.put("mdc.executor.tasks.failed", failed.sum());
+        snapshot.put("mdc.executor.tasks.rejected", rejected.sum());
+        long finished = completed.sum() + failed.sum();
+        snapshot.put("mdc.executor.wait.avg.ms", averageMillis(waitNanos, finished));
+        snapshot.put("mdc.executor.wait.max.ms", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        snapshot.put("mdc.executor.execution.avg.ms", averageMillis(executionNanos, finished));
+        snapshot.put("mdc.executor.execution.max.ms", TimeUnit.NANOSECONDS.toMillis(maxExecutionNanos.get()));
+        return snapshot;
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        if (nanos > max.get()) {
+            max.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    private static double averageMillis(LongAdder total, long count) {
+        return count == 0 ? 0 : total.sum() / 1_000_000.0 / count;
+    }
+}
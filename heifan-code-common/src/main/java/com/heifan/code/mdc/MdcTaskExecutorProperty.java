@@ -0,0 +1,66 @@
+package com.heifan.code.mdc;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @description MdcThreadTaskUtils 线程池配置
+ * @author HiF
+ * @date 2026/10/19 0:10
+ */
+@ConfigurationProperties(prefix = "mdc.executor")
+@Getter
+@Setter
+public class MdcTaskExecutorProperty {
+
+    /**
+     * 核心线程数
+     */
+    private int corePoolSize = 5;
+
+    /**
+     * 最大线程数
+     */
+    private int maxPoolSize = 50;
+
+    /**
+     * 队列最大长度
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * 线程池维护线程所允许的空闲时间(单位秒)
+     */
+    private int keepAliveSeconds = 120;
+
+    /**
+     * 线程名前缀
+     */
+    private String threadNamePrefix = "mdc-task-";
+
+    /**
+     * 线程池满时的处理策略
+     */
+    private MdcRejectionPolicyEnum rejectionPolicy = MdcRejectionPolicyEnum.ABORT;
+
+    /**
+     * BLOCK 策略等待队列空位的最长时间(毫秒)
+     */
+    private long blockTimeoutMillis = 1000;
+
+    /**
+     * 停机时等待已提交任务完成的时间(秒)
+     */
+    private int awaitTerminationSeconds = 30;
+
+    /**
+     * 是否开放线程池指标查询接口
+     */
+    private boolean endpointEnabled = false;
+
+    /**
+     * 指标查询接口路径
+     */
+    private String path = "/mdc/executor/metrics";
+}
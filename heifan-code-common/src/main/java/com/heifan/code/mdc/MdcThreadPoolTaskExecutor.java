@@ -1,9 +1,11 @@
 package com.heifan.code.mdc;
 
-import org.slf4j.MDC;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 这是{@link ThreadPoolTaskExecutor}简单的改良，可以在每个任务之前设置子线程的MDC数据。
@@ -18,40 +20,86 @@ import java.util.Map;
  */
 public class MdcThreadPoolTaskExecutor extends ThreadPoolTaskExecutor {
 
+    private final MdcTaskDecorator mdcTaskDecorator = new MdcTaskDecorator();
+
+    private MdcTaskExecutorMetrics metrics;
+
+    private volatile boolean shutdownRequested;
+
     /**
-     * 所有线程都会委托给这个execute方法，在这个方法中我们把父线程的MDC内容赋值给子线程
+     * 通过 {@link MdcTaskDecorator} 把父线程的MDC内容赋值给子线程，execute 与 submit 都会经过装饰
      * https://logback.qos.ch/manual/mdc.html#managedThreads
+     */
+    public MdcThreadPoolTaskExecutor() {
+        setTaskDecorator(this::decorate);
+    }
+
+    /**
+     * 按配置创建，停机时等待已提交的任务完成
      *
-     * @param runnable
+     * @param property 线程池配置
+     * @param metrics  线程池指标，可为 null
      */
+    public MdcThreadPoolTaskExecutor(MdcTaskExecutorProperty property, MdcTaskExecutorMetrics metrics) {
+        this();
+        this.metrics = metrics;
+        setCorePoolSize(property.getCorePoolSize());
+        setMaxPoolSize(Math.max(property.getCorePoolSize(), property.getMaxPoolSize()));
+        setQueueCapacity(property.getQueueCapacity());
+        setKeepAliveSeconds(property.getKeepAliveSeconds());
+        setThreadNamePrefix(property.getThreadNamePrefix());
+        setWaitForTasksToCompleteOnShutdown(true);
+        setAwaitTerminationSeconds(property.getAwaitTerminationSeconds());
+        RejectedExecutionHandler handler = rejectedExecutionHandler(property);
+        setRejectedExecutionHandler(null == metrics ? handler : metrics.wrap(handler));
+    }
+
+    public MdcTaskExecutorMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
-    public void execute(Runnable runnable) {
-        // 获取父线程MDC中的内容，必须在run方法之前，否则等异步线程执行的时候有可能MDC里面的值已经被清空了，这个时候就会返回null
-        Map<String, String> context = MDC.getCopyOfContextMap();
-        super.execute(() -> run(runnable, context));
+    public void shutdown() {
+        shutdownRequested = true;
+        super.shutdown();
+    }
+
+    public boolean isShutdownRequested() {
+        return shutdownRequested;
     }
 
     /**
-     * 子线程委托的执行方法s
-     *
-     * @param runnable {@link Runnable}
-     * @param context  父线程MDC内容
+     * 指标包在原任务外层，能看到 submit 的 FutureTask 并统计其中的异常
      */
-    private void run(Runnable runnable, Map<String, String> context) {
-        // 将父线程的MDC内容传给子线程
-        if (context != null) {
-            try {
-                MDC.setContextMap(context);
-            } catch (Exception e) {
-                logger.error(e.getMessage(), e);
-            }
-        }
-        try {
-            // 执行异步操作
-            runnable.run();
-        } finally {
-            // 清空MDC内容
-            MDC.clear();
+    private Runnable decorate(Runnable runnable) {
+        Runnable task = null == metrics ? runnable : metrics.wrap(runnable);
+        return mdcTaskDecorator.decorate(task);
+    }
+
+    private static RejectedExecutionHandler rejectedExecutionHandler(MdcTaskExecutorProperty property) {
+        MdcRejectionPolicyEnum policy = null == property.getRejectionPolicy()
+                ? MdcRejectionPolicyEnum.ABORT : property.getRejectionPolicy();
+        switch (policy) {
+            case CALLER_RUNS:
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            case BLOCK:
+                long timeoutMillis = property.getBlockTimeoutMillis();
+                return (runnable, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("线程池已关闭");
+                    }
+                    try {
+                        if (!executor.getQueue().offer(runnable, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                            throw new RejectedExecutionException("线程池已满 等待 " + timeoutMillis + " ms 超时");
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("等待线程池空位时被中断", e);
+                    }
+                };
+            case ABORT:
+            default:
+                return new ThreadPoolExecutor.AbortPolicy();
         }
     }
-}
\ No newline at end of file
+}
@@ -1,46 +1,109 @@
 package com.heifan.code.mdc;
 
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 /**
  * @author z201.coding@gmail.com
  **/
 public class MdcThreadTaskUtils {
 
-    private static MdcThreadPoolTaskExecutor taskExecutor = null;
+    /**
+     * 由 Spring 注册的线程池，未启用 Spring 时使用默认配置的守护线程池
+     */
+    private static volatile MdcThreadPoolTaskExecutor taskExecutor = null;
 
     /**
      * demo
      *         ThreadTaskUtils.run(() -> run());
-     *         FutureTask<String> futureTask = new FutureTask<String>(() -> call());
-     *         ThreadTaskUtils.run(futureTask);
+     *         Future<String> future = ThreadTaskUtils.submit(() -> call());
+     *         CompletableFuture<String> future = ThreadTaskUtils.supply(() -> call());
      */
-    static {
-        taskExecutor = new MdcThreadPoolTaskExecutor();
-        /**
-         * 核心线程数
-         */
-        taskExecutor.setCorePoolSize(5);
-        /**
-         * 最大线程数
-         */
-        taskExecutor.setMaxPoolSize(50);
-        /**
-         * 队列最大长度
-         */
-        taskExecutor.setQueueCapacity(1000);
-        /**
-         * 线程池维护线程所允许的空闲时间(单位秒)
-         */
-        taskExecutor.setKeepAliveSeconds(120);
-        /**
-         * 线程池对拒绝任务(无线程可用)的处理策略 ThreadPoolExecutor.CallerRunsPolicy策略 ,调用者的线程会执行该任务,如果执行器已关闭,则丢弃.
-         */
-        taskExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
-        taskExecutor.initialize();
+    public static void run(Runnable runnable) {
+        getTaskExecutor().execute(runnable);
     }
 
-    public static void run(Runnable runnable) {
-        taskExecutor.execute(runnable);
+    public static Future<?> submit(Runnable runnable) {
+        return getTaskExecutor().submit(runnable);
+    }
+
+    public static <T> Future<T> submit(Callable<T> callable) {
+        return getTaskExecutor().submit(callable);
+    }
+
+    public static <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        getTaskExecutor().execute(new CompletingTask<>(supplier::get, future));
+        return future;
+    }
+
+    public static CompletableFuture<Void> runAsync(Runnable runnable) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        getTaskExecutor().execute(new CompletingTask<>(() -> {
+            runnable.run();
+            return null;
+        }, future));
+        return future;
+    }
+
+    public static MdcThreadPoolTaskExecutor getTaskExecutor() {
+        MdcThreadPoolTaskExecutor executor = taskExecutor;
+        if (null == executor || executor.isShutdownRequested()) {
+            synchronized (MdcThreadTaskUtils.class) {
+                executor = taskExecutor;
+                if (null == executor || executor.isShutdownRequested()) {
+                    // Spring 线程池已随容器关闭时，停机过程中提交的任务交给默认线程池
+                    executor = new MdcThreadPoolTaskExecutor(new MdcTaskExecutorProperty(), null);
+                    executor.setDaemon(true);
+                    executor.initialize();
+                    taskExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 以 FutureTask 提交，线程池指标可以统计失败的任务，结束后把结果交给 CompletableFuture。
+     * CompletableFuture.supplyAsync 提交的任务在内部吞掉异常，指标无法区分成功与失败
+     */
+    private static final class CompletingTask<T> extends FutureTask<T> {
+
+        private final CompletableFuture<T> future;
+
+        CompletingTask(Callable<T> callable, CompletableFuture<T> future) {
+            super(callable);
+            this.future = future;
+        }
+
+        @Override
+        protected void done() {
+            try {
+                future.complete(get());
+            } catch (ExecutionException e) {
+                future.completeExceptionally(e.getCause());
+            } catch (CancellationException e) {
+                future.cancel(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 使用 Spring 管理的线程池，原有的默认线程池不再接收任务
+     */
+    static synchronized void setTaskExecutor(MdcThreadPoolTaskExecutor executor) {
+        MdcThreadPoolTaskExecutor previous = taskExecutor;
+        taskExecutor = executor;
+        if (null != previous && previous != executor) {
+            previous.shutdown();
+        }
     }
 }
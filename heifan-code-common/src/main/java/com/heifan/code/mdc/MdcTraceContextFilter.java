@@ -27,8 +27,9 @@ public class MdcTraceContextFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         String appTraceId = request.getHeader(MdcApiConstant.HTTP_HEADER_TRACE_ID);
-        //直接重置mdc，重新设置
+        //直接重置mdc与当前片段，重新设置
         MDC.clear();
+        MdcTracer.reset();
         if (StrUtil.isEmpty(appTraceId)) {
             appTraceId = MdcApiContextHandler.currentTraceId();
             MDC.put(MdcApiConstant.HTTP_HEADER_TRACE_ID, appTraceId);
@@ -36,7 +37,17 @@ public class MdcTraceContextFilter extends OncePerRequestFilter {
         }else{
             MDC.put(MdcApiConstant.HTTP_HEADER_TRACE_ID, appTraceId);
         }
-        filterChain.doFilter(request, response);
+        MdcSpan span = MdcTracer.isEnabled()
+                ? MdcTracer.start(request.getMethod() + " " + request.getRequestURI()) : MdcSpan.NOOP;
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.finish();
+            MdcTracer.reset();
+        }
     }
 }
 
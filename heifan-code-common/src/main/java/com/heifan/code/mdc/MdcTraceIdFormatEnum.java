@@ -0,0 +1,18 @@
+package com.heifan.code.mdc;
+
+/**
+ * @description 链路id格式
+ * @author HiF
+ * @date 2026/10/18 23:30
+ */
+public enum MdcTraceIdFormatEnum {
+
+    /**
+     * 32 位小写十六进制，前 12 位为毫秒时间戳，与 W3C trace-id 等宽
+     */
+    HEX,
+    /**
+     * W3C traceparent：00-{32 位 trace-id}-{16 位 parent-id}-01
+     */
+    TRACEPARENT;
+}
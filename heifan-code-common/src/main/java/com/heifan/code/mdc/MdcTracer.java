@@ -0,0 +1,104 @@
+package com.heifan.code.mdc;
+
+import org.slf4j.MDC;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @description 进程内片段追踪入口。
+ * 当前片段保存在线程变量中，片段id写入MDC(SpanId)，与链路id(AppTraceId)一起出现在日志里；
+ * 结束的片段写入无锁环形缓冲，由 {@link MdcSpanExporter} 在后台写文件。未开启追踪时返回空片段，几乎没有开销
+ * <pre>
+ *     try (MdcSpan span = MdcTracer.start("redis.get")) {
+ *         ...
+ *     }
+ * </pre>
+ * @author HiF
+ * @date 2026/10/19 0:40
+ */
+public final class MdcTracer {
+
+    private static final ThreadLocal<MdcSpan> CURRENT = new ThreadLocal<>();
+
+    private static volatile MdcSpanRingBuffer ringBuffer;
+
+    private MdcTracer() {
+    }
+
+    public static boolean isEnabled() {
+        return null != ringBuffer;
+    }
+
+    static void setRingBuffer(MdcSpanRingBuffer buffer) {
+        ringBuffer = buffer;
+    }
+
+    /**
+     * 开始片段，当前线程已有片段时作为其子片段，链路id取MDC中的 AppTraceId，没有时生成一个，
+     * 生成的链路id在根片段结束时从MDC移除，不会留在线程池线程上被下一个任务沿用
+     *
+     * @param name 片段名称
+     */
+    public static MdcSpan start(String name) {
+        if (null == ringBuffer) {
+            return MdcSpan.NOOP;
+        }
+        MdcSpan parent = CURRENT.get();
+        String traceId;
+        boolean traceIdGenerated = false;
+        if (null != parent) {
+            traceId = parent.getTraceId();
+        } else {
+            traceId = MDC.get(MdcApiConstant.HTTP_HEADER_TRACE_ID);
+            if (null == traceId || traceId.isEmpty()) {
+                traceId = MdcTraceIdGenerator.next();
+                traceIdGenerated = true;
+                MDC.put(MdcApiConstant.HTTP_HEADER_TRACE_ID, traceId);
+            }
+        }
+        long spanId;
+        do {
+            spanId = ThreadLocalRandom.current().nextLong();
+        } while (spanId == 0);
+        MdcSpan span = new MdcSpan(traceId, spanId, null == parent ? 0 : parent.getSpanId(), name, parent,
+                traceIdGenerated);
+        CURRENT.set(span);
+        span.putMdc();
+        return span;
+    }
+
+    /**
+     * 当前线程的片段，没有时返回 null
+     */
+    public static MdcSpan current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 清除当前线程的片段，请求入口在开始和结束时调用，上一个请求未结束的片段不会成为新请求的父片段
+     */
+    public static void reset() {
+        CURRENT.remove();
+    }
+
+    static void onFinish(MdcSpan span) {
+        if (CURRENT.get() == span) {
+            MdcSpan parent = span.getParent();
+            if (null == parent) {
+                CURRENT.remove();
+                MDC.remove(MdcApiConstant.SPAN_ID);
+                if (span.isTraceIdGenerated()
+                        && span.getTraceId().equals(MDC.get(MdcApiConstant.HTTP_HEADER_TRACE_ID))) {
+                    MDC.remove(MdcApiConstant.HTTP_HEADER_TRACE_ID);
+                }
+            } else {
+                CURRENT.set(parent);
+                parent.putMdc();
+            }
+        }
+        MdcSpanRingBuffer buffer = ringBuffer;
+        if (null != buffer) {
+            buffer.offer(span);
+        }
+    }
+}
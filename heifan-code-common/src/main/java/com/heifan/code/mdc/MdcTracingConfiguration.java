@@ -0,0 +1,22 @@
+package com.heifan.code.mdc;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * @description 进程内片段追踪，开启后 MdcTraceContextFilter 与 ApiMonitorConfig 自动记录片段
+ * @author HiF
+ * @date 2026/10/19 0:50
+ */
+@EnableConfigurationProperties({MdcTracingProperty.class})
+public class MdcTracingConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean({MdcSpanExporter.class})
+    @ConditionalOnProperty(prefix = "mdc.tracing", name = "enabled", havingValue = "true")
+    public MdcSpanExporter mdcSpanExporter(MdcTracingProperty mdcTracingProperty) {
+        return new MdcSpanExporter(mdcTracingProperty);
+    }
+}
@@ -0,0 +1,41 @@
+package com.heifan.code.mdc;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @description 进程内片段追踪配置
+ * @author HiF
+ * @date 2026/10/19 0:50
+ */
+@ConfigurationProperties(prefix = "mdc.tracing")
+@Getter
+@Setter
+public class MdcTracingProperty {
+
+    /**
+     * 是否开启追踪
+     */
+    private boolean enabled = false;
+
+    /**
+     * 环形缓冲容量，取 2 的幂，导出跟不上时覆盖最旧的片段
+     */
+    private int bufferSize = 8192;
+
+    /**
+     * 导出文件，JSON Lines 格式
+     */
+    private String file = "./logs/spans.jsonl";
+
+    /**
+     * 导出间隔(毫秒)
+     */
+    private long flushIntervalMillis = 1000;
+
+    /**
+     * 单个文件大小上限(字节)，超出时滚动
+     */
+    private long maxFileBytes = 64 * 1024 * 1024;
+}
@@ -0,0 +1,105 @@
+package com.heifan.code.alarm.channel;
+
+import com.heifan.code.alarm.AlarmChannelStatusEnum;
+import com.heifan.code.alarm.dto.AlarmResult;
+import com.heifan.code.alarm.dto.AlarmSendResult;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description AlarmSendRetrier 对冲的令牌占用与取消测试
+ * @author HiF
+ * @date 2026/10/19 6:10
+ */
+class AlarmSendRetrierTest {
+
+    private AlarmSendRetrier retrier;
+
+    @BeforeEach
+    void setUp() {
+        AlarmNoticeProperty.Retry retry = new AlarmNoticeProperty.Retry();
+        retry.setMaxAttempts(1);
+        retry.setDeadlineMillis(2000);
+        retrier = new AlarmSendRetrier(retry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        retrier.shutdown();
+    }
+
+    @Test
+    void singleTokenDoesNotAcquireForHedge() {
+        CountingTokens tokens = new CountingTokens("a");
+        AlarmSendResult.ChannelResult result = retrier.send(tokens, token -> {
+            TimeUnit.MILLISECONDS.sleep(50);
+            return new AlarmResult(0, "ok");
+        }, TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertThat(result.getStatus()).isEqualTo(AlarmChannelStatusEnum.SUCCESS);
+        assertThat(tokens.acquired.get()).isEqualTo(1);
+        assertThat(tokens.released).isEmpty();
+    }
+
+    @Test
+    void loserIsCancelledAfterWinnerReturns() throws InterruptedException {
+        CountingTokens tokens = new CountingTokens("slow", "fast");
+        CountDownLatch slowInterrupted = new CountDownLatch(1);
+        AlarmSendResult.ChannelResult result = retrier.send(tokens, token -> {
+            if ("slow".equals(token)) {
+                try {
+                    TimeUnit.SECONDS.sleep(5);
+                } catch (InterruptedException e) {
+                    slowInterrupted.countDown();
+                    throw e;
+                }
+            }
+            return new AlarmResult(0, "ok");
+        }, TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertThat(result.getStatus()).isEqualTo(AlarmChannelStatusEnum.SUCCESS);
+        assertThat(slowInterrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    /**
+     * 依次返回令牌，统计取用与归还
+     */
+    private static class CountingTokens implements AlarmSendRetrier.TokenSource {
+
+        private final String[] tokens;
+
+        private final AtomicInteger acquired = new AtomicInteger(0);
+
+        private final List<String> released = new CopyOnWriteArrayList<>();
+
+        CountingTokens(String... tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public String acquire(String exclude) {
+            int index = acquired.getAndIncrement();
+            return tokens[Math.min(index, tokens.length - 1)];
+        }
+
+        @Override
+        public boolean hasAlternative(String exclude) {
+            return tokens.length > 1;
+        }
+
+        @Override
+        public void release(String token) {
+            released.add(token);
+        }
+    }
+}
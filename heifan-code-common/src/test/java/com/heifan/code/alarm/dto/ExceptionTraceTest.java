@@ -0,0 +1,35 @@
+package com.heifan.code.alarm.dto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description ExceptionTrace 异常链延迟渲染与静态指纹测试
+ * @author HiF
+ * @date 2026/10/19 6:30
+ */
+class ExceptionTraceTest {
+
+    @Test
+    void messageRendersCauseChainLikeToString() {
+        IllegalStateException root = new IllegalStateException("root");
+        RuntimeException top = new RuntimeException("top", new IllegalArgumentException(null, root));
+
+        ExceptionTrace trace = new ExceptionTrace(top);
+
+        assertThat(trace.message()).isEqualTo(top + "\r\n\tcaused by : " + top.getCause()
+                + "\r\n\tcaused by : " + root);
+    }
+
+    @Test
+    void staticUidMatchesNoticeUid() {
+        IllegalStateException ex = new IllegalStateException("boom");
+        StackTraceElement topFrame = ExceptionTrace.topFrame(ex);
+        ExceptionNotice notice = new ExceptionNotice(ex, null);
+
+        assertThat(ExceptionTrace.uid(ex, topFrame)).isEqualTo(notice.getUid());
+        assertThat(topFrame.getClassName()).isEqualTo(notice.getClassPath());
+        assertThat(topFrame.getMethodName()).isEqualTo(notice.getMethodName());
+    }
+}
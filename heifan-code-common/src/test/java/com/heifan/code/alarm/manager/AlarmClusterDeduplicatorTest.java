@@ -0,0 +1,129 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.dto.ExceptionNotice;
+import com.heifan.code.alarm.dto.ServiceNotice;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description AlarmClusterDeduplicator 的 Lua 脚本测试，使用本地 Redis 替身 {@link LocalRedis}，
+ * 两个 AlarmClusterDeduplicator 实例模拟集群中的两个服务实例
+ * @author HiF
+ * @date 2026/10/19 3:10
+ */
+class AlarmClusterDeduplicatorTest {
+
+    /**
+     * 异常指纹按堆栈计算，复用同一个异常保证指纹相同
+     */
+    private static final IllegalArgumentException BOOM = new IllegalArgumentException("boom");
+
+    private LocalRedis redis;
+
+    private AlarmNoticeProperty.Cluster cluster;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        redis = new LocalRedis();
+        cluster = new AlarmNoticeProperty.Cluster();
+        cluster.setEnabled(true);
+        cluster.setWindowSeconds(1);
+        cluster.setFallbackSeconds(30);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        redis.close();
+    }
+
+    @Test
+    void onlyWindowOwnerSends() {
+        AlarmClusterDeduplicator first = deduplicator();
+        AlarmClusterDeduplicator second = deduplicator();
+        ExceptionNotice notice = notice();
+
+        assertThat(first.offer(notice, 1)).isSameAs(notice);
+        assertThat(second.offer(notice(), 1)).isNull();
+        assertThat(first.offer(notice(), 1)).isNull();
+    }
+
+    @Test
+    void nextWindowOwnerCarriesSharedCount() throws InterruptedException {
+        AlarmClusterDeduplicator first = deduplicator();
+        AlarmClusterDeduplicator second = deduplicator();
+        long start = System.currentTimeMillis();
+        assertThat(first.offer(notice(), 1)).isNotNull();
+        assertThat(second.offer(notice(), 2)).isNull();
+        assertThat(second.offer(notice(), 3)).isNull();
+
+        TimeUnit.MILLISECONDS.sleep(1100);
+        ExceptionNotice merged = second.offer(notice(), 1);
+
+        assertThat(merged).isNotNull();
+        assertThat(merged.getRepeatCount()).isEqualTo(5);
+        assertThat(merged.getRepeatSince()).isBetween(start, System.currentTimeMillis());
+        // 共享计数随通知发出后清零
+        TimeUnit.MILLISECONDS.sleep(1100);
+        ExceptionNotice fresh = notice();
+        assertThat(first.offer(fresh, 1)).isSameAs(fresh);
+    }
+
+    @Test
+    void differentExceptionsUseSeparateWindows() {
+        AlarmClusterDeduplicator first = deduplicator();
+        AlarmClusterDeduplicator second = deduplicator();
+        assertThat(first.offer(notice(), 1)).isNotNull();
+
+        ExceptionNotice other = new ExceptionNotice(new IllegalStateException("other"), null);
+        other.setProject("bench");
+        assertThat(second.offer(other, 1)).isSameAs(other);
+    }
+
+    @Test
+    void taskOfferKeepsNonExceptionNotices() {
+        AlarmClusterDeduplicator first = deduplicator();
+        AlarmClusterDeduplicator second = deduplicator();
+        AlarmNoticeTask service = AlarmNoticeTask.of(new ServiceNotice(), "a");
+        assertThat(first.offer(service)).isSameAs(service);
+
+        AlarmNoticeTask task = AlarmNoticeTask.of(notice(), "a");
+        assertThat(first.offer(task)).isSameAs(task);
+        // 本实例合并过的通知按重复次数累加
+        AlarmNoticeTask summary = AlarmNoticeTask.of(notice().toRepeatNotice(4, System.currentTimeMillis()), "a");
+        assertThat(second.offer(summary)).isNull();
+    }
+
+    @Test
+    void fallsBackToLocalWhenRedisUnavailable() throws IOException {
+        AlarmClusterDeduplicator first = deduplicator();
+        redis.stopServer();
+
+        ExceptionNotice notice = notice();
+        assertThat(first.offer(notice, 1)).isSameAs(notice);
+        // 降级期间不再访问 Redis
+        long start = System.nanoTime();
+        ExceptionNotice next = notice();
+        assertThat(first.offer(next, 1)).isSameAs(next);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(100);
+    }
+
+    private AlarmClusterDeduplicator deduplicator() {
+        AlarmClusterDeduplicator deduplicator = new AlarmClusterDeduplicator(cluster);
+        deduplicator.stringRedisTemplate = redis.template();
+        return deduplicator;
+    }
+
+    private static ExceptionNotice notice() {
+        ExceptionNotice notice = new ExceptionNotice(BOOM, null);
+        notice.setProject("bench");
+        return notice;
+    }
+}
@@ -0,0 +1,138 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description AlarmClusterRateLimiter 的 Lua 脚本与额度归还测试，使用本地 Redis 替身 {@link LocalRedis}，
+ * 两个 AlarmClusterRateLimiter 实例模拟共用同一个机器人的两个服务实例
+ * @author HiF
+ * @date 2026/10/19 3:45
+ */
+class AlarmClusterRateLimiterTest {
+
+    private static final String TOKEN = "bench-token";
+
+    private LocalRedis redis;
+
+    private AlarmNoticeProperty.RateLimit rateLimit;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        redis = new LocalRedis();
+        rateLimit = new AlarmNoticeProperty.RateLimit();
+        rateLimit.setEnabled(true);
+        rateLimit.setWindowSeconds(60);
+        rateLimit.setLimitPerWindow(4);
+        rateLimit.setLeaseSize(2);
+        rateLimit.setLeaseMillis(5000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        redis.close();
+    }
+
+    @Test
+    void instancesShareTheWindow() {
+        AlarmClusterRateLimiter first = limiter();
+        AlarmClusterRateLimiter second = limiter();
+
+        assertThat(first.tryAcquire(TOKEN)).isTrue();
+        assertThat(first.tryAcquire(TOKEN)).isTrue();
+        assertThat(second.tryAcquire(TOKEN)).isTrue();
+        assertThat(second.tryAcquire(TOKEN)).isTrue();
+        assertThat(windowSize()).isEqualTo(4);
+
+        assertThat(first.tryAcquire(TOKEN)).isFalse();
+        assertThat(second.tryAcquire(TOKEN)).isFalse();
+        assertThat(first.nanosUntilAvailable(TOKEN)).isPositive();
+    }
+
+    @Test
+    void expiredLeaseReturnsUnusedPermits() throws InterruptedException {
+        rateLimit.setLeaseMillis(100);
+        AlarmClusterRateLimiter first = limiter();
+        AlarmClusterRateLimiter second = limiter();
+        first.start();
+        try {
+            assertThat(first.tryAcquire(TOKEN)).isTrue();
+            assertThat(windowSize()).isEqualTo(2);
+
+            // 租期过后清理线程归还未用的 1 个额度
+            TimeUnit.MILLISECONDS.sleep(350);
+            assertThat(windowSize()).isEqualTo(1);
+
+            assertThat(second.tryAcquire(TOKEN)).isTrue();
+            assertThat(second.tryAcquire(TOKEN)).isTrue();
+            assertThat(second.tryAcquire(TOKEN)).isTrue();
+            assertThat(windowSize()).isEqualTo(4);
+        } finally {
+            first.shutdown();
+        }
+    }
+
+    @Test
+    void refillReturnsLeftoverOfExpiredLease() throws InterruptedException {
+        rateLimit.setLeaseMillis(50);
+        rateLimit.setLeaseSize(3);
+        AlarmClusterRateLimiter first = limiter();
+        assertThat(first.tryAcquire(TOKEN)).isTrue();
+        assertThat(windowSize()).isEqualTo(3);
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        // 未启动清理线程，重新申请前先归还上一租约剩余的 2 个
+        assertThat(first.tryAcquire(TOKEN)).isTrue();
+        assertThat(windowSize()).isEqualTo(4);
+    }
+
+    @Test
+    void shutdownReturnsOutstandingPermits() {
+        AlarmClusterRateLimiter first = limiter();
+        assertThat(first.tryAcquire(TOKEN)).isTrue();
+        assertThat(windowSize()).isEqualTo(2);
+
+        first.shutdown();
+        assertThat(windowSize()).isEqualTo(1);
+    }
+
+    @Test
+    void releasedPermitIsReusedLocally() {
+        AlarmClusterRateLimiter first = limiter();
+        assertThat(first.tryAcquire(TOKEN)).isTrue();
+        first.release(TOKEN);
+        assertThat(first.tryAcquire(TOKEN)).isTrue();
+        assertThat(first.tryAcquire(TOKEN)).isTrue();
+        assertThat(windowSize()).isEqualTo(2);
+    }
+
+    @Test
+    void fallsBackToLocalWhenRedisUnavailable() throws IOException {
+        AlarmClusterRateLimiter first = limiter();
+        redis.stopServer();
+
+        assertThat(first.tryAcquire(TOKEN)).isTrue();
+        assertThat(first.nanosUntilAvailable(TOKEN)).isZero();
+    }
+
+    private AlarmClusterRateLimiter limiter() {
+        AlarmClusterRateLimiter limiter = new AlarmClusterRateLimiter(rateLimit, null);
+        limiter.stringRedisTemplate = redis.template();
+        return limiter;
+    }
+
+    private long windowSize() {
+        String key = rateLimit.getKeyPrefix() + DigestUtils.md5DigestAsHex(TOKEN.getBytes(StandardCharsets.UTF_8));
+        Long size = redis.template().opsForZSet().zCard(key);
+        return null == size ? 0 : size;
+    }
+}
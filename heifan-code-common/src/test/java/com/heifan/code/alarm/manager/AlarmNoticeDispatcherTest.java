@@ -0,0 +1,104 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.AlarmOverflowPolicyEnum;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.dto.AlarmSendResult;
+import com.heifan.code.alarm.message.AlarmNoticeSendI;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description AlarmNoticeDispatcher 队列溢出时 DROP_OLDEST 与 DROP_NEWEST 的丢弃计数测试
+ * @author HiF
+ * @date 2026/10/19 6:55
+ */
+class AlarmNoticeDispatcherTest {
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch taken = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private AlarmNoticeDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (null != dispatcher) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void dropOldestKeepsNewTask() throws InterruptedException {
+        dispatcher = blockedDispatcher(AlarmOverflowPolicyEnum.DROP_OLDEST);
+        assertThat(dispatcher.dispatch(AlarmNoticeTask.ofText("4"))).isTrue();
+        assertThat(dispatcher.getDroppedCount()).isEqualTo(1);
+        assertThat(dispatcher.queueSize()).isEqualTo(2);
+
+        assertThat(sendAll()).containsExactly("1", "3", "4");
+    }
+
+    @Test
+    void dropNewestRejectsNewTask() throws InterruptedException {
+        dispatcher = blockedDispatcher(AlarmOverflowPolicyEnum.DROP_NEWEST);
+        assertThat(dispatcher.dispatch(AlarmNoticeTask.ofText("4"))).isFalse();
+        assertThat(dispatcher.dispatch(AlarmNoticeTask.ofText("5"))).isFalse();
+        assertThat(dispatcher.getDroppedCount()).isEqualTo(2);
+        assertThat(dispatcher.queueSize()).isEqualTo(2);
+
+        assertThat(sendAll()).containsExactly("1", "2", "3");
+    }
+
+    /**
+     * 派发线程卡在第 1 条预警上，第 2、3 条占满容量为 2 的队列
+     */
+    private AlarmNoticeDispatcher blockedDispatcher(AlarmOverflowPolicyEnum policy) throws InterruptedException {
+        AlarmNoticeProperty.Dispatch dispatch = new AlarmNoticeProperty.Dispatch();
+        dispatch.setCapacity(2);
+        dispatch.setThreads(1);
+        dispatch.setOverflowPolicy(policy);
+        AlarmNoticeDispatcher blocked = new AlarmNoticeDispatcher(dispatch);
+        blocked.alarmNoticeSend = blockingSend();
+        blocked.start();
+        assertThat(blocked.dispatch(AlarmNoticeTask.ofText("1"))).isTrue();
+        assertThat(taken.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(blocked.dispatch(AlarmNoticeTask.ofText("2"))).isTrue();
+        assertThat(blocked.dispatch(AlarmNoticeTask.ofText("3"))).isTrue();
+        assertThat(blocked.getDroppedCount()).isZero();
+        return blocked;
+    }
+
+    private List<String> sendAll() throws InterruptedException {
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (sent.size() < 3 && System.nanoTime() - deadline < 0) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        return sent;
+    }
+
+    /**
+     * 派发器只调用 send(AlarmNoticeTask)，第一次调用阻塞到测试放行
+     */
+    private AlarmNoticeSendI blockingSend() {
+        return (AlarmNoticeSendI) Proxy.newProxyInstance(AlarmNoticeSendI.class.getClassLoader(),
+                new Class<?>[]{AlarmNoticeSendI.class}, (proxy, method, args) -> {
+                    AlarmNoticeTask task = (AlarmNoticeTask) args[0];
+                    taken.countDown();
+                    release.await(2, TimeUnit.SECONDS);
+                    sent.add(task.getContent());
+                    return new AlarmSendResult();
+                });
+    }
+}
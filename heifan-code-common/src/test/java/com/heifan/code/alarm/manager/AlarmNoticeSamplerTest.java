@@ -0,0 +1,63 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description AlarmNoticeSampler 的采样间隔与容量淘汰测试
+ * @author HiF
+ * @date 2026/10/19 4:20
+ */
+class AlarmNoticeSamplerTest {
+
+    private static final IllegalStateException BOOM = new IllegalStateException("boom");
+
+    @Test
+    void passesAtDoublingIntervals() {
+        AlarmNoticeSampler sampler = sampler(8);
+        StringBuilder passes = new StringBuilder();
+        for (int i = 1; i <= 12; i++) {
+            if (sampler.sample(BOOM, "uid")) {
+                passes.append(i).append(' ');
+            }
+        }
+        // 前 3 次全部通知，之后第 4、6、10 次通知
+        assertThat(passes.toString().trim()).isEqualTo("1 2 3 4 6 10");
+    }
+
+    @Test
+    void sweepKeepsMostRecentEntries() throws InterruptedException {
+        AlarmNoticeSampler sampler = sampler(4);
+        for (int i = 0; i < 8; i++) {
+            assertThat(sampler.sample(BOOM, "uid-" + i)).isTrue();
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        // 未启动后台线程时超出容量不淘汰，达到 2 倍容量后不再跟踪新异常
+        assertThat(sampler.sample(BOOM, "uid-8")).isTrue();
+        assertThat(sampler.size()).isEqualTo(8);
+
+        sampler.sweep();
+        assertThat(sampler.size()).isEqualTo(4);
+        // 最近出现的异常仍在采样中
+        for (int i = 0; i < 3; i++) {
+            sampler.sample(BOOM, "uid-7");
+        }
+        assertThat(sampler.sample(BOOM, "uid-7")).isFalse();
+    }
+
+    private static AlarmNoticeSampler sampler(int maxEntries) {
+        AlarmNoticeProperty.SampleRule rule = new AlarmNoticeProperty.SampleRule();
+        rule.setInitialPasses(3);
+        rule.setMaxInterval(8);
+        rule.setQuietSeconds(600);
+        AlarmNoticeProperty.Sample sample = new AlarmNoticeProperty.Sample();
+        sample.setEnabled(true);
+        sample.setMaxEntries(maxEntries);
+        sample.setDefaults(rule);
+        return new AlarmNoticeSampler(sample);
+    }
+}
@@ -0,0 +1,71 @@
+package com.heifan.code.alarm.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description AlarmTokenBucket 的突发容量、匀速补充与归还测试
+ * @author HiF
+ * @date 2026/10/19 7:05
+ */
+class AlarmTokenBucketTest {
+
+    /**
+     * 每分钟 600 个，每 100ms 补充一个
+     */
+    private static final int LIMIT_PER_MINUTE = 600;
+
+    private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void refillsOneTokenPerInterval() throws InterruptedException {
+        AlarmTokenBucket bucket = drained();
+        long wait = bucket.nanosUntilAvailable();
+        assertThat(wait).isPositive().isLessThanOrEqualTo(INTERVAL_NANOS);
+        assertThat(bucket.tryAcquire()).isFalse();
+
+        TimeUnit.NANOSECONDS.sleep(wait + TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(bucket.nanosUntilAvailable()).isZero();
+        assertThat(bucket.tryAcquire()).isTrue();
+        // 补充一个后立即用完，下一个仍要等待一个间隔
+        assertThat(bucket.tryAcquire()).isFalse();
+        assertThat(bucket.nanosUntilAvailable()).isGreaterThan(INTERVAL_NANOS / 2);
+    }
+
+    @Test
+    void releaseReturnsUnusedToken() {
+        AlarmTokenBucket bucket = drained();
+        bucket.release();
+        assertThat(bucket.availablePermits()).isEqualTo(1);
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+
+        // 桶满时归还不超过容量
+        AlarmTokenBucket full = new AlarmTokenBucket(LIMIT_PER_MINUTE);
+        full.release();
+        assertThat(full.availablePermits()).isEqualTo(LIMIT_PER_MINUTE);
+    }
+
+    @Test
+    void nonPositiveLimitIsUnlimited() {
+        AlarmTokenBucket bucket = new AlarmTokenBucket(0);
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(bucket.tryAcquire()).isTrue();
+        }
+        assertThat(bucket.nanosUntilAvailable()).isZero();
+        assertThat(bucket.availablePermits()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    private static AlarmTokenBucket drained() {
+        AlarmTokenBucket bucket = new AlarmTokenBucket(LIMIT_PER_MINUTE);
+        assertThat(bucket.availablePermits()).isEqualTo(LIMIT_PER_MINUTE);
+        for (int i = 0; i < LIMIT_PER_MINUTE; i++) {
+            assertThat(bucket.tryAcquire()).isTrue();
+        }
+        assertThat(bucket.availablePermits()).isZero();
+        return bucket;
+    }
+}
@@ -0,0 +1,79 @@
+package com.heifan.code.alarm.manager;
+
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description AlarmTokenHealth 熔断、半开探测与恢复测试
+ * @author HiF
+ * @date 2026/10/19 7:15
+ */
+class AlarmTokenHealthTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        AlarmTokenHealth health = health(3);
+        health.onFailure(false, 0);
+        health.onFailure(false, 0);
+        assertThat(health.getState()).isEqualTo(AlarmTokenHealth.State.CLOSED);
+        assertThat(health.allowRequest()).isTrue();
+
+        health.onFailure(false, 0);
+        assertThat(health.getState()).isEqualTo(AlarmTokenHealth.State.OPEN);
+        assertThat(health.allowRequest()).isFalse();
+        assertThat(health.nanosUntilAvailable()).isPositive();
+    }
+
+    @Test
+    void halfOpenProbeClosesBreaker() throws InterruptedException {
+        AlarmTokenHealth health = health(3);
+        // 平台限流直接熔断
+        health.onFailure(true, 0);
+        assertThat(health.getState()).isEqualTo(AlarmTokenHealth.State.OPEN);
+        awaitProbe(health);
+
+        assertThat(health.allowRequest()).isTrue();
+        assertThat(health.getState()).isEqualTo(AlarmTokenHealth.State.HALF_OPEN);
+        // 只放行一个探测
+        assertThat(health.allowRequest()).isFalse();
+        // 探测未发出时归还，可以再取一次
+        health.releaseProbe();
+        assertThat(health.allowRequest()).isTrue();
+
+        health.onSuccess(TimeUnit.MILLISECONDS.toNanos(5));
+        assertThat(health.getState()).isEqualTo(AlarmTokenHealth.State.CLOSED);
+        assertThat(health.getConsecutiveFailures()).isZero();
+        assertThat(health.allowRequest()).isTrue();
+        assertThat(health.getRateLimitedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void failedProbeReopensBreaker() throws InterruptedException {
+        AlarmTokenHealth health = health(3);
+        health.onFailure(true, 0);
+        awaitProbe(health);
+        assertThat(health.allowRequest()).isTrue();
+
+        // 半开时一次普通失败即重新熔断，不等连续失败达到阈值
+        health.onFailure(false, 0);
+        assertThat(health.getState()).isEqualTo(AlarmTokenHealth.State.OPEN);
+        assertThat(health.allowRequest()).isFalse();
+    }
+
+    private static void awaitProbe(AlarmTokenHealth health) throws InterruptedException {
+        long wait = health.nanosUntilAvailable();
+        assertThat(wait).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+        TimeUnit.NANOSECONDS.sleep(wait + TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    private static AlarmTokenHealth health(int failureThreshold) {
+        AlarmNoticeProperty.CircuitBreaker circuitBreaker = new AlarmNoticeProperty.CircuitBreaker();
+        circuitBreaker.setFailureThreshold(failureThreshold);
+        circuitBreaker.setOpenSeconds(1);
+        return new AlarmTokenHealth(circuitBreaker);
+    }
+}
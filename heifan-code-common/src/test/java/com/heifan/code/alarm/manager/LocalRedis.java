@@ -0,0 +1,59 @@
+package com.heifan.code.alarm.manager;
+
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * @description 测试用的本地 Redis 替身(jedis-mock，支持 Lua 脚本)，监听回环地址的随机端口
+ * @author HiF
+ * @date 2026/10/19 3:40
+ */
+class LocalRedis {
+
+    private final RedisServer redisServer;
+
+    private final LettuceConnectionFactory connectionFactory;
+
+    private final StringRedisTemplate template;
+
+    private boolean stopped;
+
+    LocalRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer(0, InetAddress.getLoopbackAddress()).start();
+        // jedis-mock 只支持 RESP2
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                .build();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("127.0.0.1", redisServer.getBindPort()), clientConfiguration);
+        connectionFactory.afterPropertiesSet();
+        template = new StringRedisTemplate(connectionFactory);
+    }
+
+    StringRedisTemplate template() {
+        return template;
+    }
+
+    /**
+     * 停止 Redis，模拟 Redis 不可用
+     */
+    void stopServer() throws IOException {
+        if (!stopped) {
+            stopped = true;
+            redisServer.stop();
+        }
+    }
+
+    void close() throws IOException {
+        connectionFactory.destroy();
+        stopServer();
+    }
+}
@@ -0,0 +1,151 @@
+package com.heifan.code.alarm.spool;
+
+import com.heifan.code.alarm.AlarmSpoolFsyncEnum;
+import com.heifan.code.alarm.dto.AlarmNoticeTask;
+import com.heifan.code.alarm.property.AlarmNoticeProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description AlarmSpool 的读取进度恢复、损坏记录跳过与超出总大小淘汰测试
+ * @author HiF
+ * @date 2026/10/19 6:40
+ */
+class AlarmSpoolTest {
+
+    private static final int HEADER_BYTES = 8;
+
+    @TempDir
+    Path directory;
+
+    private AlarmSpool spool;
+
+    @AfterEach
+    void tearDown() {
+        if (null != spool) {
+            spool.shutdown();
+        }
+    }
+
+    @Test
+    void restartResumesFromCursor() throws IOException {
+        spool = start(64 * 1024, 64 * 1024);
+        for (String content : new String[]{"a", "b", "c"}) {
+            assertThat(spool.append(AlarmNoticeTask.ofText(content))).isTrue();
+        }
+        AlarmSpool.Record record = spool.peek();
+        assertThat(record.getTask().getContent()).isEqualTo("a");
+        // 未提交前重复读取同一条
+        assertThat(spool.peek().getPosition()).isEqualTo(record.getPosition());
+        spool.commit(record);
+        assertThat(spool.peek().getTask().getContent()).isEqualTo("b");
+        spool.shutdown();
+
+        // b 已读取但未提交，重启后从 b 继续
+        spool = start(64 * 1024, 64 * 1024);
+        record = spool.peek();
+        assertThat(record.getTask().getContent()).isEqualTo("b");
+        spool.commit(record);
+        record = spool.peek();
+        assertThat(record.getTask().getContent()).isEqualTo("c");
+        spool.commit(record);
+        assertThat(spool.peek()).isNull();
+        assertThat(spool.pendingBytes()).isZero();
+    }
+
+    @Test
+    void corruptedRecordIsSkipped() throws IOException {
+        spool = start(64 * 1024, 64 * 1024);
+        spool.append(AlarmNoticeTask.ofText("a"));
+        spool.append(AlarmNoticeTask.ofText("b"));
+        spool.shutdown();
+        // 改写 b 的最后一个字节，CRC 校验失败
+        long end = recordBytes("a") + recordBytes("b");
+        try (FileChannel channel = FileChannel.open(segment(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0x7f}), end - 1);
+        }
+
+        assertReplaysSkipping("b");
+    }
+
+    @Test
+    void halfWrittenRecordIsSkipped() throws IOException {
+        spool = start(64 * 1024, 64 * 1024);
+        spool.append(AlarmNoticeTask.ofText("a"));
+        spool.append(AlarmNoticeTask.ofText("b"));
+        spool.shutdown();
+        // 模拟写到一半进程退出
+        try (FileChannel channel = FileChannel.open(segment(0), StandardOpenOption.WRITE)) {
+            channel.truncate(recordBytes("a") + HEADER_BYTES + 1);
+        }
+
+        assertReplaysSkipping("b");
+    }
+
+    @Test
+    void exceedingMaxTotalBytesEvictsOldestSegment() throws IOException {
+        spool = start(64 * 1024, 128 * 1024);
+        // 每个分段放 3 条，第 7 条写入第 3 个分段时超出总大小
+        for (int i = 0; i < 6; i++) {
+            assertThat(spool.append(AlarmNoticeTask.ofText(large(i)))).isTrue();
+        }
+        assertThat(spool.segmentCount()).isEqualTo(2);
+        assertThat(spool.getDroppedCount()).isZero();
+
+        assertThat(spool.append(AlarmNoticeTask.ofText(large(6)))).isTrue();
+        assertThat(spool.getEvictedSegmentCount()).isEqualTo(1);
+        assertThat(spool.getDroppedCount()).isEqualTo(3);
+        assertThat(spool.segmentCount()).isEqualTo(2);
+        assertThat(spool.peek().getTask().getContent()).isEqualTo(large(3));
+    }
+
+    /**
+     * 重启后补发 a，跳过损坏的记录，继续补发新分段中的 c
+     */
+    private void assertReplaysSkipping(String skipped) throws IOException {
+        spool = start(64 * 1024, 64 * 1024);
+        spool.append(AlarmNoticeTask.ofText("c"));
+        AlarmSpool.Record record = spool.peek();
+        assertThat(record.getTask().getContent()).isEqualTo("a");
+        spool.commit(record);
+        record = spool.peek();
+        assertThat(record.getTask().getContent()).isNotEqualTo(skipped).isEqualTo("c");
+        spool.commit(record);
+        assertThat(spool.peek()).isNull();
+    }
+
+    private AlarmSpool start(long segmentBytes, long maxTotalBytes) throws IOException {
+        AlarmNoticeProperty.Spool property = new AlarmNoticeProperty.Spool();
+        property.setDirectory(directory.toString());
+        property.setSegmentBytes(segmentBytes);
+        property.setMaxTotalBytes(maxTotalBytes);
+        property.setFsyncPolicy(AlarmSpoolFsyncEnum.ALWAYS);
+        AlarmSpool started = new AlarmSpool(property);
+        started.start();
+        return started;
+    }
+
+    private Path segment(long seq) {
+        return directory.resolve(String.format("alarm-%020d.spool", seq));
+    }
+
+    private static long recordBytes(String content) throws IOException {
+        return HEADER_BYTES + AlarmSpoolCodec.encode(AlarmNoticeTask.ofText(content)).length;
+    }
+
+    private static String large(int index) {
+        char[] padding = new char[20000];
+        Arrays.fill(padding, 'x');
+        return index + new String(padding);
+    }
+}
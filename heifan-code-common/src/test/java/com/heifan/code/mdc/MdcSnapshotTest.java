@@ -0,0 +1,55 @@
+package com.heifan.code.mdc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description MdcSnapshot 在线程池线程与调用方线程上的设置与恢复测试
+ * @author HiF
+ * @date 2026/10/19 4:50
+ */
+class MdcSnapshotTest {
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    void poolThreadIsClearedAfterTask() throws Exception {
+        MDC.put("AppTraceId", "t1");
+        MdcSnapshot snapshot = MdcSnapshot.capture();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertThat(executor.submit(snapshot.wrapCallable(() -> MDC.get("AppTraceId"))).get()).isEqualTo("t1");
+            assertThat(executor.submit(() -> MDC.getCopyOfContextMap()).get()).isNullOrEmpty();
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void callerKeepsItsOwnContext() {
+        MDC.put("AppTraceId", "t1");
+        MdcSnapshot snapshot = MdcSnapshot.capture();
+        assertThat(MdcSnapshot.capture()).isSameAs(snapshot);
+
+        // 任务改动的MDC在调用方线程上恢复
+        snapshot.run(() -> MDC.put("SpanId", "s1"));
+        assertThat(MDC.get("SpanId")).isNull();
+        assertThat(MDC.get("AppTraceId")).isEqualTo("t1");
+
+        MDC.put("AppTraceId", "t2");
+        assertThat(snapshot.wrapSupplier(() -> MDC.get("AppTraceId")).get()).isEqualTo("t1");
+        assertThat(MDC.get("AppTraceId")).isEqualTo("t2");
+        assertThat(MdcSnapshot.capture()).isNotSameAs(snapshot);
+    }
+}
@@ -0,0 +1,64 @@
+package com.heifan.code.mdc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @description MdcTaskExecutorMetrics 对 execute / submit / supply 任务的成功与失败统计测试
+ * @author HiF
+ * @date 2026/10/19 5:30
+ */
+class MdcTaskExecutorMetricsTest {
+
+    private MdcTaskExecutorHolder holder;
+
+    @BeforeEach
+    void setUp() {
+        MdcTaskExecutorProperty property = new MdcTaskExecutorProperty();
+        property.setCorePoolSize(1);
+        property.setMaxPoolSize(1);
+        holder = new MdcTaskExecutorHolder(property, new MdcTaskExecutorMetrics());
+        holder.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        holder.shutdown();
+    }
+
+    @Test
+    void countsFailuresSwallowedByFutures() throws Exception {
+        MdcThreadPoolTaskExecutor executor = holder.getTaskExecutor();
+        Future<?> ok = executor.submit(() -> {
+        });
+        Future<?> failed = executor.submit(() -> {
+            throw new IllegalStateException("submit");
+        });
+        ok.get();
+        assertThatThrownBy(failed::get).isInstanceOf(ExecutionException.class);
+
+        MdcThreadTaskUtils.setTaskExecutor(executor);
+        CompletableFuture<String> supplied = MdcThreadTaskUtils.supply(() -> "value");
+        CompletableFuture<String> supplyFailed = MdcThreadTaskUtils.supply(() -> {
+            throw new IllegalArgumentException("supply");
+        });
+        assertThat(supplied.get()).isEqualTo("value");
+        assertThatThrownBy(supplyFailed::get).hasCauseInstanceOf(IllegalArgumentException.class);
+
+        // 等待最后一个任务的计数写入
+        executor.submit(() -> {
+        }).get();
+        Map<String, Object> snapshot = holder.metrics();
+        assertThat(snapshot.get("mdc.executor.tasks.failed")).isEqualTo(2L);
+        assertThat(snapshot.get("mdc.executor.tasks.submitted")).isEqualTo(5L);
+    }
+}
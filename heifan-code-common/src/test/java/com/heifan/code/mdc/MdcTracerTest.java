@@ -0,0 +1,59 @@
+package com.heifan.code.mdc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @description MdcTracer 片段结束后线程上的MDC与当前片段清理测试
+ * @author HiF
+ * @date 2026/10/19 5:50
+ */
+class MdcTracerTest {
+
+    @BeforeEach
+    void setUp() {
+        MdcTracer.setRingBuffer(new MdcSpanRingBuffer(16));
+    }
+
+    @AfterEach
+    void tearDown() {
+        MdcTracer.setRingBuffer(null);
+        MdcTracer.reset();
+        MDC.clear();
+    }
+
+    @Test
+    void rootSpanRemovesGeneratedTraceId() {
+        try (MdcSpan root = MdcTracer.start("job")) {
+            assertThat(MDC.get(MdcApiConstant.HTTP_HEADER_TRACE_ID)).isEqualTo(root.getTraceId());
+            try (MdcSpan child = MdcTracer.start("redis.get")) {
+                assertThat(child.getTraceId()).isEqualTo(root.getTraceId());
+            }
+            assertThat(MDC.get(MdcApiConstant.HTTP_HEADER_TRACE_ID)).isEqualTo(root.getTraceId());
+        }
+        assertThat(MDC.get(MdcApiConstant.HTTP_HEADER_TRACE_ID)).isNull();
+        assertThat(MDC.get(MdcApiConstant.SPAN_ID)).isNull();
+        assertThat(MdcTracer.current()).isNull();
+    }
+
+    @Test
+    void rootSpanKeepsIncomingTraceId() {
+        MDC.put(MdcApiConstant.HTTP_HEADER_TRACE_ID, "incoming");
+        MdcTracer.start("GET /order").finish();
+        assertThat(MDC.get(MdcApiConstant.HTTP_HEADER_TRACE_ID)).isEqualTo("incoming");
+    }
+
+    @Test
+    void resetDropsUnfinishedSpan() {
+        MdcSpan leaked = MdcTracer.start("leaked");
+        MdcTracer.reset();
+        MdcSpan next = MdcTracer.start("next");
+        assertThat(next.getParentId()).isZero();
+        assertThat(next.getTraceId()).isEqualTo(leaked.getTraceId());
+        next.finish();
+    }
+}
@@ -0,0 +1,149 @@
+package com.heifan.code.test.bench;
+
+import com.google.gson.Gson;
+import com.heifan.code.alarm.client.AlarmJsonCodec;
+import com.heifan.code.alarm.dto.AlarmResult;
+import com.heifan.code.alarm.dto.NoticeText;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @description 预警消息编解码对比，原实现(每次 new Gson，info 日志与请求体各序列化一次，再转字节)与 AlarmJsonCodec。
+ * 输出 1 ~ 16 线程下的每秒次数，以及单线程每次操作分配的字节数(HotSpot ThreadMXBean)。
+ * 结果的 hashCode 在线程内累加，结束时汇总到 SINK，避免多线程写同一个字段造成缓存行争用。
+ * 运行：java -cp heifan-code-test.jar com.heifan.code.test.bench.AlarmJsonCodecBenchmark [每组毫秒数]
+ * @author HiF
+ * @date 2026/10/19 2:10
+ */
+public class AlarmJsonCodecBenchmark {
+
+    private static final int[] THREADS = {1, 4, 16};
+
+    private static final String RESPONSE = "{\"errcode\":0,\"errmsg\":\"ok\",\"code\":0,\"msg\":\"success\"}";
+
+    private static final LongAdder SINK = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        NoticeText.FeiShuText notice = notice();
+        Case[] cases = {
+                new Case("encode legacy", () -> legacyEncode(notice)),
+                new Case("encode codec", () -> codecEncode(notice)),
+                new Case("decode legacy", () -> new Gson().fromJson(RESPONSE, AlarmResult.class)),
+                new Case("decode codec", () -> AlarmJsonCodec.fromJson(RESPONSE, AlarmResult.class)),
+        };
+        System.out.printf("%-14s %14s", "case", "bytes/op");
+        for (int threads : THREADS) {
+            System.out.printf(" %14s", threads + "t ops/s");
+        }
+        System.out.println();
+        for (Case c : cases) {
+            System.out.printf("%-14s %14d", c.name, allocatedBytesPerOp(c.op));
+            for (int threads : THREADS) {
+                // 预热
+                measure(c.op, threads, Math.max(200, millis / 4));
+                System.out.printf(" %14d", measure(c.op, threads, millis));
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * 与 AlarmNoticeSendImpl 产生的飞书消息大小相近：一段异常堆栈与两个通知人
+     */
+    private static NoticeText.FeiShuText notice() {
+        StringBuilder text = new StringBuilder("工程信息：heifan-code-test\n类路径：com.heifan.code.test.controller.Test01Controller\n");
+        text.append("方法名：get\n异常信息：com.heifan.code.exception.BizException: 测试异常\n异常追踪：\n");
+        for (int i = 0; i < 10; i++) {
+            text.append("\tat com.heifan.code.test.controller.Test01Controller.get(Test01Controller.java:").append(30 + i).append(")\n");
+        }
+        return new NoticeText.FeiShuText(text.toString(), new String[]{"17976598762", "17976598763"});
+    }
+
+    /**
+     * 原实现：发送前 info 日志序列化一次，SimpleHttpClient 再用新的 Gson 序列化并转成字节
+     */
+    private static Object legacyEncode(NoticeText.FeiShuText notice) {
+        String logLine = new Gson().toJson(notice);
+        byte[] body = new Gson().toJson(notice).getBytes(StandardCharsets.UTF_8);
+        return logLine.length() + body.length;
+    }
+
+    /**
+     * 现实现：编码到线程内复用缓冲，日志参数延迟编码(debug 关闭时不调用 toString)
+     */
+    private static Object codecEncode(NoticeText.FeiShuText notice) {
+        Object logArgument = AlarmJsonCodec.lazy(notice);
+        return AlarmJsonCodec.encode(notice).length() + (null == logArgument ? 0 : 1);
+    }
+
+    private static long allocatedBytesPerOp(Op op) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        int iterations = 200_000;
+        long hash = 0;
+        for (int i = 0; i < iterations; i++) {
+            hash += op.run().hashCode();
+        }
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < iterations; i++) {
+            hash += op.run().hashCode();
+        }
+        SINK.add(hash);
+        return (threads.getThreadAllocatedBytes(id) - before) / iterations;
+    }
+
+    private static long measure(Op op, int threads, long millis) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] deadline = new long[1];
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    long count = 0;
+                    long hash = 0;
+                    while (System.nanoTime() - deadline[0] < 0) {
+                        for (int j = 0; j < 16; j++) {
+                            hash += op.run().hashCode();
+                        }
+                        count += 16;
+                    }
+                    ops.add(count);
+                    SINK.add(hash);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        deadline[0] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        start.countDown();
+        done.await();
+        return ops.sum() * 1000 / millis;
+    }
+
+    private interface Op {
+        Object run();
+    }
+
+    private static class Case {
+
+        private final String name;
+
+        private final Op op;
+
+        Case(String name, Op op) {
+            this.name = name;
+            this.op = op;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.heifan.code.test.bench;
+
+import com.heifan.code.alarm.manager.AlarmNoticeDispatcher;
+import com.heifan.code.helper.SpringContextHelper;
+import com.heifan.code.test.TestApplication;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @description 异常 -> 预警链路压测。
+ * 启动本地 webHook 替身，在每个场景下启动应用，并发请求 Test01Controller 触发 BizException，
+ * 经 ExceptionHandlerAdvice 产生预警，输出请求 p50/p99 延迟与预警的发送、丢弃数。
+ * 运行时需要完整的运行期依赖(Undertow 依赖 xnio-nio 提供 XNIO 实现，只有模块 jar 会报 No XNIO provider found)：
+ * mvn compile dependency:build-classpath -Dmdep.outputFile=cp.txt -pl heifan-code-test -am
+ * java -cp heifan-code-test/target/classes:$(cat heifan-code-test/cp.txt) \
+ *     com.heifan.code.test.bench.AlarmLoadBenchmark [请求数] [并发数]
+ * @author HiF
+ * @date 2026/10/18 19:40
+ */
+@Slf4j
+public class AlarmLoadBenchmark {
+
+    private static final String PATH = "/heifan/test/test/01/get";
+
+    /**
+     * 等待派发队列清空的最长时间(秒)
+     */
+    private static final long DRAIN_SECONDS = 30;
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        List<Scenario> scenarios = Arrays.asList(
+                new Scenario("baseline", 20, 0, 0, false),
+                new Scenario("dedup", 20, 0, 0, true),
+                new Scenario("slow-webhook", 800, 0, 0, false),
+                new Scenario("errcode", 20, 310000, 0, false),
+                new Scenario("throttled", 20, 0, 20, false));
+        MockWebHookServer mock = new MockWebHookServer();
+        mock.start();
+        List<String> reports = new ArrayList<>();
+        try {
+            for (Scenario scenario : scenarios) {
+                reports.add(run(mock, scenario, requests, concurrency));
+            }
+        } finally {
+            mock.shutdown();
+        }
+        System.out.println(String.format("%-14s %8s %8s %8s %8s %8s %8s %8s",
+                "scenario", "requests", "p50(ms)", "p99(ms)", "received", "sent", "failed", "dropped"));
+        for (String report : reports) {
+            System.out.println(report);
+        }
+        System.exit(0);
+    }
+
+    private static String run(MockWebHookServer mock, Scenario scenario, int requests, int concurrency)
+            throws InterruptedException {
+        mock.reset();
+        mock.setLatencyMillis(scenario.getLatencyMillis());
+        mock.setErrcode(scenario.getErrcode());
+        mock.setLimitPerSecond(scenario.getLimitPerSecond());
+        ConfigurableApplicationContext context = SpringApplication.run(TestApplication.class,
+                "--server.port=0",
+                "--spring.profiles.active=dev",
+                "--alarm.type=FS",
+                "--alarm.web-hook-dev-token[0]=bench",
+                "--alarm.channels.FS.url=" + mock.fsUrl(),
+                "--alarm.token-limit-per-minute=1000000",
+                "--alarm.dedup.enabled=" + scenario.isDedup(),
+                "--logging.level.com.heifan=WARN");
+        try {
+            SpringContextHelper.setApplicationContext(context);
+            String url = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port") + PATH;
+            long[] latencies = drive(url, requests, concurrency);
+            AlarmNoticeDispatcher dispatcher = context.getBean(AlarmNoticeDispatcher.class);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_SECONDS);
+            while (dispatcher.queueSize() > 0 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            Arrays.sort(latencies);
+            return String.format("%-14s %8d %8.1f %8.1f %8d %8d %8d %8d",
+                    scenario.getName(), latencies.length,
+                    percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                    mock.getReceived().get(), mock.getAccepted().get(),
+                    mock.getRejected().get() + mock.getThrottled().get(),
+                    dispatcher.getDroppedCount() + dispatcher.queueSize());
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * 并发发送请求，返回每个请求的耗时(纳秒)
+     */
+    private static long[] drive(String url, int requests, int concurrency) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger(0);
+        AtomicLong errors = new AtomicLong(0);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            executor.execute(() -> {
+                try {
+                    int index;
+                    while ((index = next.getAndIncrement()) < requests) {
+                        long start = System.nanoTime();
+                        try {
+                            post(url);
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[index] = System.nanoTime() - start;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        executor.shutdown();
+        if (errors.get() > 0) {
+            log.warn("请求失败 {} 次", errors.get());
+        }
+        return latencies;
+    }
+
+    private static void post(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(3000);
+        connection.setReadTimeout(10000);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(new byte[0]);
+        }
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            while (in.read(buffer) != -1) {
+                // 丢弃响应体
+            }
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Scenario {
+
+        private final String name;
+
+        /**
+         * webHook 响应延迟(毫秒)
+         */
+        private final long latencyMillis;
+
+        /**
+         * webHook 返回的错误码
+         */
+        private final int errcode;
+
+        /**
+         * webHook 每秒限流次数
+         */
+        private final int limitPerSecond;
+
+        private final boolean dedup;
+    }
+}
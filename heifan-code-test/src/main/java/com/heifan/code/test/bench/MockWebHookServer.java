@@ -0,0 +1,185 @@
+package com.heifan.code.test.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @description 本地 webHook 替身，模拟钉钉、企业微信、飞书机器人接口。
+ * 可设置响应延迟、固定错误码和每秒限流次数，用于压测预警链路
+ * @author HiF
+ * @date 2026/10/18 19:20
+ */
+@Slf4j
+@Getter
+@Setter
+public class MockWebHookServer {
+
+    public static final String DD_PATH = "/robot/send";
+
+    public static final String WX_PATH = "/cgi-bin/webhook/send";
+
+    public static final String FS_PATH = "/open-apis/bot/v2/hook/";
+
+    /**
+     * 各平台的限流错误码
+     */
+    private static final int DD_RATE_LIMIT = 130101;
+    private static final int WX_RATE_LIMIT = 45009;
+    private static final int FS_RATE_LIMIT = 9499;
+
+    /**
+     * 响应延迟(毫秒)
+     */
+    private volatile long latencyMillis;
+
+    /**
+     * 固定返回的错误码，0 表示成功
+     */
+    private volatile int errcode;
+
+    /**
+     * 每秒允许的请求数，超过后返回平台限流错误码，0 表示不限流
+     */
+    private volatile int limitPerSecond;
+
+    private final AtomicLong received = new AtomicLong(0);
+
+    private final AtomicLong accepted = new AtomicLong(0);
+
+    private final AtomicLong throttled = new AtomicLong(0);
+
+    private final AtomicLong rejected = new AtomicLong(0);
+
+    private final AtomicLong windowSecond = new AtomicLong(0);
+
+    private final AtomicInteger windowCount = new AtomicInteger(0);
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public synchronized void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "mock-webhook");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(DD_PATH, exchange -> handle(exchange, false, DD_RATE_LIMIT));
+        server.createContext(WX_PATH, exchange -> handle(exchange, false, WX_RATE_LIMIT));
+        server.createContext(FS_PATH, exchange -> handle(exchange, true, FS_RATE_LIMIT));
+        server.start();
+        log.info("mock webHook started on port {}", getPort());
+    }
+
+    public synchronized void shutdown() {
+        if (null != server) {
+            server.stop(0);
+            server = null;
+        }
+        if (null != executor) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 平台地址模板，%s 为令牌
+     */
+    public String ddUrl() {
+        return "http://127.0.0.1:" + getPort() + DD_PATH + "?access_token=%s";
+    }
+
+    public String wxUrl() {
+        return "http://127.0.0.1:" + getPort() + WX_PATH + "?key=%s";
+    }
+
+    public String fsUrl() {
+        return "http://127.0.0.1:" + getPort() + FS_PATH + "%s";
+    }
+
+    /**
+     * 清空计数与限流窗口
+     */
+    public void reset() {
+        received.set(0);
+        accepted.set(0);
+        throttled.set(0);
+        rejected.set(0);
+        windowSecond.set(0);
+        windowCount.set(0);
+    }
+
+    private void handle(HttpExchange exchange, boolean feiShu, int rateLimitCode) throws IOException {
+        try {
+            drain(exchange.getRequestBody());
+            received.incrementAndGet();
+            if (latencyMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            }
+            int code;
+            if (throttle()) {
+                throttled.incrementAndGet();
+                code = rateLimitCode;
+            } else if (errcode != 0) {
+                rejected.incrementAndGet();
+                code = errcode;
+            } else {
+                accepted.incrementAndGet();
+                code = 0;
+            }
+            String body = feiShu
+                    ? "{\"code\":" + code + ",\"msg\":\"" + (code == 0 ? "success" : "mock error") + "\"}"
+                    : "{\"errcode\":" + code + ",\"errmsg\":\"" + (code == 0 ? "ok" : "mock error") + "\"}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean throttle() {
+        int limit = limitPerSecond;
+        if (limit <= 0) {
+            return false;
+        }
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long current = windowSecond.get();
+        if (current != second && windowSecond.compareAndSet(current, second)) {
+            windowCount.set(0);
+        }
+        return windowCount.incrementAndGet() > limit;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        while (in.read(buffer) != -1) {
+            // 丢弃请求体
+        }
+    }
+}
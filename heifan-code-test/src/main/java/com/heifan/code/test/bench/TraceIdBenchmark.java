@@ -0,0 +1,92 @@
+package com.heifan.code.test.bench;
+
+import com.heifan.code.mdc.MdcTraceIdGenerator;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * @description 链路id生成吞吐对比，原 synchronized + UUID 实现与 MdcTraceIdGenerator 在 1 ~ 64 线程下的每秒生成数。
+ * 每组先预热再计时，结果的 hashCode 累加到线程内的局部变量，结束时汇总到 SINK 防止被优化掉，计时循环中不写共享字段。
+ * 运行：java -cp heifan-code-test.jar com.heifan.code.test.bench.TraceIdBenchmark [每组毫秒数]
+ * @author HiF
+ * @date 2026/10/18 23:40
+ */
+public class TraceIdBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    private static final LongAdder SINK = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        System.out.printf("%-8s %16s %16s %16s%n", "threads", "legacy ops/s", "hex ops/s", "traceparent ops/s");
+        for (int threads : THREADS) {
+            long legacy = run(TraceIdBenchmark::legacyTraceId, threads, millis);
+            long hex = run(MdcTraceIdGenerator::traceId, threads, millis);
+            long traceparent = run(MdcTraceIdGenerator::traceparent, threads, millis);
+            System.out.printf("%-8d %16d %16d %16d%n", threads, legacy, hex, traceparent);
+        }
+    }
+
+    private static long run(Supplier<String> generator, int threads, long millis) throws InterruptedException {
+        // 预热
+        measure(generator, threads, Math.max(200, millis / 4));
+        return measure(generator, threads, millis);
+    }
+
+    private static long measure(Supplier<String> generator, int threads, long millis) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] deadline = new long[1];
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    long count = 0;
+                    long hash = 0;
+                    while (System.nanoTime() - deadline[0] < 0) {
+                        for (int j = 0; j < 64; j++) {
+                            hash += generator.get().hashCode();
+                        }
+                        count += 64;
+                    }
+                    ops.add(count);
+                    SINK.add(hash);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        deadline[0] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        start.countDown();
+        done.await();
+        return ops.sum() * 1000 / millis;
+    }
+
+    /**
+     * 原 MdcApiContextHandler.currentTraceId 实现
+     */
+    private static synchronized String legacyTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID uuid = new UUID(random.nextInt(), random.nextInt());
+        StringBuilder st = new StringBuilder(uuid.toString().replace("-", "").toLowerCase());
+        st.append(Instant.now().toEpochMilli());
+        int i = 0;
+        while (i < 3) {
+            i++;
+            st.append(ThreadLocalRandom.current().nextInt(2));
+        }
+        return st.toString();
+    }
+}